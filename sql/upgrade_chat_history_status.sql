@@ -0,0 +1,3 @@
+-- 对话历史增加消息状态（仅升级已有库时执行一次，新库直接使用 create_tale.sql）
+alter table chat_history
+    add column status varchar(32) default 'completed' not null comment '消息状态：completed/failed/cancelled' after messageType;
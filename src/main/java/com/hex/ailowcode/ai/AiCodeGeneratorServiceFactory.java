@@ -3,7 +3,11 @@ package com.hex.ailowcode.ai;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.hex.ailowcode.ai.guardrail.PromptSafetyInputGuardrail;
+import com.hex.ailowcode.ai.tools.FileEditTool;
+import com.hex.ailowcode.ai.tools.FileReadTool;
 import com.hex.ailowcode.ai.tools.FileWriteTool;
+import com.hex.ailowcode.core.saver.ProjectFileIndex;
+import com.hex.ailowcode.core.saver.VirtualProjectManager;
 import com.hex.ailowcode.exception.BusinessException;
 import com.hex.ailowcode.exception.ErrorCode;
 import com.hex.ailowcode.model.enums.CodeGenTypeEnum;
@@ -38,6 +42,10 @@ public class AiCodeGeneratorServiceFactory {
     private RedisChatMemoryStore redisChatMemoryStore;
     @Resource
     private ChatHistoryService chatHistoryService;
+    @Resource
+    private VirtualProjectManager virtualProjectManager;
+    @Resource
+    private ProjectFileIndex projectFileIndex;
 
     /**
      * 创建新的 AI 服务实例
@@ -59,7 +67,9 @@ public class AiCodeGeneratorServiceFactory {
             // Vue 项目生成，使用推理模型+工具调用
             case VUE_PROJECT -> AiServices.builder(AiCodeGeneratorService.class).chatModel(chatModel)
                     .streamingChatModel(reasoningStreamingChatModel).chatMemoryProvider(memoryId -> chatMemory)
-                    .tools(new FileWriteTool()).inputGuardrails(new PromptSafetyInputGuardrail()) // 添加输入护轨
+                    .tools(new FileWriteTool(virtualProjectManager, projectFileIndex), new FileEditTool(virtualProjectManager, projectFileIndex),
+                            new FileReadTool(virtualProjectManager, projectFileIndex))
+                    .inputGuardrails(new PromptSafetyInputGuardrail()) // 添加输入护轨
                     // 处理工具调用幻觉问题
                     .hallucinatedToolNameStrategy(toolExecutionRequest -> ToolExecutionResultMessage.from(toolExecutionRequest, "Error: there is no tool called " + toolExecutionRequest.name()))
                     .build();
@@ -99,4 +109,14 @@ public class AiCodeGeneratorServiceFactory {
     public AiCodeGeneratorService getAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
         return serviceCache.get(appId, id -> createAiCodeGeneratorService(id, codeGenType));
     }
+
+    /**
+     * 移除应用缓存的 AI Service 实例，下次获取时重新从数据库加载对话记忆
+     * （对话记录不是通过模型调用产生时使用，如命中响应缓存）
+     *
+     * @param appId 应用ID
+     */
+    public void invalidateAiCodeGeneratorService(long appId) {
+        serviceCache.invalidate(appId);
+    }
 }
@@ -0,0 +1,166 @@
+package com.hex.ailowcode.ai.cache;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hex.ailowcode.config.CodeGenProperties;
+import com.hex.ailowcode.model.entity.ChatHistory;
+import com.hex.ailowcode.model.enums.CodeGenTypeEnum;
+import com.hex.ailowcode.service.ChatHistoryService;
+import com.mybatisflex.core.query.QueryWrapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 首轮生成响应缓存（精确匹配）
+ *
+ * 很多用户在新应用上尝试同样的示例提示词，每次都是一次完整的模型调用。对没有历史对话的首轮生成：
+ * - 缓存 key = 归一化提示词 + 生成类型 + 系统提示词哈希（修改 prompt/*.txt 后旧缓存自动失效）
+ * - 命中时把缓存的输出按固定节奏切块重放，走与模型输出完全相同的解析和保存流程
+ * - Caffeine 按写入时间过期，按字符数估算容量淘汰
+ *
+ * Vue 项目生成依赖工具调用写文件，输出流本身不包含完整代码，不参与缓存
+ *
+ * 指标：
+ * - ai_response_cache_requests_total：缓存查询次数（result=hit/miss）
+ * - ai_response_cache_size：缓存条目数
+ */
+@Slf4j
+@Component
+public class GenerationResponseCache {
+
+    /**
+     * 参与缓存的生成类型及其系统提示词
+     */
+    private static final Map<CodeGenTypeEnum, String> SYSTEM_PROMPT_RESOURCES = Map.of(
+            CodeGenTypeEnum.HTML, "prompt/codegen-html-system-prompt.txt",
+            CodeGenTypeEnum.MULTI_FILE, "prompt/codegen-multi-file-system-prompt.txt");
+
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    @Resource
+    private ChatHistoryService chatHistoryService;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<CodeGenTypeEnum, String> systemPromptHashes = new EnumMap<>(CodeGenTypeEnum.class);
+
+    private final ConcurrentMap<String, Counter> requestCountersCache = new ConcurrentHashMap<>();
+
+    private Cache<String, String> responseCache;
+
+    @PostConstruct
+    public void init() {
+        SYSTEM_PROMPT_RESOURCES.forEach((type, resource) ->
+                systemPromptHashes.put(type, DigestUtil.sha256Hex(ResourceUtil.readUtf8Str(resource))));
+        // 按字符数估算权重（Java 字符串每字符按 2 字节计）
+        long maxWeight = codeGenProperties.getResponseCacheMaxMb() * 1024L * 1024L / 2;
+        responseCache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String key, String value) -> value.length())
+                .expireAfterWrite(Duration.ofMinutes(codeGenProperties.getResponseCacheTtlMinutes()))
+                .build();
+        Gauge.builder("ai_response_cache_size", responseCache, Cache::estimatedSize)
+                .description("首轮生成响应缓存条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 计算本次生成的缓存 key
+     *
+     * @return 缓存 key，未启用缓存、生成类型不支持或不是首轮生成时返回 null
+     */
+    public String resolveKey(String userMessage, CodeGenTypeEnum codeGenType, Long appId) {
+        if (!codeGenProperties.isResponseCacheEnabled() || !systemPromptHashes.containsKey(codeGenType)) {
+            return null;
+        }
+        // 调用生成前已经保存了本轮的用户消息，只有这一条记录时才是首轮生成
+        long historyCount = chatHistoryService.count(QueryWrapper.create().eq(ChatHistory::getAppId, appId));
+        if (historyCount > 1) {
+            return null;
+        }
+        String keySource = codeGenType.getValue() + ":" + systemPromptHashes.get(codeGenType) + ":" + normalizePrompt(userMessage);
+        return DigestUtil.sha256Hex(keySource);
+    }
+
+    /**
+     * 查询缓存并记录命中指标
+     *
+     * @return 缓存的完整输出，未命中返回 null
+     */
+    public String get(String cacheKey, CodeGenTypeEnum codeGenType) {
+        String cachedResponse = responseCache.getIfPresent(cacheKey);
+        recordRequest(codeGenType, cachedResponse != null ? "hit" : "miss");
+        return cachedResponse;
+    }
+
+    /**
+     * 写入一次完整生成的输出
+     */
+    public void put(String cacheKey, String response) {
+        if (StrUtil.isBlank(response)) {
+            return;
+        }
+        responseCache.put(cacheKey, response);
+    }
+
+    /**
+     * 把缓存的输出按固定节奏切块重放，前端看到的仍然是逐步输出的效果
+     */
+    public Flux<String> replay(String cachedResponse) {
+        int chunkChars = Math.max(1, codeGenProperties.getResponseCacheReplayChunkChars());
+        List<String> chunks = new ArrayList<>(cachedResponse.length() / chunkChars + 1);
+        int start = 0;
+        while (start < cachedResponse.length()) {
+            int end = Math.min(cachedResponse.length(), start + chunkChars);
+            // 避免把代理对拆到两个块中
+            if (end < cachedResponse.length() && Character.isHighSurrogate(cachedResponse.charAt(end - 1))) {
+                end++;
+            }
+            chunks.add(cachedResponse.substring(start, end));
+            start = end;
+        }
+        Flux<String> chunkFlux = Flux.fromIterable(chunks);
+        long intervalMs = codeGenProperties.getResponseCacheReplayIntervalMs();
+        return intervalMs > 0 ? chunkFlux.delayElements(Duration.ofMillis(intervalMs)) : chunkFlux;
+    }
+
+    /**
+     * 提示词归一化：Unicode NFKC（全角转半角）、去首尾空白、连续空白合并为一个空格、按 Locale.ROOT 转小写（缓存 key 不随服务器默认语言变化）
+     */
+    static String normalizePrompt(String prompt) {
+        String normalized = Normalizer.normalize(StrUtil.nullToEmpty(prompt), Normalizer.Form.NFKC);
+        return normalized.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private void recordRequest(CodeGenTypeEnum codeGenType, String result) {
+        String key = String.format("%s_%s", codeGenType.getValue(), result);  // 缓存key：拼接所有维度
+        Counter counter = requestCountersCache.computeIfAbsent(key, k ->
+                Counter.builder("ai_response_cache_requests_total")
+                        .description("首轮生成响应缓存查询次数")
+                        .tag("code_gen_type", codeGenType.getValue())
+                        .tag("result", result)
+                        .register(meterRegistry));
+        counter.increment();
+    }
+}
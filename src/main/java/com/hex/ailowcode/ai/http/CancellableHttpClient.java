@@ -0,0 +1,97 @@
+package com.hex.ailowcode.ai.http;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 支持取消的 HTTP 客户端（装饰器）
+ *
+ * 流式请求发起时捕获调用线程上的 {@link StreamCancellation}，解析 SSE 时包装响应流：
+ * 令牌被取消后关闭连接，读取立即抛出 IOException，解析器随之结束，上游模型请求被中止
+ */
+@Slf4j
+public class CancellableHttpClient implements HttpClient {
+
+    private final HttpClient delegate;
+
+    public CancellableHttpClient(HttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) throws HttpException, RuntimeException {
+        return delegate.execute(request);
+    }
+
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        StreamCancellation cancellation = StreamCancellation.current();
+        if (cancellation == null) {
+            delegate.execute(request, parser, listener);
+            return;
+        }
+        if (cancellation.isCancelled()) {
+            listener.onError(new IOException("生成已取消"));
+            return;
+        }
+        delegate.execute(request, (inputStream, eventListener) -> {
+            CancellableInputStream cancellableStream = new CancellableInputStream(inputStream, cancellation);
+            Runnable closer = cancellableStream::closeQuietly;
+            cancellation.onCancel(closer);
+            try {
+                // 在解析线程上绑定令牌，工具调用后发起的下一轮请求同样可以被取消
+                cancellation.runWithin(() -> parser.parse(cancellableStream, eventListener));
+            } finally {
+                cancellation.removeCallback(closer);
+            }
+        }, listener);
+    }
+
+    /**
+     * 取消后读取即失败的响应流
+     */
+    private static class CancellableInputStream extends FilterInputStream {
+
+        private final StreamCancellation cancellation;
+
+        CancellableInputStream(InputStream in, StreamCancellation cancellation) {
+            super(in);
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkCancelled();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkCancelled();
+            return super.read(b, off, len);
+        }
+
+        private void checkCancelled() throws IOException {
+            if (cancellation.isCancelled()) {
+                throw new IOException("生成已取消");
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                close();
+            } catch (IOException e) {
+                log.debug("关闭已取消的响应流失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.hex.ailowcode.ai.http;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * 流式生成的取消令牌
+ *
+ * LangChain4j 的 Flux 适配器在订阅者取消后不会中止底层的模型请求，模型会继续输出直到结束（照样计费）。
+ * 这里在发起模型调用的线程上通过 ThreadLocal 绑定令牌，由 {@link CancellableHttpClient} 在发起 HTTP 请求时捕获，
+ * 令牌被取消时直接关闭 SSE 响应流，从而真正中止上游请求。
+ *
+ * 工具调用后的后续请求是在解析 SSE 的线程上发起的，{@link CancellableHttpClient} 会在解析线程上重新绑定令牌，
+ * 因此同一次生成内的多轮请求都能被取消。
+ */
+@Slf4j
+public class StreamCancellation {
+
+    private static final ThreadLocal<StreamCancellation> CURRENT = new ThreadLocal<>();
+
+    private volatile boolean cancelled;
+
+    /**
+     * 取消时需要执行的回调（关闭进行中的响应流）
+     */
+    private final List<Runnable> cancelCallbacks = new CopyOnWriteArrayList<>();
+
+    /**
+     * 在绑定当前令牌的情况下执行模型调用
+     */
+    public <T> T callWithin(Supplier<T> supplier) {
+        StreamCancellation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return supplier.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 在绑定当前令牌的情况下执行任务（用于 SSE 解析线程）
+     */
+    public void runWithin(Runnable runnable) {
+        callWithin(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * 获取当前线程绑定的令牌
+     *
+     * @return 当前令牌，未绑定时返回 null
+     */
+    public static StreamCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 取消生成，执行所有已注册的回调（幂等）
+     */
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        for (Runnable callback : cancelCallbacks) {
+            try {
+                callback.run();
+            } catch (Exception e) {
+                log.warn("执行取消回调失败", e);
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 注册取消回调，已取消时立即执行
+     */
+    void onCancel(Runnable callback) {
+        cancelCallbacks.add(callback);
+        if (cancelled) {
+            callback.run();
+        }
+    }
+
+    void removeCallback(Runnable callback) {
+        cancelCallbacks.remove(callback);
+    }
+
+    private static void restore(StreamCancellation previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
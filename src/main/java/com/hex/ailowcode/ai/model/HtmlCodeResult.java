@@ -12,4 +12,12 @@ public class HtmlCodeResult {
 
     @Description("生成代码的描述")
     private String description;
+
+    /**
+     * 保存文件时使用的 HTML 代码内容，解析器返回的子类会以完整响应的视图代替复制出的字符串
+     * （普通方法不对应字段，不会进入结构化输出的 JSON Schema）
+     */
+    public CharSequence htmlCodeContent() {
+        return htmlCode;
+    }
 }
@@ -0,0 +1,125 @@
+package com.hex.ailowcode.ai.tools;
+
+import cn.hutool.core.util.StrUtil;
+import com.hex.ailowcode.core.saver.ProjectFileIndex;
+import com.hex.ailowcode.core.saver.VirtualProjectManager;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.model.output.structured.Description;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 文件修改工具
+ * 修改已有文件时只提交改动的片段（查找/替换或 unified diff），由服务端应用到文件当前内容上，
+ * 模型不需要重新输出整个文件
+ *
+ * 核心功能：
+ * 1. 读取文件当前内容（生成进行中时包括本轮尚未发布的写入）
+ * 2. 应用全部修改，任意一处无法应用时文件保持不变，返回每处冲突的原因，模型据此修正后重试
+ * 3. 通过与文件写入工具相同的方式写回（内存项目树或原子替换）
+ */
+@Slf4j
+public class FileEditTool {
+
+    private final ProjectFiles projectFiles;
+
+    public FileEditTool(VirtualProjectManager virtualProjectManager, ProjectFileIndex projectFileIndex) {
+        this.projectFiles = new ProjectFiles(virtualProjectManager, projectFileIndex);
+    }
+
+    @Tool("修改已有文件的部分内容：按顺序应用若干组查找/替换，每组查找内容必须与文件当前内容一致且只出现一次，全部能应用才会写入")
+    public String editFile(
+            @P("文件的相对路径")
+            String relativeFilePath,
+            @P("修改列表，每项包含要查找的原内容（包含足够的上下文使其唯一）和替换后的新内容")
+            List<EditHunk> edits,
+            @ToolMemoryId Long appId
+    ) {
+        if (edits == null || edits.isEmpty()) {
+            return "文件修改失败: " + relativeFilePath + ", 错误: 修改列表为空";
+        }
+        return editProject(appId, relativeFilePath, false,
+                content -> FilePatcher.applyReplacements(content, edits));
+    }
+
+    @Tool("以 unified diff 格式修改文件：提供包含 @@ -起始行,行数 +起始行,行数 @@ 修改块的 diff 文本，上下文行与文件当前内容一致时应用，全部修改块都能应用才会写入")
+    public String applyDiff(
+            @P("文件的相对路径")
+            String relativeFilePath,
+            @P("unified diff 文本，上下文行以空格开头，删除行以 - 开头，新增行以 + 开头")
+            String diff,
+            @ToolMemoryId Long appId
+    ) {
+        if (StrUtil.isBlank(diff)) {
+            return "文件修改失败: " + relativeFilePath + ", 错误: diff 内容为空";
+        }
+        // diff 只包含新增行时可以创建新文件
+        return editProject(appId, relativeFilePath, true,
+                content -> FilePatcher.applyUnifiedDiff(content, diff));
+    }
+
+    /**
+     * 读取文件、应用修改并写回
+     *
+     * @param allowCreate 文件不存在时是否按空文件处理
+     * @return 修改结果（成功或冲突原因）
+     */
+    private String editProject(Long appId, String relativeFilePath, boolean allowCreate,
+                               Function<String, FilePatcher.PatchResult> patcher) {
+        if (StrUtil.isBlank(relativeFilePath)) {
+            return "文件修改失败: 文件路径不能为空";
+        }
+        try {
+            // 1. 构建完整路径，不允许修改项目目录之外的文件
+            Path projectRoot = ProjectFiles.getProjectRoot(appId);
+            Path fullPath = ProjectFiles.resolve(projectRoot, relativeFilePath);
+            if (fullPath == null) {
+                return "文件修改失败: " + relativeFilePath + ", 错误: 路径必须位于项目目录内";
+            }
+
+            // 2. 读取文件当前内容
+            byte[] current = projectFiles.read(appId, projectRoot, fullPath);
+            if (current == null && !allowCreate) {
+                return "文件修改失败: " + relativeFilePath + ", 错误: 文件不存在，请使用文件写入工具创建";
+            }
+
+            // 3. 应用修改，存在冲突时不写入
+            FilePatcher.PatchResult result = patcher.apply(current != null ? new String(current, StandardCharsets.UTF_8) : "");
+            if (!result.isSuccess()) {
+                log.info("文件修改存在冲突: {}, 冲突 {} 处", relativeFilePath, result.getConflicts().size());
+                return "文件修改失败: " + relativeFilePath + ", 文件未改动，冲突:\n- "
+                        + String.join("\n- ", result.getConflicts());
+            }
+
+            // 4. 写回（修改后内容不变时不写入）
+            projectFiles.write(appId, projectRoot, fullPath, result.getContent().getBytes(StandardCharsets.UTF_8));
+            return StrUtil.format("文件修改成功: {}, 应用 {} 处修改", relativeFilePath, result.getApplied());
+
+        } catch (IOException e) {
+            String errorMessage = "文件修改失败: " + relativeFilePath + ", 错误: " + e.getMessage();
+            log.error(errorMessage, e);
+            return errorMessage;
+        }
+    }
+
+    /**
+     * 一组查找/替换
+     */
+    @Data
+    public static class EditHunk {
+
+        @Description("要查找的原内容，必须与文件当前内容完全一致（包括缩进）且在文件中只出现一次")
+        private String search;
+
+        @Description("替换后的新内容，为空表示删除")
+        private String replace;
+    }
+}
@@ -0,0 +1,285 @@
+package com.hex.ailowcode.ai.tools;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 文件局部修改：在服务端把查找/替换或 unified diff 应用到文件当前内容上
+ *
+ * - 全部修改都能应用才返回新内容，任意一处冲突时文件保持不变，并返回所有冲突的说明
+ * - 精确匹配失败时忽略行尾空白再匹配一次（模型经常丢掉行尾空格）
+ * - 统一按 \n 处理，原文件使用 \r\n 时结果转换回 \r\n
+ */
+final class FilePatcher {
+
+    private static final Pattern HUNK_HEADER_PATTERN = Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@");
+
+    /**
+     * 冲突说明中引用原内容的最大长度
+     */
+    private static final int QUOTE_MAX_LENGTH = 80;
+
+    private FilePatcher() {
+    }
+
+    /**
+     * 修改结果
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class PatchResult {
+
+        /**
+         * 修改后的内容，存在冲突时为 null
+         */
+        private final String content;
+
+        /**
+         * 应用的修改数
+         */
+        private final int applied;
+
+        /**
+         * 冲突说明
+         */
+        private final List<String> conflicts;
+
+        boolean isSuccess() {
+            return conflicts.isEmpty();
+        }
+    }
+
+    /**
+     * 按顺序应用查找/替换：每处查找内容必须在当前内容中恰好出现一次
+     */
+    static PatchResult applyReplacements(String content, List<FileEditTool.EditHunk> edits) {
+        boolean crlf = content.contains("\r\n");
+        String result = normalize(content);
+        List<String> conflicts = new ArrayList<>();
+        for (int i = 0; i < edits.size(); i++) {
+            String search = normalize(StrUtil.nullToEmpty(edits.get(i).getSearch()));
+            String replace = normalize(StrUtil.nullToEmpty(edits.get(i).getReplace()));
+            String prefix = "第 " + (i + 1) + " 处修改: ";
+            if (search.isEmpty()) {
+                conflicts.add(prefix + "查找内容为空");
+                continue;
+            }
+            int first = result.indexOf(search);
+            if (first >= 0) {
+                int count = countOccurrences(result, search);
+                if (count > 1) {
+                    conflicts.add(prefix + "查找内容匹配到 " + count + " 处，请包含更多上下文使其唯一: " + quote(search));
+                    continue;
+                }
+                result = result.substring(0, first) + replace + result.substring(first + search.length());
+                continue;
+            }
+            // 忽略行尾空白按行匹配
+            String replaced = replaceLinesIgnoringTrailingWhitespace(result, search, replace);
+            if (replaced == null) {
+                conflicts.add(prefix + "没有找到查找内容，请确认文件当前内容: " + quote(search));
+                continue;
+            }
+            result = replaced;
+        }
+        return toResult(result, crlf, edits.size(), conflicts);
+    }
+
+    /**
+     * 应用 unified diff（只处理单个文件的 @@ 修改块，--- / +++ 文件头忽略）
+     * 每个修改块优先在标注的行号处匹配，行号不准时在之后的内容中查找离标注位置最近的匹配
+     */
+    static PatchResult applyUnifiedDiff(String content, String diff) {
+        boolean crlf = content.contains("\r\n");
+        List<Hunk> hunks = parseHunks(normalize(diff));
+        if (hunks.isEmpty()) {
+            return new PatchResult(null, 0, List.of("没有解析到 @@ -起始行,行数 +起始行,行数 @@ 格式的修改块"));
+        }
+        String normalized = normalize(content);
+        boolean trailingNewline = normalized.isEmpty() || normalized.endsWith("\n");
+        List<String> lines = new ArrayList<>(normalized.isEmpty() ? List.of()
+                : Arrays.asList((trailingNewline ? normalized.substring(0, normalized.length() - 1) : normalized).split("\n", -1)));
+        List<String> conflicts = new ArrayList<>();
+        int offset = 0;
+        int searchFrom = 0;
+        for (int i = 0; i < hunks.size(); i++) {
+            Hunk hunk = hunks.get(i);
+            int expected = Math.max(searchFrom, Math.max(0, hunk.oldStart - 1) + offset);
+            int position;
+            if (hunk.oldLines.isEmpty()) {
+                // 纯插入：old 起始行表示插入到该行之后
+                position = Math.min(lines.size(), Math.max(searchFrom, hunk.oldStart + offset));
+            } else {
+                position = findLines(lines, hunk.oldLines, expected, searchFrom, false);
+                if (position < 0) {
+                    position = findLines(lines, hunk.oldLines, expected, searchFrom, true);
+                }
+            }
+            if (position < 0) {
+                conflicts.add("第 " + (i + 1) + " 个修改块（" + hunk.header + "）: 上下文和删除行与文件当前内容不一致: "
+                        + quote(String.join("\n", hunk.oldLines)));
+                continue;
+            }
+            List<String> region = lines.subList(position, position + hunk.oldLines.size());
+            region.clear();
+            region.addAll(hunk.newLines);
+            offset += hunk.newLines.size() - hunk.oldLines.size();
+            searchFrom = position + hunk.newLines.size();
+        }
+        String result = String.join("\n", lines);
+        if (trailingNewline && !lines.isEmpty()) {
+            result += "\n";
+        }
+        return toResult(result, crlf, hunks.size(), conflicts);
+    }
+
+    private static List<Hunk> parseHunks(String diff) {
+        List<Hunk> hunks = new ArrayList<>();
+        Hunk current = null;
+        for (String line : diff.split("\n", -1)) {
+            Matcher matcher = HUNK_HEADER_PATTERN.matcher(line);
+            if (matcher.find()) {
+                current = new Hunk(matcher.group(), Integer.parseInt(matcher.group(1)));
+                hunks.add(current);
+                continue;
+            }
+            if (current == null || line.startsWith("\\")) {
+                // 文件头（diff / --- / +++）和 "\ No newline at end of file"
+                continue;
+            }
+            if (line.startsWith("+")) {
+                current.newLines.add(line.substring(1));
+            } else if (line.startsWith("-")) {
+                current.oldLines.add(line.substring(1));
+            } else {
+                // 上下文行；模型经常丢掉空行前面的空格，空行按空的上下文行处理
+                String context = line.isEmpty() ? "" : line.substring(1);
+                current.oldLines.add(context);
+                current.newLines.add(context);
+            }
+        }
+        // diff 文本末尾的换行会产生一个多余的空上下文行
+        for (Hunk hunk : hunks) {
+            hunk.trimTrailingEmptyContext();
+        }
+        return hunks;
+    }
+
+    /**
+     * 在 lines 中查找与 target 完全相同的连续行，从 expected 开始向两侧查找最近的位置（不早于 searchFrom）
+     */
+    private static int findLines(List<String> lines, List<String> target, int expected, int searchFrom, boolean ignoreTrailingWhitespace) {
+        int last = lines.size() - target.size();
+        for (int distance = 0; ; distance++) {
+            int after = expected + distance;
+            int before = expected - distance;
+            if (after > last && before < searchFrom) {
+                return -1;
+            }
+            if (after >= searchFrom && after <= last && matchesAt(lines, target, after, ignoreTrailingWhitespace)) {
+                return after;
+            }
+            if (distance > 0 && before >= searchFrom && before <= last && matchesAt(lines, target, before, ignoreTrailingWhitespace)) {
+                return before;
+            }
+        }
+    }
+
+    private static boolean matchesAt(List<String> lines, List<String> target, int start, boolean ignoreTrailingWhitespace) {
+        for (int i = 0; i < target.size(); i++) {
+            String line = lines.get(start + i);
+            String expected = target.get(i);
+            boolean equal = ignoreTrailingWhitespace ? line.stripTrailing().equals(expected.stripTrailing()) : line.equals(expected);
+            if (!equal) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 忽略行尾空白按行查找并替换，要求匹配唯一
+     *
+     * @return 替换后的内容，没有找到或不唯一时返回 null
+     */
+    private static String replaceLinesIgnoringTrailingWhitespace(String content, String search, String replace) {
+        boolean searchEndsWithNewline = search.endsWith("\n");
+        List<String> searchLines = Arrays.asList((searchEndsWithNewline ? search.substring(0, search.length() - 1) : search).split("\n", -1));
+        List<String> lines = Arrays.asList(content.split("\n", -1));
+        int match = -1;
+        for (int start = 0; start <= lines.size() - searchLines.size(); start++) {
+            if (matchesAt(lines, searchLines, start, true)) {
+                if (match >= 0) {
+                    return null;
+                }
+                match = start;
+            }
+        }
+        if (match < 0) {
+            return null;
+        }
+        // 按行替换时不包含最后一行的换行符，替换内容同样去掉一个末尾换行
+        String replacement = searchEndsWithNewline && replace.endsWith("\n") ? replace.substring(0, replace.length() - 1) : replace;
+        List<String> result = new ArrayList<>(lines.subList(0, match));
+        result.add(replacement);
+        result.addAll(lines.subList(match + searchLines.size(), lines.size()));
+        return String.join("\n", result);
+    }
+
+    private static int countOccurrences(String content, String search) {
+        int count = 0;
+        for (int index = content.indexOf(search); index >= 0; index = content.indexOf(search, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static PatchResult toResult(String result, boolean crlf, int total, List<String> conflicts) {
+        if (!conflicts.isEmpty()) {
+            return new PatchResult(null, 0, conflicts);
+        }
+        return new PatchResult(crlf ? result.replace("\n", "\r\n") : result, total, conflicts);
+    }
+
+    private static String normalize(String text) {
+        return text.replace("\r\n", "\n");
+    }
+
+    private static String quote(String text) {
+        String brief = StrUtil.brief(text.strip(), QUOTE_MAX_LENGTH);
+        return "「" + brief.replace("\n", "⏎") + "」";
+    }
+
+    /**
+     * unified diff 中的一个修改块
+     */
+    private static final class Hunk {
+
+        private final String header;
+
+        private final int oldStart;
+
+        private final List<String> oldLines = new ArrayList<>();
+
+        private final List<String> newLines = new ArrayList<>();
+
+        private Hunk(String header, int oldStart) {
+            this.header = header;
+            this.oldStart = oldStart;
+        }
+
+        private void trimTrailingEmptyContext() {
+            while (!oldLines.isEmpty() && !newLines.isEmpty() && oldLines.getLast().isEmpty() && newLines.getLast().isEmpty()) {
+                oldLines.removeLast();
+                newLines.removeLast();
+            }
+        }
+    }
+}
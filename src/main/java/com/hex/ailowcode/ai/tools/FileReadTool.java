@@ -0,0 +1,122 @@
+package com.hex.ailowcode.ai.tools;
+
+import cn.hutool.core.util.StrUtil;
+import com.hex.ailowcode.core.saver.ProjectFileIndex;
+import com.hex.ailowcode.core.saver.VirtualProjectManager;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * 文件读取工具
+ * 让 AI 在修改项目前查看已有的文件，避免重新生成已经写好的文件
+ *
+ * 核心功能：
+ * 1. listDirectory：基于应用的文件索引列出目录下的文件（路径、大小、内容哈希前缀），不遍历磁盘
+ * 2. readFile：读取文件当前内容（生成进行中时包括本轮尚未发布的写入），过大的文件截断返回
+ */
+@Slf4j
+public class FileReadTool {
+
+    /**
+     * 单次列出的最大文件数
+     */
+    private static final int MAX_LIST_FILES = 500;
+
+    /**
+     * 单次读取返回的最大字符数
+     */
+    private static final int MAX_READ_CHARS = 64 * 1024;
+
+    /**
+     * 列表中显示的内容哈希长度（用于判断两次查看之间文件是否变化）
+     */
+    private static final int HASH_PREFIX_LENGTH = 8;
+
+    private final ProjectFiles projectFiles;
+
+    public FileReadTool(VirtualProjectManager virtualProjectManager, ProjectFileIndex projectFileIndex) {
+        this.projectFiles = new ProjectFiles(virtualProjectManager, projectFileIndex);
+    }
+
+    @Tool("列出项目目录下已有的文件（递归，不包括 node_modules 和 dist），每行返回 相对路径、大小（字节）和内容哈希前缀")
+    public String listDirectory(
+            @P("目录的相对路径，为空表示项目根目录")
+            String relativeDirPath,
+            @ToolMemoryId Long appId
+    ) {
+        try {
+            Path projectRoot = ProjectFiles.getProjectRoot(appId);
+            String prefix = "";
+            if (StrUtil.isNotBlank(relativeDirPath) && !".".equals(relativeDirPath.strip())) {
+                Path dirPath = ProjectFiles.resolve(projectRoot, relativeDirPath.strip());
+                if (dirPath == null) {
+                    return "列出目录失败: " + relativeDirPath + ", 错误: 路径必须位于项目目录内";
+                }
+                prefix = projectRoot.relativize(dirPath).toString().replace('\\', '/') + "/";
+            }
+            // 路径按字典序排列，前缀相同的文件是索引中连续的一段
+            NavigableMap<String, ProjectFileIndex.FileMeta> files = projectFiles.index(appId, projectRoot);
+            NavigableMap<String, ProjectFileIndex.FileMeta> dirFiles = prefix.isEmpty() ? files
+                    : files.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            if (dirFiles.isEmpty()) {
+                return prefix.isEmpty() ? "项目中还没有文件" : "目录不存在或为空: " + relativeDirPath;
+            }
+            StringBuilder result = new StringBuilder();
+            int listed = 0;
+            for (Map.Entry<String, ProjectFileIndex.FileMeta> entry : dirFiles.entrySet()) {
+                if (listed++ == MAX_LIST_FILES) {
+                    result.append(StrUtil.format("... 共 {} 个文件，只列出前 {} 个，请指定子目录", dirFiles.size(), MAX_LIST_FILES));
+                    break;
+                }
+                ProjectFileIndex.FileMeta meta = entry.getValue();
+                result.append(entry.getKey()).append("  ").append(meta.size()).append("B  ")
+                        .append(meta.hash(), 0, HASH_PREFIX_LENGTH).append('\n');
+            }
+            return result.toString().trim();
+        } catch (IOException e) {
+            String errorMessage = "列出目录失败: " + relativeDirPath + ", 错误: " + e.getMessage();
+            log.error(errorMessage, e);
+            return errorMessage;
+        }
+    }
+
+    @Tool("读取项目中文件的当前内容")
+    public String readFile(
+            @P("文件的相对路径")
+            String relativeFilePath,
+            @ToolMemoryId Long appId
+    ) {
+        if (StrUtil.isBlank(relativeFilePath)) {
+            return "文件读取失败: 文件路径不能为空";
+        }
+        try {
+            Path projectRoot = ProjectFiles.getProjectRoot(appId);
+            Path fullPath = ProjectFiles.resolve(projectRoot, relativeFilePath);
+            if (fullPath == null) {
+                return "文件读取失败: " + relativeFilePath + ", 错误: 路径必须位于项目目录内";
+            }
+            byte[] content = projectFiles.read(appId, projectRoot, fullPath);
+            if (content == null) {
+                return "文件读取失败: " + relativeFilePath + ", 错误: 文件不存在";
+            }
+            String text = new String(content, StandardCharsets.UTF_8);
+            if (text.length() > MAX_READ_CHARS) {
+                return text.substring(0, MAX_READ_CHARS)
+                        + StrUtil.format("\n... 文件共 {} 字符，只返回前 {} 字符", text.length(), MAX_READ_CHARS);
+            }
+            return text;
+        } catch (IOException e) {
+            String errorMessage = "文件读取失败: " + relativeFilePath + ", 错误: " + e.getMessage();
+            log.error(errorMessage, e);
+            return errorMessage;
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package com.hex.ailowcode.ai.tools;
 
-import com.hex.ailowcode.constant.AppConstant;
+import cn.hutool.core.util.StrUtil;
+import com.hex.ailowcode.core.saver.ProjectFileIndex;
+import com.hex.ailowcode.core.saver.VirtualProjectManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.model.output.structured.Description;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 /**
  * 文件写入工具
@@ -19,13 +22,35 @@ import java.nio.file.StandardOpenOption;
  * 核心功能：
  * 1. 接收文件相对路径、内容、应用ID三个参数
  * 2. 基于 appId 构建项目目录 vue_project_{appId}/
- * 3. 自动创建父目录，以覆盖模式写入文件
+ * 3. 自动创建父目录，先写临时文件再原子替换目标文件（目标文件可能是版本快照中指向 blob 的硬链接，不能原地修改）
  * 4. 返回相对路径（避免泄露服务器内部路径）
  * 5. 异常处理：捕获 IOException，记录日志并返回错误信息
+ *
+ * 批量写入：一次工具调用写入多个文件，减少"模型 -> 工具 -> 模型"的往返次数，
+ * 每次往返都要把不断增长的上下文重新发送给推理模型
+ *
+ * 生成进行中时写入本轮的内存项目树（VirtualProject），同一文件多次改写不产生磁盘 I/O，生成成功结束后一次性原子发布；
+ * 没有进行中的轮次时直接写入磁盘；内容与项目中的现有文件相同时跳过写入
  */
 @Slf4j
 public class FileWriteTool {
 
+    /**
+     * 单次批量写入的最大文件数
+     */
+    private static final int MAX_BATCH_FILES = 30;
+
+    /**
+     * 单次批量写入的内容总长度上限（字符数）
+     */
+    private static final int MAX_BATCH_TOTAL_CHARS = 256 * 1024;
+
+    private final ProjectFiles projectFiles;
+
+    public FileWriteTool(VirtualProjectManager virtualProjectManager, ProjectFileIndex projectFileIndex) {
+        this.projectFiles = new ProjectFiles(virtualProjectManager, projectFileIndex);
+    }
+
     @Tool("写入文件到指定路径")
     public String writeFile(
             @P("文件的相对路径")
@@ -34,26 +59,56 @@ public class FileWriteTool {
             String content,
             @ToolMemoryId Long appId
     ) {
+        return writeToProject(appId, ProjectFiles.getProjectRoot(appId), relativeFilePath, content);
+    }
+
+    @Tool("批量写入多个文件，一次调用写入多个文件，返回每个文件的写入结果")
+    public String writeFiles(
+            @P("要写入的文件列表，每项包含文件的相对路径和内容")
+            List<FileEntry> files,
+            @ToolMemoryId Long appId
+    ) {
+        if (files == null || files.isEmpty()) {
+            return "批量写入失败: 文件列表为空";
+        }
+        if (files.size() > MAX_BATCH_FILES) {
+            return StrUtil.format("批量写入失败: 单次最多写入 {} 个文件，当前 {} 个，请分多次调用", MAX_BATCH_FILES, files.size());
+        }
+        long totalChars = files.stream().mapToLong(file -> StrUtil.length(file.getContent())).sum();
+        if (totalChars > MAX_BATCH_TOTAL_CHARS) {
+            return StrUtil.format("批量写入失败: 内容总长度 {} 字符超过上限 {} 字符，请分多次调用", totalChars, MAX_BATCH_TOTAL_CHARS);
+        }
+        Path projectRoot = ProjectFiles.getProjectRoot(appId);
+        // 逐个写入，单个文件失败不影响其他文件，结果按输入顺序逐行返回
+        StringBuilder results = new StringBuilder();
+        for (FileEntry file : files) {
+            results.append(writeToProject(appId, projectRoot, file.getPath(), file.getContent())).append('\n');
+        }
+        return results.toString().trim();
+    }
+
+    /**
+     * 写入单个文件
+     *
+     * @return 写入结果（成功或失败原因）
+     */
+    private String writeToProject(Long appId, Path projectRoot, String relativeFilePath, String content) {
+        if (StrUtil.isBlank(relativeFilePath) || content == null) {
+            return "文件写入失败: " + relativeFilePath + ", 错误: 路径和内容不能为空";
+        }
         try {
-            // 1. 构建完整路径：CODE_OUTPUT_ROOT_DIR/vue_project_{appId}/ + relativeFilePath
-            String projectDirName = "vue_project_" + appId;
-            Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-            Path fullPath = projectRoot.resolve(relativeFilePath);
-
-            // 2. 自动创建父目录（如果不存在）
-            Path parentDir = fullPath.getParent();
-            if (parentDir != null) {
-                Files.createDirectories(parentDir);
+            // 1. 构建完整路径：项目目录 + relativeFilePath，不允许写到项目目录之外
+            Path fullPath = ProjectFiles.resolve(projectRoot, relativeFilePath);
+            if (fullPath == null) {
+                return "文件写入失败: " + relativeFilePath + ", 错误: 路径必须位于项目目录内";
             }
 
-            // 3. 以覆盖模式写入文件
-            Files.write(fullPath, content.getBytes(),
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
-
-            log.info("成功写入文件: {}", fullPath.toAbsolutePath());
+            // 2. 写入文件：生成进行中写入本轮的内存项目树，否则自动创建父目录并原子替换目标文件；内容未变化时跳过
+            if (!projectFiles.write(appId, projectRoot, fullPath, content.getBytes(StandardCharsets.UTF_8))) {
+                return "文件内容未变化，跳过写入: " + relativeFilePath;
+            }
 
-            // 4. 返回相对路径（避免泄露服务器内部路径）
+            // 3. 返回相对路径（避免泄露服务器内部路径）
             return "文件写入成功: " + relativeFilePath;
 
         } catch (IOException e) {
@@ -62,4 +117,17 @@ public class FileWriteTool {
             return errorMessage;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量写入的单个文件
+     */
+    @Data
+    public static class FileEntry {
+
+        @Description("文件的相对路径")
+        private String path;
+
+        @Description("要写入文件的内容")
+        private String content;
+    }
+}
@@ -0,0 +1,117 @@
+package com.hex.ailowcode.ai.tools;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.hex.ailowcode.constant.AppConstant;
+import com.hex.ailowcode.core.saver.ProjectFileIndex;
+import com.hex.ailowcode.core.saver.VirtualProject;
+import com.hex.ailowcode.core.saver.VirtualProjectManager;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.NavigableMap;
+
+/**
+ * Vue 工程文件读写（文件工具共用）
+ * 生成进行中时读写本轮的内存项目树（VirtualProject），生成成功结束后统一发布；没有进行中的轮次时直接读写磁盘
+ * 每次写入同步更新应用的文件索引（ProjectFileIndex），列目录和判断内容是否变化都不访问磁盘
+ */
+@Slf4j
+class ProjectFiles {
+
+    private final VirtualProjectManager virtualProjectManager;
+
+    private final ProjectFileIndex projectFileIndex;
+
+    ProjectFiles(VirtualProjectManager virtualProjectManager, ProjectFileIndex projectFileIndex) {
+        this.virtualProjectManager = virtualProjectManager;
+        this.projectFileIndex = projectFileIndex;
+    }
+
+    /**
+     * 构建项目目录：CODE_OUTPUT_ROOT_DIR/vue_project_{appId}
+     */
+    static Path getProjectRoot(Long appId) {
+        String projectDirName = "vue_project_" + appId;
+        return Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 解析项目内的文件路径
+     *
+     * @return 完整路径，越出项目目录时返回 null
+     */
+    static Path resolve(Path projectRoot, String relativeFilePath) {
+        Path fullPath = projectRoot.resolve(relativeFilePath).normalize();
+        if (!fullPath.startsWith(projectRoot) || fullPath.equals(projectRoot)) {
+            return null;
+        }
+        return fullPath;
+    }
+
+    /**
+     * 读取文件当前内容（包括本轮尚未发布的写入）
+     *
+     * @return 文件不存在时返回 null
+     */
+    byte[] read(Long appId, Path projectRoot, Path fullPath) throws IOException {
+        VirtualProject virtualProject = virtualProjectManager.getActive(appId);
+        if (virtualProject != null) {
+            byte[] content = virtualProject.read(toProjectPath(projectRoot, fullPath));
+            if (content != null) {
+                return content;
+            }
+        }
+        return Files.isRegularFile(fullPath) ? Files.readAllBytes(fullPath) : null;
+    }
+
+    /**
+     * 获取项目的文件索引（相对路径 -> 大小和内容哈希，按路径排序）
+     */
+    NavigableMap<String, ProjectFileIndex.FileMeta> index(Long appId, Path projectRoot) throws IOException {
+        return projectFileIndex.getIndex(appId, projectRoot, virtualProjectManager.getActive(appId));
+    }
+
+    /**
+     * 写入文件：生成进行中写入内存项目树，否则先写临时文件再原子替换目标文件
+     * （目标文件可能是版本快照中指向 blob 的硬链接，不能原地修改）
+     *
+     * @return 内容与索引中的当前内容相同时不写入，返回 false
+     */
+    boolean write(Long appId, Path projectRoot, Path fullPath, byte[] content) throws IOException {
+        String projectPath = toProjectPath(projectRoot, fullPath);
+        ProjectFileIndex.FileMeta current = index(appId, projectRoot).get(projectPath);
+        if (current != null && current.size() == content.length && current.hash().equals(DigestUtil.sha256Hex(content))) {
+            log.info("文件内容未变化，跳过写入: {}/{}", projectRoot.getFileName(), projectPath);
+            return false;
+        }
+        VirtualProject virtualProject = virtualProjectManager.getActive(appId);
+        if (virtualProject != null && virtualProject.write(projectPath, content)) {
+            projectFileIndex.recordWrite(appId, projectPath, content);
+            log.info("写入内存项目树: {}/{}", projectRoot.getFileName(), projectPath);
+            return true;
+        }
+        // 自动创建父目录（如果不存在）
+        Files.createDirectories(fullPath.getParent());
+        // 写入临时文件后原子替换目标文件
+        Path tempFile = fullPath.resolveSibling("." + fullPath.getFileName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            Files.write(tempFile, content, StandardOpenOption.CREATE_NEW);
+            Files.move(tempFile, fullPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        projectFileIndex.recordWrite(appId, projectPath, content);
+        log.info("成功写入文件: {}", fullPath);
+        return true;
+    }
+
+    private static String toProjectPath(Path projectRoot, Path fullPath) {
+        return projectRoot.relativize(fullPath).toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,21 @@
+package com.hex.ailowcode.config;
+
+import com.hex.ailowcode.ai.http.CancellableHttpClientBuilder;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 流式模型 HTTP 客户端配置
+ *
+ * 覆盖 LangChain4j 自动配置中的流式对话模型 HttpClientBuilder（按 Bean 名称），
+ * 使客户端断开后可以中止进行中的模型请求
+ */
+@Configuration
+public class CancellableHttpClientConfig {
+
+    @Bean("openAiStreamingChatModelHttpClientBuilder")
+    public HttpClientBuilder openAiStreamingChatModelHttpClientBuilder() {
+        return new CancellableHttpClientBuilder();
+    }
+}
@@ -0,0 +1,191 @@
+package com.hex.ailowcode.config;
+
+import com.hex.ailowcode.model.enums.CodeGenTypeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 代码生成流水线配置（application.yaml 中 code-gen 前缀）
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "code-gen")
+public class CodeGenProperties {
+
+    /**
+     * 是否启用流式保存：代码块边生成边写入临时文件，围栏闭合后原子发布到预览目录
+     */
+    private boolean streamingSave = true;
+
+    /**
+     * 单节点所有生成流缓冲的内存预算（MB），超出后拒绝新的生成请求，0 表示不限制
+     */
+    private long streamBufferBudgetMb = 256;
+
+    /**
+     * SSE 合并输出的时间窗口（毫秒），0 表示每个 chunk 单独输出
+     */
+    private long sseFlushIntervalMs = 30;
+
+    /**
+     * SSE 合并输出的字符数上限，窗口内累计达到该值时提前输出
+     */
+    private int sseFlushMaxChars = 1024;
+
+    /**
+     * 每个生成流重放缓冲区保留的事件数（断线重连续传用）
+     */
+    private int replayBufferSize = 4096;
+
+    /**
+     * 客户端全部断开后等待重连的宽限期（秒），超时后取消上游生成
+     */
+    private long resumeGraceSeconds = 30;
+
+    /**
+     * 生成流结束后保留重放缓冲区的时间（秒）
+     */
+    private long resumeRetainSeconds = 60;
+
+    /**
+     * 是否把生成流事件镜像到 Redis，支持跨节点续传
+     */
+    private boolean replayRedisMirror = false;
+
+    /**
+     * 流结束后处理（解析、保存、写对话历史）同时执行的最大任务数
+     */
+    private int completionMaxConcurrency = 16;
+
+    /**
+     * 等待执行的流结束后处理任务上限，超出后拒绝新的生成请求
+     */
+    private int completionMaxQueue = 256;
+
+    /**
+     * 是否启用首轮生成响应缓存：新应用的首轮提示词完全相同时直接重放缓存的输出，不调用模型
+     */
+    private boolean responseCacheEnabled = false;
+
+    /**
+     * 响应缓存过期时间（分钟）
+     */
+    private long responseCacheTtlMinutes = 60;
+
+    /**
+     * 响应缓存容量上限（MB，按字符数估算）
+     */
+    private long responseCacheMaxMb = 64;
+
+    /**
+     * 缓存重放时每次输出的字符数
+     */
+    private int responseCacheReplayChunkChars = 64;
+
+    /**
+     * 缓存重放时两次输出的间隔（毫秒）
+     */
+    private long responseCacheReplayIntervalMs = 15;
+
+    /**
+     * 部署时是否压缩（minify）html/css/js（去掉注释和多余空白，code_output 中的源码保持原样）
+     */
+    private boolean minifyEnabled = false;
+
+    /**
+     * 部署时是否为 html/css/js 等文本文件生成 .gz 预压缩变体（配合 nginx gzip_static 使用）
+     */
+    private boolean precompressEnabled = true;
+
+    /**
+     * 启动时生成 nginx 预压缩配置片段（gzip_static / open_file_cache）的文件路径，为空表示不生成
+     */
+    private String nginxSnippetPath;
+
+    /**
+     * Vue 工程模式一轮生成中在内存中缓冲的文件总大小上限（MB），超出后溢写到磁盘暂存区；0 表示不缓冲，工具直接写入磁盘
+     */
+    private long vueProjectMemoryMb = 16;
+
+    /**
+     * Vue 工程构建时是否从预先安装好的依赖模板链接 node_modules（按依赖集合哈希匹配），关闭时每个项目都执行 npm install
+     */
+    private boolean vueDependencyTemplateEnabled = true;
+
+    /**
+     * 是否在启动后预热脚手架的依赖模板
+     */
+    private boolean vueDependencyTemplatePrewarm = true;
+
+    /**
+     * 保留的依赖模板数上限，超出时删除最久没有使用的模板，0 表示不限制
+     */
+    private int vueDependencyTemplateMaxCount = 16;
+
+    /**
+     * 依赖模板超过该天数没有使用时删除，0 表示不按时间删除
+     */
+    private long vueDependencyTemplateMaxIdleDays = 14;
+
+    /**
+     * 同时执行的 Vue 工程构建数（每个构建会启动 npm / node 进程）
+     */
+    private int vueBuildWorkers = 2;
+
+    /**
+     * 排队中的 Vue 工程构建上限，超出后拒绝新的部署请求，0 表示不限制
+     */
+    private int vueBuildMaxQueue = 64;
+
+    /**
+     * 部署请求等待 Vue 工程构建（排队 + 构建）的最长秒数，超时后请求返回，构建继续进行
+     */
+    private long vueBuildWaitTimeoutSeconds = 300;
+
+    /**
+     * 生成流输出预算（key 为生成类型 value），超出时中止模型请求并将本轮对话标记为失败，未配置的类型不检查
+     */
+    private Map<String, OutputBudget> outputBudgets = new HashMap<>(Map.of(
+            CodeGenTypeEnum.HTML.getValue(), new OutputBudget(4, 64, 200),
+            CodeGenTypeEnum.MULTI_FILE.getValue(), new OutputBudget(6, 96, 200),
+            CodeGenTypeEnum.VUE_PROJECT.getValue(), new OutputBudget(0, 128, 200)));
+
+    /**
+     * 获取生成类型的输出预算
+     *
+     * @return 未配置时返回 null
+     */
+    public OutputBudget getOutputBudget(CodeGenTypeEnum codeGenTypeEnum) {
+        return outputBudgets.get(codeGenTypeEnum.getValue());
+    }
+
+    /**
+     * 单个生成类型的输出预算，各项为 0 表示不检查
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class OutputBudget {
+
+        /**
+         * 输出超过该长度（KB，按字符数计）仍没有出现开始代码围栏即中止（Vue 工程模式通过工具写文件，不检查）
+         */
+        private int fenceWithinKb;
+
+        /**
+         * 输出总长度上限（KB，按字符数计）
+         */
+        private int maxOutputKb;
+
+        /**
+         * 连续重复的行数上限（单行重复或多行循环）
+         */
+        private int maxRepeatedLines;
+    }
+}
@@ -0,0 +1,82 @@
+package com.hex.ailowcode.config;
+
+import cn.hutool.core.util.StrUtil;
+import com.hex.ailowcode.constant.AppConstant;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * nginx 配置片段生成
+ *
+ * 配置了 code-gen.nginx-snippet-path 时，启动后生成部署站点的 server 配置片段（部署根目录取自当前节点），
+ * 包含 gzip_static（直接返回部署时生成的 .gz 文件）和 open_file_cache，在 nginx.conf 的 http 块中 include 即可
+ */
+@Slf4j
+@Configuration
+public class NginxSnippetConfig {
+
+    private static final String SNIPPET_TEMPLATE = """
+            # 由应用启动时生成，请勿手动修改
+            server {
+                listen       80;
+                server_name  localhost;
+                charset      utf-8;
+                charset_types text/css application/javascript text/plain text/xml application/json;
+
+                root         {};
+
+                # 部署时已生成 .gz 预压缩文件，直接返回，不再逐个请求压缩
+                gzip_static  on;
+                gzip_vary    on;
+
+                # 缓存文件句柄和元数据；部署通过切换目录链接发布，缓存校验间隔即新版本最长的生效延迟
+                open_file_cache          max=10000 inactive=60s;
+                open_file_cache_valid    10s;
+                open_file_cache_min_uses 2;
+                open_file_cache_errors   on;
+
+                # 禁止访问隐藏目录（.versions 版本目录）
+                location ~ /\\. {
+                    deny all;
+                }
+
+                location ~ ^/([^/]+)$ {
+                    return 301 /$1/;
+                }
+
+                location ~ ^/([^/]+)/(.*)$ {
+                    try_files /$1/$2 /$1/index.html =404;
+                }
+            }
+            """;
+
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void writeNginxSnippet() {
+        String snippetPath = codeGenProperties.getNginxSnippetPath();
+        if (StrUtil.isBlank(snippetPath)) {
+            return;
+        }
+        String deployRoot = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR).toAbsolutePath().normalize().toString().replace('\\', '/');
+        try {
+            Path snippetFile = Path.of(snippetPath);
+            if (snippetFile.getParent() != null) {
+                Files.createDirectories(snippetFile.getParent());
+            }
+            Files.writeString(snippetFile, StrUtil.format(SNIPPET_TEMPLATE, deployRoot), StandardCharsets.UTF_8);
+            log.info("已生成 nginx 配置片段: {}", snippetFile.toAbsolutePath());
+        } catch (IOException e) {
+            log.error("生成 nginx 配置片段失败: {}", e.getMessage());
+        }
+    }
+}
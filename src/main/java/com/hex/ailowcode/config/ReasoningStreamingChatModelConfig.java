@@ -1,5 +1,6 @@
 package com.hex.ailowcode.config;
 
+import com.hex.ailowcode.ai.http.CancellableHttpClientBuilder;
 import com.hex.ailowcode.monitor.AiModelMonitorListener;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
@@ -35,6 +36,7 @@ public class ReasoningStreamingChatModelConfig {
         // final int maxTokens = 32768;
         return OpenAiStreamingChatModel.builder().apiKey(apiKey).baseUrl(baseUrl).modelName(modelName)
                 .maxTokens(maxTokens).logRequests(true).logResponses(true)
+                .httpClientBuilder(new CancellableHttpClientBuilder()) // 客户端断开后可中止模型请求
                 .listeners(List.of(aiModelMonitorListener)) // 监听器 监控ai调用并触发指标收集
                 .build();
     }
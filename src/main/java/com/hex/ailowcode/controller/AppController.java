@@ -1,11 +1,15 @@
 package com.hex.ailowcode.controller;
 
-import cn.hutool.json.JSONUtil;
+import cn.hutool.core.util.StrUtil;
 import com.hex.ailowcode.annotation.AuthCheck;
 import com.hex.ailowcode.common.BaseResponse;
 import com.hex.ailowcode.common.DeleteRequest;
 import com.hex.ailowcode.common.ResultUtils;
+import com.hex.ailowcode.config.CodeGenProperties;
 import com.hex.ailowcode.constant.UserConstant;
+import com.hex.ailowcode.core.stream.ChunkCoalescer;
+import com.hex.ailowcode.core.stream.GenerationStreamRegistry;
+import com.hex.ailowcode.core.stream.StreamEvent;
 import com.hex.ailowcode.exception.BusinessException;
 import com.hex.ailowcode.exception.ErrorCode;
 import com.hex.ailowcode.exception.ThrowUtils;
@@ -13,10 +17,14 @@ import com.hex.ailowcode.model.dto.ai.*;
 import com.hex.ailowcode.model.entity.App;
 import com.hex.ailowcode.model.entity.User;
 import com.hex.ailowcode.model.vo.AppVO;
+import com.hex.ailowcode.model.vo.AppBuildStatusVO;
+import com.hex.ailowcode.model.vo.AppVersionDiffVO;
+import com.hex.ailowcode.model.vo.AppVersionVO;
 import com.hex.ailowcode.ratelimiter.annotation.RateLimit;
 import com.hex.ailowcode.ratelimiter.enums.RateLimitType;
 import com.hex.ailowcode.service.AppService;
 import com.hex.ailowcode.service.UserService;
+import com.hex.ailowcode.utils.SsePayloadEncoder;
 import com.mybatisflex.core.paginate.Page;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
@@ -27,8 +35,9 @@ import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Map;
+import java.util.List;
 
 /**
  * 应用接口
@@ -44,6 +53,12 @@ public class AppController {
     @Resource
     private UserService userService;
 
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    @Resource
+    private GenerationStreamRegistry generationStreamRegistry;
+
     // ==================== 增删改接口 ====================
 
     /**
@@ -152,36 +167,100 @@ public class AppController {
 
     /**
      * 根据提示词生成代码（流式输出）
+     * 每个事件带有 id（{streamId}-{seq}），浏览器断线重连时会通过 Last-Event-ID 请求头带回，
+     * 此时直接从生成流的重放缓冲区续传，不会重新调用 AI
      *
-     * @param appId   应用 ID
-     * @param message 用户消息
-     * @param request 请求
+     * @param appId       应用 ID
+     * @param message     用户消息
+     * @param lastEventId 断线重连时浏览器带回的最后一个事件 ID
+     * @param request     请求
      * @return SSE 流式响应
      */
     // 自定义限流注解
     @RateLimit(limitType = RateLimitType.USER, rate = 5, rateInterval = 60, message = "AI 对话请求过于频繁，请稍后再试")
     @GetMapping(value = "/chat/genCode", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId, @RequestParam String message,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
                                                        HttpServletRequest request) {
         if (appId == null || appId <= 0) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "应用 id 错误");
         }
         User loginUser = userService.getLoginUser(request);
-        // 1. 调用 Service 获取 AI 生成的流式代码内容
-        Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser);
+        Flux<StreamEvent> eventFlux;
+        if (StrUtil.isNotBlank(lastEventId)) {
+            // 0. 断线重连：从已有的生成流续传错过的事件和实时尾部
+            eventFlux = generationStreamRegistry.resume(lastEventId, appId, loginUser.getId());
+        } else {
+            // 1. 调用 Service 获取 AI 生成的流式代码内容
+            Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser);
+            // 1.1 按时间/大小窗口合并小 chunk，减少 SSE 写入和 flush 次数
+            contentFlux = ChunkCoalescer.coalesce(contentFlux, Duration.ofMillis(codeGenProperties.getSseFlushIntervalMs()),
+                    codeGenProperties.getSseFlushMaxChars());
+            // 1.2 登记为可重放的生成流
+            eventFlux = generationStreamRegistry.register(appId, loginUser.getId(), contentFlux).subscribe(-1);
+        }
         // 2. 将每个代码块包装成 SSE 格式，并在流结束后发送完成信号
-        return contentFlux.map(chunk -> {
-            // 2.1 将内容包装成 {"d": "代码内容"} 格式，防止空格丢失
-            Map<String, String> wrapper = Map.of("d", chunk);
-            // 2.2 转成 JSON 字符串
-            String jsonData = JSONUtil.toJsonStr(wrapper);
-            // 2.3 构建 SSE: data: {"d":"..."}
-            return ServerSentEvent.<String>builder().data(jsonData).build();
+        return eventFlux.map(event -> {
+            // 2.1 将内容编码成 {"d": "代码内容"} 格式的 JSON 字符串，防止空格丢失（直接转义写入复用缓冲区，不创建 Map）
+            String jsonData = SsePayloadEncoder.encode(event.getData());
+            // 2.2 构建 SSE: id: {streamId}-{seq}\ndata: {"d":"..."}
+            return ServerSentEvent.<String>builder().id(event.getEventId()).data(jsonData).build();
         }).concatWith(Mono.just(
-                // 2.4 流结束后发送完成事件: event: done\ndata:\n\n
+                // 2.3 流结束后发送完成事件: event: done\ndata:\n\n
                 ServerSentEvent.<String>builder().event("done").data("").build()));
     }
 
+    // ==================== 版本接口 ====================
+
+    /**
+     * 获取应用的生成版本列表（新版本在前）
+     *
+     * @param appId   应用 id
+     * @param request 请求
+     * @return 版本列表
+     */
+    @GetMapping("/version/list")
+    public BaseResponse<List<AppVersionVO>> listAppVersions(@RequestParam Long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(appService.listAppVersions(appId, loginUser));
+    }
+
+    /**
+     * 比较应用两个生成版本之间的文件差异
+     *
+     * @param appId       应用 id
+     * @param fromVersion 起始版本号
+     * @param toVersion   目标版本号
+     * @param request     请求
+     * @return 文件差异
+     */
+    @GetMapping("/version/diff")
+    public BaseResponse<AppVersionDiffVO> diffAppVersions(@RequestParam Long appId, @RequestParam Integer fromVersion,
+                                                          @RequestParam Integer toVersion, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(appService.diffAppVersions(appId, fromVersion, toVersion, loginUser));
+    }
+
+    /**
+     * 把应用回滚到指定生成版本（只替换有变化的文件，不调用 AI）
+     *
+     * @param appVersionRestoreRequest 回滚请求
+     * @param request                  请求
+     * @return 回滚后的版本号
+     */
+    @PostMapping("/version/restore")
+    public BaseResponse<Integer> restoreAppVersion(@RequestBody AppVersionRestoreRequest appVersionRestoreRequest,
+                                                   HttpServletRequest request) {
+        ThrowUtils.throwIf(appVersionRestoreRequest == null, ErrorCode.PARAMS_ERROR);
+        Long appId = appVersionRestoreRequest.getAppId();
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        Integer version = appService.restoreAppVersion(appId, appVersionRestoreRequest.getVersion(), loginUser);
+        return ResultUtils.success(version);
+    }
+
     // ==================== 管理员接口 ====================
 
     /**
@@ -265,4 +344,18 @@ public class AppController {
         // 返回部署 URL
         return ResultUtils.success(deployUrl);
     }
+
+    /**
+     * 获取应用部署构建的排队位置和预计耗时（Vue 工程部署需要排队构建）
+     *
+     * @param appId   应用 id
+     * @param request 请求
+     * @return 构建状态，没有排队或执行中的构建时为 null
+     */
+    @GetMapping("/build/status")
+    public BaseResponse<AppBuildStatusVO> getAppBuildStatus(@RequestParam Long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(appService.getAppBuildStatus(appId, loginUser));
+    }
 }
\ No newline at end of file
@@ -1,20 +1,39 @@
 package com.hex.ailowcode.core;
 
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.hex.ailowcode.ai.AiCodeGeneratorService;
 import com.hex.ailowcode.ai.AiCodeGeneratorServiceFactory;
+import com.hex.ailowcode.ai.cache.GenerationResponseCache;
+import com.hex.ailowcode.ai.http.StreamCancellation;
 import com.hex.ailowcode.ai.model.HtmlCodeResult;
 import com.hex.ailowcode.ai.model.MultiFileCodeResult;
+import com.hex.ailowcode.config.CodeGenProperties;
+import com.hex.ailowcode.core.parser.CodeBlockListener;
 import com.hex.ailowcode.core.parser.CodeParserExecutor;
+import com.hex.ailowcode.core.parser.StreamingCodeParser;
 import com.hex.ailowcode.core.saver.CodeFileSaverExecutor;
+import com.hex.ailowcode.core.saver.StreamingCodeFileSaver;
+import com.hex.ailowcode.core.saver.VirtualProject;
+import com.hex.ailowcode.core.saver.VirtualProjectManager;
+import com.hex.ailowcode.core.stream.ChunkLedgerManager;
+import com.hex.ailowcode.core.stream.CompletionTaskExecutor;
+import com.hex.ailowcode.core.stream.GenerationFlight;
+import com.hex.ailowcode.core.stream.OutputBudgetGuard;
 import com.hex.ailowcode.exception.BusinessException;
 import com.hex.ailowcode.exception.ErrorCode;
 import com.hex.ailowcode.model.enums.CodeGenTypeEnum;
+import com.hex.ailowcode.monitor.AiModelMetricsCollector;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 门面设计模式：组合代码生成(aiCodeGeneratorService)+保存(CodeFileSaver)
@@ -30,6 +49,29 @@ public class AiCodeGeneratorFacade {
     @Resource
     private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    @Resource
+    private AiModelMetricsCollector aiModelMetricsCollector;
+
+    @Resource
+    private CompletionTaskExecutor completionTaskExecutor;
+
+    @Resource
+    private GenerationResponseCache generationResponseCache;
+
+    @Resource
+    private VirtualProjectManager virtualProjectManager;
+
+    @Resource
+    private ChunkLedgerManager chunkLedgerManager;
+
+    /**
+     * 进行中的生成：appId:生成类型:提示词MD5 -> 单飞生成
+     */
+    private final ConcurrentMap<String, GenerationFlight> inFlightGenerations = new ConcurrentHashMap<>();
+
     /**
      * 统一入口：根据类型生成并保存代码
      *
@@ -68,58 +110,174 @@ public class AiCodeGeneratorFacade {
      * @return 保存的目录
      */
     public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+        return Flux.using(() -> joinGeneration(userMessage, codeGenTypeEnum, appId), GenerationFlight::stream,
+                GenerationFlight::release);
+    }
+
+    /**
+     * （流式版本）统一入口：加入一次生成，调用方通过 GenerationFlight.stream 订阅，
+     * 流结束后通过 GenerationFlight.getResponse 读取完整响应，用完必须调用 GenerationFlight.release
+     *
+     * 单飞（single-flight）：同一应用、同一生成类型、同一提示词的生成正在进行时（双击、多标签页），
+     * 重复请求不会再调用 AI，而是作为额外订阅者挂到进行中的生成上（从共享账本重放已经生成的内容），
+     * 也避免了多个流同时写同一个输出目录
+     *
+     * @param userMessage     用户提示词
+     * @param codeGenTypeEnum 生成类型
+     * @param appId           应用 ID
+     * @return 已持有的单飞生成
+     */
+    public GenerationFlight joinGeneration(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "生成类型不能为空");
         }
+        String flightKey = StrUtil.format("{}:{}:{}", appId, codeGenTypeEnum.getValue(), DigestUtil.md5Hex(userMessage));
+        while (true) {
+            boolean[] isLeader = {false};
+            GenerationFlight flight = inFlightGenerations.computeIfAbsent(flightKey, key -> {
+                isLeader[0] = true;
+                // 账本属于 flight，计入内存预算，所有订阅者共用
+                return new GenerationFlight(chunkLedgerManager.create(),
+                        self -> doGenerateAndSaveCodeStream(userMessage, codeGenTypeEnum, appId, self),
+                        self -> inFlightGenerations.remove(key, self));
+            });
+            if (flight.retain()) {
+                if (!isLeader[0]) {
+                    // 重复请求：复用进行中的生成，读取同一份账本保存对话历史
+                    log.info("复用进行中的生成流，appId: {}, 生成类型: {}", appId, codeGenTypeEnum.getValue());
+                    aiModelMetricsCollector.recordSingleFlightHit(appId.toString(), codeGenTypeEnum.getValue());
+                }
+                return flight;
+            }
+            // 刚刚结束的生成还没有从进行中表移除，移除后重试
+            inFlightGenerations.remove(flightKey, flight);
+        }
+    }
+
+    /**
+     * 根据类型调用 AI 生成代码流，并接入解析和保存流程
+     */
+    private Flux<String> doGenerateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId,
+                                                     GenerationFlight flight) {
+        // 首轮生成命中响应缓存时直接重放缓存的输出，不调用模型
+        String cacheKey = generationResponseCache.resolveKey(userMessage, codeGenTypeEnum, appId);
+        if (cacheKey != null) {
+            String cachedResponse = generationResponseCache.get(cacheKey, codeGenTypeEnum);
+            if (cachedResponse != null) {
+                log.info("命中首轮生成响应缓存，appId: {}, 生成类型: {}", appId, codeGenTypeEnum.getValue());
+                // 本轮对话没有经过模型，移除 AI Service 实例以便下次从数据库重新加载对话记忆
+                aiCodeGeneratorServiceFactory.invalidateAiCodeGeneratorService(appId);
+                return processCodeStream(generationResponseCache.replay(cachedResponse), codeGenTypeEnum, appId, flight, null);
+            }
+        }
         // 根据 appId 获取相应的 AI Service实例
         AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
-        return switch (codeGenTypeEnum) {
+        // 取消令牌：下游取消（客户端断开）时中止进行中的模型请求
+        StreamCancellation cancellation = new StreamCancellation();
+        // 输出预算：模型跑题或陷入循环时提前中止
+        CodeGenProperties.OutputBudget outputBudget = codeGenProperties.getOutputBudget(codeGenTypeEnum);
+        OutputBudgetGuard budgetGuard = outputBudget != null ? new OutputBudgetGuard(codeGenTypeEnum.getValue(), outputBudget) : null;
+        Flux<String> resultStream = switch (codeGenTypeEnum) {
             case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
+                Flux<String> codeStream = cancellation.callWithin(() -> aiCodeGeneratorService.generateHtmlCodeStream(userMessage));
+                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId, flight, budgetGuard);
             }
             case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
+                Flux<String> codeStream = cancellation.callWithin(() -> aiCodeGeneratorService.generateMultiFileCodeStream(userMessage));
+                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId, flight, budgetGuard);
             }
             case VUE_PROJECT -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
+                // 本轮工具写入的文件先缓冲在内存中，生成成功结束后一次性发布，失败或取消时丢弃
+                VirtualProject virtualProject = virtualProjectManager.begin(appId);
+                Flux<String> codeStream = cancellation.callWithin(() -> aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage));
+                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId, flight, budgetGuard)
+                        .concatWith(completionTaskExecutor.execute("vue_project_flush",
+                                () -> virtualProjectManager.flush(appId, virtualProject)).then(Mono.empty()))
+                        .doFinally(signalType -> virtualProjectManager.release(appId, virtualProject));
             }
             default -> {
                 String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
                 throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
             }
         };
+        return resultStream.doOnComplete(() -> {
+            // 首轮生成完整结束后写入响应缓存
+            if (cacheKey != null) {
+                generationResponseCache.put(cacheKey, flight.getResponse());
+            }
+        }).doOnError(error -> {
+            // 超出输出预算等错误会取消上游订阅，但 Flux 适配器不会因此中止模型请求，需要显式取消
+            cancellation.cancel();
+        }).doOnCancel(() -> {
+            log.info("生成流已取消，中止模型请求，appId: {}", appId);
+            cancellation.cancel();
+        });
     }
 
     /**
      * 处理ai流式返回的工具方法
-     * 收集小块并实时拼接->解析parser->保存saver
+     * 收集小块的同时交给流式解析器增量解析 -> 开启流式保存时每个代码块闭合即发布文件 -> 否则流结束后在收尾执行器上组装结果并保存saver
      *
      * @param codeStream  ai返回的需要处理的数据流
      * @param codeGenType 代码生成类型
      * @param appId 生成的应用Id
+     * @param flight 所属的单飞生成，chunk 在解析前追加到它的共享账本，解析出的代码块是账本上的视图；没有识别到代码围栏时读取完整响应回退到整段解析
+     * @param budgetGuard 输出预算检查，超出时以错误结束流（取消上游），为 null 时不检查
      * @return 流式响应
      */
-    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
-        // 字符串拼接器，用于当流式返回所有的代码之后，再保存代码
-        StringBuilder codeBuilder = new StringBuilder();
+    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId,
+                                           GenerationFlight flight, OutputBudgetGuard budgetGuard) {
+        // 流式保存会话：代码块边生成边写入暂存的版本目录，每个代码块闭合后原子发布到预览目录
+        StreamingCodeFileSaver streamingSaver = codeGenProperties.isStreamingSave()
+                ? CodeFileSaverExecutor.executeStreamingSaver(codeGenType, appId) : null;
+        CodeBlockListener blockListener = streamingSaver != null ? streamingSaver : codeBlock ->
+                log.info("代码块解析完成，appId: {}, 语言: {}, 长度: {}", appId, codeBlock.getLanguage(),
+                        codeBlock.getContent().length());
+        // 流式解析器：每个围栏闭合时立即产生一个代码块（共享账本上的视图），无需等待流结束
+        StreamingCodeParser streamingParser = new StreamingCodeParser(flight.ledger(), blockListener);
         return codeStream.doOnNext(chunk -> {
-            // 实时收集代码片段
-            codeBuilder.append(chunk);
-        }).doOnComplete(() -> {
-            // 流式返回完成后，保存代码
+            // 片段先追加到共享账本（只追加一次），再增量解析
+            flight.record(chunk);
+            streamingParser.feed(chunk);
+            if (budgetGuard != null) {
+                boolean fenceOpened = streamingParser.isInsideBlock() || !streamingParser.getCompletedBlocks().isEmpty();
+                OutputBudgetGuard.Reason reason = budgetGuard.feed(chunk, fenceOpened);
+                if (reason != null) {
+                    log.warn("生成内容超出输出预算，中止生成，appId: {}, 原因: {}, 已输出字符数: {}", appId, reason.getValue(),
+                            budgetGuard.getOutputChars());
+                    aiModelMetricsCollector.recordOutputBudgetExceeded(appId.toString(), budgetGuard.getCodeGenType(),
+                            reason.getValue(), budgetGuard.getOutputChars());
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "生成已中止：" + reason.getText());
+                }
+            }
+        }).concatWith(completionTaskExecutor.execute("code_save", () -> {
+            // 流式保存已经随代码块发布了入口文件，无需再整体保存一次
+            if (streamingSaver != null && streamingSaver.isCompleted("index.html")) {
+                File saveDir = streamingSaver.finish().toFile();
+                log.info("流式保存完成，目录为：{}", saveDir.getAbsolutePath());
+                return;
+            } else if (streamingSaver != null) {
+                streamingSaver.abort();
+            }
+            // 流式返回完成后，保存代码（在收尾执行器的虚拟线程上执行，不占用上游 I/O 线程）
             try {
-                String completeCode = codeBuilder.toString();
-                // 解析代码
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
+                // 优先使用流式解析好的代码块
+                Object parsedResult = CodeParserExecutor.executeParser(streamingParser.getCompletedBlocks(), codeGenType);
+                if (parsedResult == null) {
+                    // 没有识别到可用的代码块，回退到整段解析
+                    parsedResult = CodeParserExecutor.executeParser(flight.getResponse(), codeGenType);
+                }
                 // 保存代码
                 File saveDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
                 log.info("保存成功，目录为：{}", saveDir.getAbsolutePath());
             } catch (Exception e) {
                 log.error("保存失败: {}", e.getMessage());
             }
+        }).then(Mono.empty())).doFinally(signalType -> {
+            // 流异常结束或被取消时，删除未发布的暂存区
+            if (streamingSaver != null && signalType != SignalType.ON_COMPLETE) {
+                streamingSaver.abort();
+            }
         });
     }
-}
\ No newline at end of file
+}
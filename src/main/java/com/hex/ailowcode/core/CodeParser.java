@@ -14,9 +14,13 @@ import java.util.regex.Pattern;
  */
 public class CodeParser {
 
-    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    /**
+     * 标签后只匹配到第一个换行（占有量词，不回溯）：原来的 \s*\n 会吞掉后面所有空行再逐个回溯，
+     * 围栏未闭合时每次回溯都要把惰性匹配扫描到文末，耗时随空行数平方增长；代码内容最终都会 trim，结果不变
+     */
+    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html[ \\t\\x0B\\f\\r]*+\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css[ \\t\\x0B\\f\\r]*+\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)[ \\t\\x0B\\f\\r]*+\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
 
     /**
      * 解析 HTML 单文件代码
@@ -0,0 +1,426 @@
+package com.hex.ailowcode.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.hex.ailowcode.config.CodeGenProperties;
+import com.hex.ailowcode.constant.AppConstant;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Vue 工程依赖模板
+ *
+ * 生成的项目都来自同一个脚手架，依赖基本相同。按依赖集合（dependencies + devDependencies 的 名称@版本范围）的哈希
+ * 维护预先安装好的模板 {CODE_OUTPUT_ROOT_DIR}/.dep-templates/{哈希}/node_modules：
+ * 1. 构建时找到覆盖项目全部依赖的模板，以硬链接的形式镜像到项目的 node_modules（目录为实体目录，文件为硬链接），不执行 npm install
+ * 2. 项目引入了模板之外的依赖时，为项目的依赖集合安装一个新模板（只安装一次，之后相同依赖集合的项目直接链接）
+ * 3. 启动后预热脚手架的依赖集合（resources/vue-template/package.json，与 Vue 工程系统提示词中的 package.json 保持一致）
+ * 4. 每次链接时刷新模板的最近使用时间，安装新模板后删除超出数量上限或长期没有使用的模板（最久没有使用的先删除）
+ *
+ * 退回 npm install 前必须删除项目中镜像自模板的 node_modules：其中的文件是模板的硬链接，npm 原地写入会破坏所有项目共用的模板
+ *
+ * 使用硬链接而不是符号链接：删除项目目录（包括会跟随符号链接的递归删除）不会影响模板，
+ * 构建工具在 node_modules 下新建的缓存文件也只写入项目自己的目录
+ */
+@Slf4j
+@Component
+public class DependencyTemplateManager {
+
+    private static final String TEMPLATES_DIR = ".dep-templates";
+
+    private static final String NODE_MODULES_DIR = "node_modules";
+
+    /**
+     * 模板目录中记录依赖集合的文件，安装完成后最后写入，存在即表示模板完整
+     */
+    private static final String DEPENDENCIES_FILE = "dependencies.json";
+
+    /**
+     * 项目 node_modules 中记录来源模板的文件
+     */
+    private static final String MARKER_FILE = ".dep-template";
+
+    /**
+     * 脚手架 package.json（预热用）
+     */
+    private static final String SCAFFOLD_PACKAGE_JSON = "vue-template/package.json";
+
+    private static final Path TEMPLATE_ROOT = Path.of(AppConstant.CODE_OUTPUT_ROOT_DIR, TEMPLATES_DIR);
+
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    private final Path templateRoot;
+
+    /**
+     * 已安装的模板：哈希 -> 依赖集合
+     */
+    private final ConcurrentMap<String, SortedMap<String, String>> templates = new ConcurrentHashMap<>();
+
+    /**
+     * 模板读写锁：安装和删除模板持有写锁（同一依赖集合的模板只安装一次），镜像到项目持有读锁
+     */
+    private final ConcurrentMap<String, ReadWriteLock> templateLocks = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    public DependencyTemplateManager() {
+        this(TEMPLATE_ROOT);
+    }
+
+    DependencyTemplateManager(Path templateRoot) {
+        this.templateRoot = templateRoot;
+    }
+
+    /**
+     * 启动后在后台预热脚手架的依赖模板
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        if (!codeGenProperties.isVueDependencyTemplateEnabled() || !codeGenProperties.isVueDependencyTemplatePrewarm()) {
+            return;
+        }
+        Thread.ofVirtual().name("vue-dep-template-prewarm").start(() -> {
+            try {
+                JSONObject scaffold = JSONUtil.parseObj(ResourceUtil.readUtf8Str(SCAFFOLD_PACKAGE_JSON));
+                String key = prepareTemplate(readDependencies(scaffold));
+                // 重启前留下的长期没有使用的模板
+                evictTemplates(key);
+            } catch (Exception e) {
+                log.error("预热 Vue 依赖模板失败: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 为项目准备 node_modules：链接覆盖项目全部依赖的模板，没有时先为项目的依赖集合安装模板
+     *
+     * @param projectDir 项目目录（已包含 package.json）
+     * @return 是否已准备好，返回 false 时调用方应在项目中执行 npm install
+     */
+    public boolean linkDependencies(File projectDir) {
+        Path nodeModules = projectDir.toPath().resolve(NODE_MODULES_DIR);
+        if (!codeGenProperties.isVueDependencyTemplateEnabled()) {
+            unlinkTemplate(nodeModules);
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            SortedMap<String, String> dependencies = readDependencies(
+                    JSONUtil.parseObj(FileUtil.readUtf8String(new File(projectDir, "package.json"))));
+            String key = findTemplate(dependencies);
+            if (key == null) {
+                key = prepareTemplate(dependencies);
+                if (key == null) {
+                    unlinkTemplate(nodeModules);
+                    return false;
+                }
+            }
+            Lock lock = lockFor(key).readLock();
+            lock.lock();
+            try {
+                Path templateDir = templateRoot.resolve(key);
+                if (!Files.isDirectory(templateDir)) {
+                    // 模板刚刚被删除
+                    templates.remove(key);
+                    unlinkTemplate(nodeModules);
+                    return false;
+                }
+                touch(templateDir);
+                if (isLinkedTo(nodeModules, key)) {
+                    log.info("项目依赖已链接到模板 {}，跳过 npm install", key);
+                    return true;
+                }
+                if (Files.exists(nodeModules, LinkOption.NOFOLLOW_LINKS)) {
+                    FileUtil.del(nodeModules.toFile());
+                }
+                mirror(templateDir.resolve(NODE_MODULES_DIR), nodeModules);
+                Files.writeString(nodeModules.resolve(MARKER_FILE), key, StandardCharsets.UTF_8);
+            } finally {
+                lock.unlock();
+            }
+            log.info("项目依赖已链接到模板 {}，耗时 {} ms", key, System.currentTimeMillis() - start);
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            // 文件系统不支持硬链接等情况：清理链接了一半的目录（还没有写入标记文件），退回到 npm install
+            log.warn("链接依赖模板失败，改为执行 npm install: {}", e.getMessage());
+            FileUtil.del(nodeModules.toFile());
+            return false;
+        } catch (RuntimeException e) {
+            // package.json 格式错误等
+            log.warn("读取项目依赖失败，改为执行 npm install: {}", e.getMessage());
+            unlinkTemplate(nodeModules);
+            return false;
+        }
+    }
+
+    /**
+     * 删除超出数量上限或长期没有使用的模板，最久没有使用的先删除
+     *
+     * @param keepKey 不删除的模板（刚刚安装的）
+     * @return 删除的模板数
+     */
+    int evictTemplates(String keepKey) {
+        loadTemplates();
+        int maxCount = codeGenProperties.getVueDependencyTemplateMaxCount();
+        long maxIdleDays = codeGenProperties.getVueDependencyTemplateMaxIdleDays();
+        Instant idleBefore = maxIdleDays > 0 ? Instant.now().minus(Duration.ofDays(maxIdleDays)) : Instant.MIN;
+        // 按最近使用时间从旧到新
+        List<Map.Entry<String, Instant>> byLastUsed = new ArrayList<>();
+        for (String key : templates.keySet()) {
+            byLastUsed.add(Map.entry(key, lastUsed(templateRoot.resolve(key))));
+        }
+        byLastUsed.sort(Map.Entry.comparingByValue());
+        int remaining = byLastUsed.size();
+        int evicted = 0;
+        for (Map.Entry<String, Instant> template : byLastUsed) {
+            boolean overCount = maxCount > 0 && remaining > maxCount;
+            if (template.getKey().equals(keepKey) || (!overCount && !template.getValue().isBefore(idleBefore))) {
+                continue;
+            }
+            // 正在镜像或安装的模板跳过，下次再删除
+            Lock lock = lockFor(template.getKey()).writeLock();
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                templates.remove(template.getKey());
+                FileUtil.del(templateRoot.resolve(template.getKey()).toFile());
+            } finally {
+                lock.unlock();
+            }
+            log.info("删除依赖模板: {}, 最近使用: {}", template.getKey(), template.getValue());
+            remaining--;
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * 删除项目中镜像自模板的 node_modules（有标记文件），项目自己 npm install 安装的依赖保留
+     */
+    private static void unlinkTemplate(Path nodeModules) {
+        if (Files.exists(nodeModules.resolve(MARKER_FILE), LinkOption.NOFOLLOW_LINKS)) {
+            log.info("删除镜像自依赖模板的 node_modules: {}", nodeModules);
+            FileUtil.del(nodeModules.toFile());
+        }
+    }
+
+    private ReadWriteLock lockFor(String key) {
+        return templateLocks.computeIfAbsent(key, k -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * 刷新模板的最近使用时间（记录在依赖集合文件的修改时间上）
+     */
+    private static void touch(Path templateDir) {
+        try {
+            Files.setLastModifiedTime(templateDir.resolve(DEPENDENCIES_FILE), FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("刷新依赖模板使用时间失败: {}", e.getMessage());
+        }
+    }
+
+    private static Instant lastUsed(Path templateDir) {
+        try {
+            return Files.getLastModifiedTime(templateDir.resolve(DEPENDENCIES_FILE)).toInstant();
+        } catch (IOException e) {
+            return Instant.MIN;
+        }
+    }
+
+    /**
+     * 查找覆盖全部依赖（名称和版本范围都相同）的模板，有多个时选择依赖最少的
+     *
+     * @return 模板哈希，没有时返回 null
+     */
+    private String findTemplate(SortedMap<String, String> dependencies) {
+        loadTemplates();
+        String best = null;
+        int bestSize = Integer.MAX_VALUE;
+        for (Map.Entry<String, SortedMap<String, String>> template : templates.entrySet()) {
+            SortedMap<String, String> templateDependencies = template.getValue();
+            if (templateDependencies.size() < bestSize && templateDependencies.entrySet().containsAll(dependencies.entrySet())) {
+                best = template.getKey();
+                bestSize = templateDependencies.size();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 为依赖集合安装模板（已存在时直接返回）：在临时目录中执行 npm install，完成后原子移动到模板目录
+     *
+     * @return 模板哈希，安装失败时返回 null
+     */
+    private String prepareTemplate(SortedMap<String, String> dependencies) throws IOException {
+        String key = hash(dependencies);
+        Lock lock = lockFor(key).writeLock();
+        lock.lock();
+        try {
+            loadTemplates();
+            if (templates.containsKey(key)) {
+                return key;
+            }
+            long start = System.currentTimeMillis();
+            Files.createDirectories(templateRoot);
+            Path tempDir = templateRoot.resolve(".tmp-" + IdUtil.fastSimpleUUID());
+            try {
+                Files.createDirectories(tempDir);
+                JSONObject packageJson = JSONUtil.createObj()
+                        .set("name", "dep-template-" + key)
+                        .set("private", true)
+                        .set("dependencies", dependencies);
+                Files.writeString(tempDir.resolve("package.json"), packageJson.toStringPretty(), StandardCharsets.UTF_8);
+                if (!NpmCommands.install(tempDir.toFile())) {
+                    log.error("安装依赖模板失败: {}", dependencies);
+                    return null;
+                }
+                Files.writeString(tempDir.resolve(DEPENDENCIES_FILE), JSONUtil.toJsonStr(dependencies), StandardCharsets.UTF_8);
+                Path templateDir = templateRoot.resolve(key);
+                if (!Files.exists(templateDir)) {
+                    Files.move(tempDir, templateDir, StandardCopyOption.ATOMIC_MOVE);
+                }
+                templates.put(key, dependencies);
+                log.info("依赖模板安装完成: {}, 依赖 {} 个, 耗时 {} ms", key, dependencies.size(), System.currentTimeMillis() - start);
+                evictTemplates(key);
+                return key;
+            } finally {
+                if (Files.exists(tempDir)) {
+                    FileUtil.del(tempDir.toFile());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 第一次使用时加载磁盘上已安装的模板
+     */
+    private void loadTemplates() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (Files.isDirectory(templateRoot)) {
+                try (Stream<Path> dirs = Files.list(templateRoot)) {
+                    dirs.filter(dir -> Files.isRegularFile(dir.resolve(DEPENDENCIES_FILE))).forEach(dir -> {
+                        JSONObject saved = JSONUtil.parseObj(FileUtil.readUtf8String(dir.resolve(DEPENDENCIES_FILE).toFile()));
+                        SortedMap<String, String> dependencies = new TreeMap<>();
+                        saved.forEach((name, version) -> dependencies.put(name, String.valueOf(version)));
+                        templates.put(dir.getFileName().toString(), dependencies);
+                    });
+                } catch (IOException e) {
+                    log.warn("加载依赖模板失败: {}", e.getMessage());
+                }
+            }
+            log.info("已加载依赖模板 {} 个", templates.size());
+            loaded = true;
+        }
+    }
+
+    /**
+     * 读取 package.json 的依赖集合（dependencies 和 devDependencies 合并，npm install 时都会安装）
+     */
+    private static SortedMap<String, String> readDependencies(JSONObject packageJson) {
+        SortedMap<String, String> dependencies = new TreeMap<>();
+        for (String field : new String[]{"dependencies", "devDependencies"}) {
+            JSONObject section = packageJson.getJSONObject(field);
+            if (section != null) {
+                section.forEach((name, version) -> dependencies.put(name, String.valueOf(version)));
+            }
+        }
+        return dependencies;
+    }
+
+    private static String hash(SortedMap<String, String> dependencies) {
+        StringBuilder source = new StringBuilder();
+        dependencies.forEach((name, version) -> source.append(name).append('@').append(version).append('\n'));
+        return DigestUtil.sha256Hex(source.toString()).substring(0, 16);
+    }
+
+    /**
+     * 项目的 node_modules 是否已经是该模板的完整镜像
+     */
+    private static boolean isLinkedTo(Path nodeModules, String key) throws IOException {
+        Path marker = nodeModules.resolve(MARKER_FILE);
+        return Files.isRegularFile(marker, LinkOption.NOFOLLOW_LINKS)
+                && key.equals(Files.readString(marker, StandardCharsets.UTF_8).strip());
+    }
+
+    /**
+     * 镜像目录树：目录新建，文件创建硬链接
+     * 指向树内的符号链接（如 .bin 下的命令）按原样复制；指向树外的符号链接（file: 依赖）把目标镜像为实体目录，
+     * 避免删除项目时的递归删除跟随链接删掉树外的文件
+     */
+    private static void mirror(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path link = target.resolve(source.relativize(file));
+                if (attrs.isSymbolicLink()) {
+                    Path linkTarget = Files.readSymbolicLink(file);
+                    Path resolved = file.getParent().resolve(linkTarget).normalize();
+                    if (resolved.startsWith(source)) {
+                        Files.createSymbolicLink(link, linkTarget);
+                    } else if (Files.isDirectory(resolved)) {
+                        mirror(resolved.toRealPath(), link);
+                    } else if (Files.exists(resolved)) {
+                        Files.copy(resolved, link);
+                    }
+                } else if (attrs.isRegularFile()) {
+                    try {
+                        Files.createLink(link, file);
+                    } catch (FileSystemException e) {
+                        // 硬链接数达到上限等情况，单个文件退化为复制
+                        Files.copy(file, link, StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
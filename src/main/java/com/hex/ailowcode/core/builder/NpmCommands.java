@@ -0,0 +1,91 @@
+package com.hex.ailowcode.core.builder;
+
+import cn.hutool.core.util.RuntimeUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * npm 命令执行（项目构建和依赖模板安装共用）
+ */
+@Slf4j
+final class NpmCommands {
+
+    private NpmCommands() {
+    }
+
+    /**
+     * 执行 npm install 命令
+     */
+    static boolean install(File projectDir) {
+        log.info("执行 npm install...");
+        String command = String.format("%s install", buildCommand("npm"));
+        return executeCommand(projectDir, command, 300); // 5分钟超时
+    }
+
+    /**
+     * 执行 npm run build 命令
+     */
+    static boolean build(File projectDir) {
+        log.info("执行 npm run build...");
+        String command = String.format("%s run build", buildCommand("npm"));
+        return executeCommand(projectDir, command, 180); // 3分钟超时
+    }
+
+    /**
+     * 根据操作系统构造命令
+     *
+     * @param baseCommand
+     * @return
+     */
+    private static String buildCommand(String baseCommand) {
+        if (isWindows()) {
+            return baseCommand + ".cmd";
+        }
+        return baseCommand;
+    }
+
+    /**
+     * 操作系统检测
+     *
+     * @return
+     */
+    private static boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("windows");
+    }
+
+    /**
+     * 执行命令
+     *
+     * @param workingDir     工作目录
+     * @param command        命令字符串
+     * @param timeoutSeconds 超时时间（秒）
+     * @return 是否执行成功
+     */
+    private static boolean executeCommand(File workingDir, String command, int timeoutSeconds) {
+        try {
+            log.info("在目录 {} 中执行命令: {}", workingDir.getAbsolutePath(), command);
+            Process process = RuntimeUtil.exec(null, workingDir, command.split("\\s+") // 命令分割为数组
+            );
+            // 等待进程完成，设置超时
+            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            if (!finished) {
+                log.error("命令执行超时（{}秒），强制终止进程", timeoutSeconds);
+                process.destroyForcibly();
+                return false;
+            }
+            int exitCode = process.exitValue();
+            if (exitCode == 0) {
+                log.info("命令执行成功: {}", command);
+                return true;
+            } else {
+                log.error("命令执行失败，退出码: {}", exitCode);
+                return false;
+            }
+        } catch (Exception e) {
+            log.error("执行命令失败: {}, 错误信息: {}", command, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.hex.ailowcode.core.builder;
+
+import com.hex.ailowcode.config.CodeGenProperties;
+import com.hex.ailowcode.core.saver.ProjectDirLocks;
+import com.hex.ailowcode.core.saver.ProjectFileIndex;
+import com.hex.ailowcode.exception.BusinessException;
+import com.hex.ailowcode.exception.ErrorCode;
+import com.hex.ailowcode.model.vo.AppBuildStatusVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Vue 工程构建调度器
+ *
+ * 每次构建都会启动 npm / node 进程，突发的部署请求如果各自直接构建会同时拉起大量 Node 进程耗尽内存。这里统一排队：
+ * - 同时执行的构建数不超过 code-gen.vue-build-workers，排队数超过 code-gen.vue-build-max-queue 时拒绝新的构建
+ * - 两个优先级队列：管理员或精选应用的构建先于普通构建
+ * - 同一优先级内按用户轮转：每个用户每轮取一个构建，单个用户的大量部署不会挡住其他用户
+ * - 同一应用排队中的构建合并为一次；同一应用不会同时执行两个构建（共用项目目录）
+ * - 构建期间持有项目目录锁（ProjectDirLocks），在解析出的当前版本目录中构建，发布新版本要等构建结束；
+ *   构建结果返回该版本目录，部署从同一个目录读取 dist，不会读到之后发布的没有 dist 的版本
+ * - 提供排队位置和预计等待时间（按最近构建耗时的指数移动平均估算）
+ *
+ * 指标：
+ * - vue_build_queue_depth：排队中的构建数
+ * - vue_build_active_count：执行中的构建数
+ * - vue_build_wait_duration_seconds：排队耗时（按优先级）
+ * - vue_build_duration_seconds：构建耗时（按结果 success / failed，失败次数即 failed 的计数）
+ * - vue_build_rejected_total：因排队已满被拒绝的构建数
+ */
+@Slf4j
+@Component
+public class VueBuildScheduler {
+
+    /**
+     * 还没有构建耗时样本时预计的单次构建耗时
+     */
+    private static final long INITIAL_BUILD_MILLIS = 60_000;
+
+    /**
+     * 构建耗时指数移动平均的权重
+     */
+    private static final double BUILD_MILLIS_ALPHA = 0.2;
+
+    /**
+     * 构建优先级
+     */
+    public enum BuildPriority {
+
+        /**
+         * 管理员或精选应用
+         */
+        HIGH,
+
+        NORMAL
+    }
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    @Resource
+    private VueProjectBuilder vueProjectBuilder;
+
+    @Resource
+    private ProjectFileIndex projectFileIndex;
+
+    /**
+     * 各优先级的排队：userId -> 该用户的构建（按提交顺序），用户按轮转顺序排列
+     */
+    private final Map<BuildPriority, LinkedHashMap<Long, ArrayDeque<BuildTask>>> lanes = new EnumMap<>(BuildPriority.class);
+
+    /**
+     * 排队中的构建：appId -> 构建
+     */
+    private final Map<Long, BuildTask> queuedTasks = new HashMap<>();
+
+    /**
+     * 执行中的构建：appId -> 构建
+     */
+    private final Map<Long, BuildTask> runningTasks = new HashMap<>();
+
+    private final ConcurrentMap<String, Timer> waitTimersCache = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Timer> buildTimersCache = new ConcurrentHashMap<>();
+
+    private double averageBuildMillis = INITIAL_BUILD_MILLIS;
+
+    private Counter rejectedCounter;
+
+    private ExecutorService executorService;
+
+    @PostConstruct
+    public void init() {
+        for (BuildPriority priority : BuildPriority.values()) {
+            lanes.put(priority, new LinkedHashMap<>());
+        }
+        executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vue-builder-", 0).factory());
+        Gauge.builder("vue_build_queue_depth", this, VueBuildScheduler::getQueueDepth)
+                .description("排队中的 Vue 工程构建数")
+                .register(meterRegistry);
+        Gauge.builder("vue_build_active_count", this, VueBuildScheduler::getActiveCount)
+                .description("执行中的 Vue 工程构建数")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("vue_build_rejected_total")
+                .description("构建排队已满被拒绝的 Vue 工程构建数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 提交构建
+     *
+     * @param appId       应用 ID
+     * @param userId      提交构建的用户 ID（公平排队的单位）
+     * @param projectPath 项目目录
+     * @param priority    优先级
+     * @return 构建结果：成功时为构建所在的版本目录（dist 在其中），失败时为 null；同一应用排队中的构建返回同一个结果
+     */
+    public synchronized CompletableFuture<Path> submit(Long appId, Long userId, String projectPath, BuildPriority priority) {
+        BuildTask queued = queuedTasks.get(appId);
+        if (queued != null && queued.projectPath.equals(projectPath)) {
+            // 还没开始的构建会读取最新的文件，直接合并
+            return queued.future;
+        }
+        int maxQueue = codeGenProperties.getVueBuildMaxQueue();
+        if (maxQueue > 0 && queuedTasks.size() >= maxQueue) {
+            rejectedCounter.increment();
+            log.warn("Vue 工程构建排队已满，排队: {}，执行中: {}", queuedTasks.size(), runningTasks.size());
+            throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "构建排队人数过多，请稍后重试");
+        }
+        BuildTask task = new BuildTask(appId, projectPath, priority);
+        lanes.get(priority).computeIfAbsent(userId, k -> new ArrayDeque<>()).addLast(task);
+        queuedTasks.put(appId, task);
+        log.info("Vue 工程构建已排队，appId: {}，优先级: {}，排队: {}，执行中: {}", appId, priority, queuedTasks.size(), runningTasks.size());
+        dispatch();
+        return task.future;
+    }
+
+    /**
+     * 获取应用当前构建的排队位置和预计耗时
+     *
+     * @return 没有排队或执行中的构建时返回 null
+     */
+    public synchronized AppBuildStatusVO getStatus(Long appId) {
+        long now = System.currentTimeMillis();
+        long buildMillis = Math.round(averageBuildMillis);
+        // 各工作槽位预计空闲的时间点（相对现在）
+        PriorityQueue<Long> workerFreeMillis = new PriorityQueue<>();
+        for (BuildTask running : runningTasks.values()) {
+            workerFreeMillis.add(Math.max(0, buildMillis - (now - running.startMillis)));
+        }
+        while (workerFreeMillis.size() < workers()) {
+            workerFreeMillis.add(0L);
+        }
+        AppBuildStatusVO statusVO = new AppBuildStatusVO();
+        statusVO.setQueueSize(queuedTasks.size());
+        BuildTask running = runningTasks.get(appId);
+        if (running != null && !queuedTasks.containsKey(appId)) {
+            statusVO.setState("building");
+            statusVO.setPosition(0);
+            statusVO.setEstimatedWaitSeconds(0L);
+            statusVO.setEstimatedFinishSeconds(toSeconds(Math.max(0, buildMillis - (now - running.startMillis))));
+            return statusVO;
+        }
+        if (!queuedTasks.containsKey(appId)) {
+            return null;
+        }
+        // 按调度顺序模拟出队，排在前面的构建依次占用最早空闲的槽位
+        List<BuildTask> order = dispatchOrder();
+        int position = 0;
+        for (BuildTask task : order) {
+            position++;
+            long startMillis = workerFreeMillis.poll();
+            if (task.appId.equals(appId)) {
+                statusVO.setState("queued");
+                statusVO.setPosition(position);
+                statusVO.setEstimatedWaitSeconds(toSeconds(startMillis));
+                statusVO.setEstimatedFinishSeconds(toSeconds(startMillis + buildMillis));
+                return statusVO;
+            }
+            workerFreeMillis.add(startMillis + buildMillis);
+        }
+        return null;
+    }
+
+    /**
+     * 排队中的构建数
+     */
+    public synchronized int getQueueDepth() {
+        return queuedTasks.size();
+    }
+
+    /**
+     * 执行中的构建数
+     */
+    public synchronized int getActiveCount() {
+        return runningTasks.size();
+    }
+
+    /**
+     * 有空闲槽位时按调度顺序取出构建执行
+     */
+    private void dispatch() {
+        while (runningTasks.size() < workers()) {
+            BuildTask task = pollNext();
+            if (task == null) {
+                return;
+            }
+            queuedTasks.remove(task.appId);
+            runningTasks.put(task.appId, task);
+            task.startMillis = System.currentTimeMillis();
+            try {
+                executorService.execute(() -> run(task));
+            } catch (RejectedExecutionException e) {
+                // 应用正在关闭：构建不会再执行，结束等待中的部署请求（剩余排队的构建在后续循环中依次结束）
+                runningTasks.remove(task.appId, task);
+                task.future.completeExceptionally(new BusinessException(ErrorCode.SYSTEM_ERROR, "构建服务正在停止，请稍后重试"));
+            }
+        }
+    }
+
+    /**
+     * 取出下一个构建：高优先级先于普通；同一优先级内取轮转顺序中第一个用户的第一个构建（跳过应用正在构建的），
+     * 该用户移到轮转末尾
+     */
+    private BuildTask pollNext() {
+        for (LinkedHashMap<Long, ArrayDeque<BuildTask>> lane : lanes.values()) {
+            Iterator<Map.Entry<Long, ArrayDeque<BuildTask>>> users = lane.entrySet().iterator();
+            while (users.hasNext()) {
+                Map.Entry<Long, ArrayDeque<BuildTask>> user = users.next();
+                Iterator<BuildTask> tasks = user.getValue().iterator();
+                while (tasks.hasNext()) {
+                    BuildTask task = tasks.next();
+                    if (runningTasks.containsKey(task.appId)) {
+                        continue;
+                    }
+                    tasks.remove();
+                    users.remove();
+                    if (!user.getValue().isEmpty()) {
+                        lane.put(user.getKey(), user.getValue());
+                    }
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 排队中的构建按调度顺序排列（每个用户每轮一个）
+     */
+    private List<BuildTask> dispatchOrder() {
+        List<BuildTask> order = new ArrayList<>(queuedTasks.size());
+        for (LinkedHashMap<Long, ArrayDeque<BuildTask>> lane : lanes.values()) {
+            List<Iterator<BuildTask>> users = new ArrayList<>();
+            lane.values().forEach(tasks -> users.add(tasks.iterator()));
+            while (!users.isEmpty()) {
+                Iterator<Iterator<BuildTask>> round = users.iterator();
+                while (round.hasNext()) {
+                    Iterator<BuildTask> tasks = round.next();
+                    if (tasks.hasNext()) {
+                        order.add(tasks.next());
+                    } else {
+                        round.remove();
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    private void run(BuildTask task) {
+        getTimer(waitTimersCache, "vue_build_wait_duration_seconds", "Vue 工程构建排队耗时", "priority",
+                task.priority.name().toLowerCase()).record(task.startMillis - task.submitMillis, TimeUnit.MILLISECONDS);
+        Path builtDir = null;
+        try {
+            builtDir = build(Path.of(task.projectPath));
+        } catch (Exception e) {
+            log.error("Vue 工程构建异常，appId: {}，错误: {}", task.appId, e.getMessage(), e);
+        } finally {
+            // 构建在当前版本目录中原地写入了文件（如 package-lock.json）
+            projectFileIndex.invalidate(task.appId);
+            boolean success = builtDir != null;
+            long buildMillis = System.currentTimeMillis() - task.startMillis;
+            getTimer(buildTimersCache, "vue_build_duration_seconds", "Vue 工程构建耗时", "status",
+                    success ? "success" : "failed").record(buildMillis, TimeUnit.MILLISECONDS);
+            synchronized (this) {
+                runningTasks.remove(task.appId, task);
+                if (success) {
+                    averageBuildMillis += BUILD_MILLIS_ALPHA * (buildMillis - averageBuildMillis);
+                }
+            }
+            // 先交付结果再调度下一个构建，调度失败不会影响已经完成的构建
+            task.future.complete(builtDir);
+            synchronized (this) {
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * 持有项目目录锁，在预览目录当前指向的版本目录中构建
+     *
+     * @return 构建成功时返回版本目录，失败时返回 null
+     */
+    private Path build(Path projectDir) throws IOException {
+        Lock projectLock = ProjectDirLocks.lockFor(projectDir);
+        projectLock.lock();
+        try {
+            Path versionDir = projectDir.toRealPath();
+            return vueProjectBuilder.buildProject(versionDir.toString()) ? versionDir : null;
+        } finally {
+            projectLock.unlock();
+        }
+    }
+
+    private int workers() {
+        return Math.max(1, codeGenProperties.getVueBuildWorkers());
+    }
+
+    private Timer getTimer(ConcurrentMap<String, Timer> cache, String name, String description, String tagKey, String tagValue) {
+        return cache.computeIfAbsent(tagValue, k ->
+                Timer.builder(name)
+                        .description(description)
+                        .tag(tagKey, tagValue)
+                        .register(meterRegistry));
+    }
+
+    private static long toSeconds(long millis) {
+        return (millis + 999) / 1000;
+    }
+
+    /**
+     * 一次构建
+     */
+    private static final class BuildTask {
+
+        private final Long appId;
+
+        private final String projectPath;
+
+        private final BuildPriority priority;
+
+        private final long submitMillis = System.currentTimeMillis();
+
+        private final CompletableFuture<Path> future = new CompletableFuture<>();
+
+        private long startMillis;
+
+        private BuildTask(Long appId, String projectPath, BuildPriority priority) {
+            this.appId = appId;
+            this.projectPath = projectPath;
+            this.priority = priority;
+        }
+    }
+}
@@ -1,33 +1,22 @@
 package com.hex.ailowcode.core.builder;
 
-import cn.hutool.core.util.RuntimeUtil;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 构建 Vue 项目打包工具
+ * 依赖优先从预先安装好的依赖模板链接（DependencyTemplateManager），链接失败时才在项目中执行 npm install
+ * 构建统一通过 VueBuildScheduler 排队提交，限制同时运行的 npm / node 进程数
  */
 @Slf4j
 @Component
 public class VueProjectBuilder {
 
-    /**
-     * 异步构建 Vue 项目
-     *
-     * @param projectPath
-     */
-    public void buildProjectAsync(String projectPath) {
-        Thread.ofVirtual().name("vue-builder-" + System.currentTimeMillis()).start(() -> {
-            try {
-                buildProject(projectPath);
-            } catch (Exception e) {
-                log.error("异步构建 Vue 项目时发生异常: {}", e.getMessage(), e);
-            }
-        });
-    }
+    @Resource
+    private DependencyTemplateManager dependencyTemplateManager;
 
     /**
      * 构建 Vue 项目
@@ -48,13 +37,13 @@ public class VueProjectBuilder {
             return false;
         }
         log.info("开始构建 Vue 项目：{}", projectPath);
-        // 执行 npm install
-        if (!executeNpmInstall(projectDir)) {
+        // 链接依赖模板，没有可用的模板时执行 npm install
+        if (!dependencyTemplateManager.linkDependencies(projectDir) && !NpmCommands.install(projectDir)) {
             log.error("npm install 执行失败：{}", projectPath);
             return false;
         }
         // 执行 npm run build
-        if (!executeNpmBuild(projectDir)) {
+        if (!NpmCommands.build(projectDir)) {
             log.error("npm run build 执行失败：{}", projectPath);
             return false;
         }
@@ -68,78 +57,4 @@ public class VueProjectBuilder {
         return true;
     }
 
-    /**
-     * 执行 npm install 命令
-     */
-    private boolean executeNpmInstall(File projectDir) {
-        log.info("执行 npm install...");
-        String command = String.format("%s install", buildCommand("npm"));
-        return executeCommand(projectDir, command, 300); // 5分钟超时
-    }
-
-    /**
-     * 执行 npm run build 命令
-     */
-    private boolean executeNpmBuild(File projectDir) {
-        log.info("执行 npm run build...");
-        String command = String.format("%s run build", buildCommand("npm"));
-        return executeCommand(projectDir, command, 180); // 3分钟超时
-    }
-
-    /**
-     * 根据操作系统构造命令
-     *
-     * @param baseCommand
-     * @return
-     */
-    private String buildCommand(String baseCommand) {
-        if (isWindows()) {
-            return baseCommand + ".cmd";
-        }
-        return baseCommand;
-    }
-
-    /**
-     * 操作系统检测
-     *
-     * @return
-     */
-    private boolean isWindows() {
-        return System.getProperty("os.name").toLowerCase().contains("windows");
-    }
-
-    /**
-     * 执行命令
-     *
-     * @param workingDir     工作目录
-     * @param command        命令字符串
-     * @param timeoutSeconds 超时时间（秒）
-     * @return 是否执行成功
-     */
-    private boolean executeCommand(File workingDir, String command, int timeoutSeconds) {
-        try {
-            log.info("在目录 {} 中执行命令: {}", workingDir.getAbsolutePath(), command);
-            Process process = RuntimeUtil.exec(null, workingDir, command.split("\\s+") // 命令分割为数组
-            );
-            // 等待进程完成，设置超时
-            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-            if (!finished) {
-                log.error("命令执行超时（{}秒），强制终止进程", timeoutSeconds);
-                process.destroyForcibly();
-                return false;
-            }
-            int exitCode = process.exitValue();
-            if (exitCode == 0) {
-                log.info("命令执行成功: {}", command);
-                return true;
-            } else {
-                log.error("命令执行失败，退出码: {}", exitCode);
-                return false;
-            }
-        } catch (Exception e) {
-            log.error("执行命令失败: {}, 错误信息: {}", command, e.getMessage());
-            return false;
-        }
-    }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.hex.ailowcode.core.optimizer;
+
+public interface AssetMinifier {
+
+    /**
+     * 策略模式封装接口，不同文件类型的压缩策略需要实现这个接口--去掉注释和多余空白，不改变代码语义
+     *
+     * @param content 原始内容
+     * @return 压缩后的内容
+     */
+    String minify(String content);
+}
@@ -0,0 +1,45 @@
+package com.hex.ailowcode.core.optimizer;
+
+import java.util.Map;
+
+/**
+ * 执行器设计模式--根据文件扩展名选择对应的压缩策略执行
+ * 新增文件类型只需实现 AssetMinifier 并在这里注册
+ */
+public class AssetMinifierExecutor {
+
+    private static final CssMinifier cssMinifier = new CssMinifier();
+
+    private static final JsMinifier jsMinifier = new JsMinifier();
+
+    private static final HtmlMinifier htmlMinifier = new HtmlMinifier(cssMinifier, jsMinifier);
+
+    private static final Map<String, AssetMinifier> minifiers = Map.of(
+            "html", htmlMinifier,
+            "htm", htmlMinifier,
+            "css", cssMinifier,
+            "js", jsMinifier,
+            "mjs", jsMinifier
+    );
+
+    /**
+     * 是否支持压缩该类型的文件
+     *
+     * @param extension 文件扩展名（小写）
+     */
+    public static boolean supports(String extension) {
+        return minifiers.containsKey(extension);
+    }
+
+    /**
+     * 执行压缩
+     *
+     * @param extension 文件扩展名（小写）
+     * @param content   原始内容
+     * @return 压缩后的内容，不支持的类型返回 null
+     */
+    public static String executeMinifier(String extension, String content) {
+        AssetMinifier minifier = minifiers.get(extension);
+        return minifier == null ? null : minifier.minify(content);
+    }
+}
@@ -0,0 +1,75 @@
+package com.hex.ailowcode.core.optimizer;
+
+/**
+ * CSS 压缩策略
+ * - 去掉注释（/*! 开头的版权注释保留）
+ * - 连续空白合并为一个空格，{ } ; , > 两侧和 : 之后的空白去掉
+ * - 去掉 } 前多余的 ;
+ * 字符串内容原样保留；不处理 + ~ 和括号两侧的空白（calc() 和 @media 条件依赖这些空白）
+ */
+public class CssMinifier implements AssetMinifier {
+
+    @Override
+    public String minify(String css) {
+        StringBuilder out = new StringBuilder(css.length());
+        int length = css.length();
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length) {
+            char c = css.charAt(i);
+            if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                if (i + 2 < length && css.charAt(i + 2) == '!') {
+                    appendPendingSpace(out, pendingSpace);
+                    out.append(css, i, end);
+                    pendingSpace = false;
+                } else {
+                    pendingSpace = true;
+                }
+                i = end;
+            } else if (c == '"' || c == '\'') {
+                appendPendingSpace(out, pendingSpace);
+                pendingSpace = false;
+                int end = MinifierUtils.skipQuoted(css, i);
+                out.append(css, i, end);
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+            } else if (isTight(c)) {
+                if (c == '}' && !out.isEmpty() && out.charAt(out.length() - 1) == ';') {
+                    out.setLength(out.length() - 1);
+                }
+                out.append(c);
+                pendingSpace = false;
+                i++;
+            } else {
+                appendPendingSpace(out, pendingSpace);
+                pendingSpace = false;
+                out.append(c);
+                i++;
+                if (c == ':') {
+                    // 属性值前的空白去掉（选择器中 : 前的空白有语义，保留）
+                    while (i < length && Character.isWhitespace(css.charAt(i))) {
+                        i++;
+                    }
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 两侧空白都可以去掉的字符
+     */
+    private static boolean isTight(char c) {
+        return c == '{' || c == '}' || c == ';' || c == ',' || c == '>';
+    }
+
+    private static void appendPendingSpace(StringBuilder out, boolean pendingSpace) {
+        if (pendingSpace && !out.isEmpty() && !isTight(out.charAt(out.length() - 1))) {
+            out.append(' ');
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.hex.ailowcode.core.optimizer;
+
+/**
+ * HTML 压缩策略
+ * - 去掉注释（条件注释 &lt;!--[if 保留）
+ * - 文本中的连续空白合并为一个空格（含换行时合并为一个换行），与浏览器的空白折叠规则一致，不影响渲染
+ * - 标签内属性之间的连续空白合并为一个空格，属性值原样保留
+ * - 内联 &lt;style&gt; 和 &lt;script&gt; 分别使用 CSS / JS 压缩策略，&lt;pre&gt; 和 &lt;textarea&gt; 原样保留
+ */
+public class HtmlMinifier implements AssetMinifier {
+
+    private final CssMinifier cssMinifier;
+
+    private final JsMinifier jsMinifier;
+
+    public HtmlMinifier(CssMinifier cssMinifier, JsMinifier jsMinifier) {
+        this.cssMinifier = cssMinifier;
+        this.jsMinifier = jsMinifier;
+    }
+
+    @Override
+    public String minify(String html) {
+        StringBuilder out = new StringBuilder(html.length());
+        int length = html.length();
+        int i = 0;
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '<' && html.startsWith("<!--", i)) {
+                int end = html.indexOf("-->", i + 4);
+                end = end < 0 ? length : end + 3;
+                if (html.startsWith("<!--[if", i)) {
+                    out.append(html, i, end);
+                }
+                i = end;
+            } else if (c == '<' && i + 1 < length && (Character.isLetter(html.charAt(i + 1)) || html.charAt(i + 1) == '/'
+                    || html.charAt(i + 1) == '!')) {
+                int tagEnd = appendTag(html, i, out);
+                String tagName = readTagName(html, i);
+                if (tagName.equals("script") || tagName.equals("style") || tagName.equals("pre") || tagName.equals("textarea")) {
+                    int closeStart = indexOfIgnoreCase(html, "</" + tagName, tagEnd);
+                    closeStart = closeStart < 0 ? length : closeStart;
+                    String body = html.substring(tagEnd, closeStart);
+                    out.append(switch (tagName) {
+                        case "style" -> cssMinifier.minify(body);
+                        case "script" -> isJavaScript(html.substring(i, tagEnd)) ? jsMinifier.minify(body) : body;
+                        default -> body;
+                    });
+                    i = closeStart;
+                } else {
+                    i = tagEnd;
+                }
+            } else if (Character.isWhitespace(c)) {
+                boolean newline = false;
+                while (i < length && Character.isWhitespace(html.charAt(i))) {
+                    newline |= html.charAt(i) == '\n';
+                    i++;
+                }
+                // 注释删除后，前后两段空白合并为一段
+                char last = out.isEmpty() ? '\0' : out.charAt(out.length() - 1);
+                if (last == ' ' || last == '\n') {
+                    if (newline) {
+                        out.setCharAt(out.length() - 1, '\n');
+                    }
+                } else {
+                    out.append(newline ? '\n' : ' ');
+                }
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 输出一个标签，属性之间的连续空白合并为一个空格
+     *
+     * @return 标签结束 &gt; 之后的位置
+     */
+    private static int appendTag(String html, int start, StringBuilder out) {
+        int i = start;
+        boolean pendingSpace = false;
+        while (i < html.length()) {
+            char c = html.charAt(i);
+            if (c == '"' || c == '\'') {
+                int end = html.indexOf(c, i + 1);
+                end = end < 0 ? html.length() : end + 1;
+                if (pendingSpace) {
+                    out.append(' ');
+                    pendingSpace = false;
+                }
+                out.append(html, i, end);
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+            } else {
+                if (pendingSpace && c != '>' && !(c == '/' && i + 1 < html.length() && html.charAt(i + 1) == '>')) {
+                    out.append(' ');
+                }
+                pendingSpace = false;
+                out.append(c);
+                i++;
+                if (c == '>') {
+                    return i;
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 读取开始标签的标签名（小写），结束标签和声明返回空串
+     */
+    private static String readTagName(String html, int start) {
+        int i = start + 1;
+        while (i < html.length() && (Character.isLetterOrDigit(html.charAt(i)) || html.charAt(i) == '-')) {
+            i++;
+        }
+        return html.substring(start + 1, i).toLowerCase();
+    }
+
+    /**
+     * 没有 type 或者 type 是 JavaScript / module 的脚本才压缩（JSON、模板等类型原样保留）
+     */
+    private static boolean isJavaScript(String openTag) {
+        String tag = openTag.toLowerCase();
+        int typeIndex = tag.indexOf("type=");
+        if (typeIndex < 0) {
+            return true;
+        }
+        String type = tag.substring(typeIndex + 5);
+        return type.startsWith("\"text/javascript") || type.startsWith("'text/javascript") || type.startsWith("text/javascript")
+                || type.startsWith("\"module") || type.startsWith("'module") || type.startsWith("module");
+    }
+
+    private static int indexOfIgnoreCase(String source, String target, int fromIndex) {
+        for (int i = fromIndex; i <= source.length() - target.length(); i++) {
+            if (source.regionMatches(true, i, target, 0, target.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,136 @@
+package com.hex.ailowcode.core.optimizer;
+
+import java.util.Set;
+
+/**
+ * JavaScript 压缩策略（保守压缩，不改名、不改写语句）
+ * - 去掉注释（/*! 开头的版权注释保留）
+ * - 去掉缩进、行尾空白和空行，行内连续空白合并为一个空格
+ * - { } ( ) [ ] ; , : = & | * 两侧的空白去掉
+ * 保留换行（自动分号插入依赖换行），字符串、模板字符串、正则字面量原样保留
+ */
+public class JsMinifier implements AssetMinifier {
+
+    /**
+     * 之后出现的 / 是正则字面量而不是除号的关键字
+     */
+    private static final Set<String> REGEX_PRECEDING_KEYWORDS = Set.of("return", "typeof", "instanceof", "in", "of",
+            "new", "delete", "void", "throw", "case", "do", "else", "yield", "await");
+
+    @Override
+    public String minify(String js) {
+        StringBuilder out = new StringBuilder(js.length());
+        int length = js.length();
+        boolean pendingSpace = false;
+        boolean pendingNewline = false;
+        int i = 0;
+        while (i < length) {
+            char c = js.charAt(i);
+            char next = i + 1 < length ? js.charAt(i + 1) : '\0';
+            if (c == '\n' || c == '\r') {
+                pendingNewline = true;
+                i++;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (c == '/' && next == '/') {
+                int end = js.indexOf('\n', i);
+                i = end < 0 ? length : end;
+                continue;
+            }
+            if (c == '/' && next == '*') {
+                int end = js.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                if (i + 2 < length && js.charAt(i + 2) == '!') {
+                    appendSeparator(out, pendingSpace, pendingNewline, c);
+                    out.append(js, i, end);
+                    pendingSpace = false;
+                    pendingNewline = false;
+                } else if (js.indexOf('\n', i) >= 0 && js.indexOf('\n', i) < end) {
+                    // 跨行注释相当于换行（影响自动分号插入）
+                    pendingNewline = true;
+                } else {
+                    pendingSpace = true;
+                }
+                i = end;
+                continue;
+            }
+            appendSeparator(out, pendingSpace, pendingNewline, c);
+            pendingSpace = false;
+            pendingNewline = false;
+            int end;
+            if (c == '\'' || c == '"') {
+                end = MinifierUtils.skipQuoted(js, i);
+            } else if (c == '`') {
+                end = MinifierUtils.skipTemplate(js, i);
+            } else if (c == '/' && isRegexStart(out)) {
+                end = MinifierUtils.skipRegex(js, i);
+            } else {
+                end = i + 1;
+            }
+            out.append(js, i, end);
+            i = end;
+        }
+        return out.toString();
+    }
+
+    /**
+     * 输出下一个字符前的分隔符：有换行保留一个换行，否则在需要时保留一个空格
+     */
+    private static void appendSeparator(StringBuilder out, boolean pendingSpace, boolean pendingNewline, char next) {
+        if (out.isEmpty()) {
+            return;
+        }
+        char last = out.charAt(out.length() - 1);
+        if (pendingNewline) {
+            out.append('\n');
+        } else if (pendingSpace && !isTight(last) && !isTight(next)) {
+            out.append(' ');
+        }
+    }
+
+    /**
+     * 两侧空白都可以去掉的字符（不包括 + - / . ? < > !，这些字符去掉空白后可能和相邻字符组成新的运算符）
+     */
+    private static boolean isTight(char c) {
+        return switch (c) {
+            case '{', '}', '(', ')', '[', ']', ';', ',', ':', '=', '&', '|', '*' -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * 根据已经输出的前一个记号判断当前的 / 是否是正则字面量的开始
+     * - 标识符、数字、字符串、模板字符串、) 和 ] 之后是表达式的结尾，/ 是除号（return 等关键字除外）
+     * - } 之后同一行的 / 是除号（对象字面量、函数表达式之后），换行之后是新语句开头的正则
+     * - 其他运算符、( [ , ; 等之后是正则
+     */
+    private static boolean isRegexStart(StringBuilder out) {
+        int end = out.length();
+        boolean lineBreak = false;
+        while (end > 0 && Character.isWhitespace(out.charAt(end - 1))) {
+            lineBreak |= out.charAt(end - 1) == '\n';
+            end--;
+        }
+        if (end == 0) {
+            return true;
+        }
+        char last = out.charAt(end - 1);
+        if (Character.isJavaIdentifierPart(last)) {
+            int start = end;
+            while (start > 0 && Character.isJavaIdentifierPart(out.charAt(start - 1))) {
+                start--;
+            }
+            return REGEX_PRECEDING_KEYWORDS.contains(out.substring(start, end));
+        }
+        return switch (last) {
+            case ')', ']', '\'', '"', '`' -> false;
+            case '}' -> lineBreak;
+            default -> true;
+        };
+    }
+}
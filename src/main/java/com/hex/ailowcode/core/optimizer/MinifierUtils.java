@@ -0,0 +1,119 @@
+package com.hex.ailowcode.core.optimizer;
+
+/**
+ * 压缩策略共用的词法扫描工具：定位字符串、模板字符串、正则字面量的结束位置，这些内容原样保留
+ */
+final class MinifierUtils {
+
+    private MinifierUtils() {
+    }
+
+    /**
+     * 跳过 ' 或 " 包围的字符串
+     *
+     * @param source 源码
+     * @param start  开始引号的位置
+     * @return 结束引号之后的位置；字符串未闭合时停在换行处（不会吞掉后续代码）
+     */
+    static int skipQuoted(String source, int start) {
+        char quote = source.charAt(start);
+        int i = start + 1;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return source.length();
+    }
+
+    /**
+     * 跳过 ` 包围的模板字符串（包括 ${} 中嵌套的字符串和模板字符串）
+     *
+     * @param source 源码
+     * @param start  开始反引号的位置
+     * @return 结束反引号之后的位置
+     */
+    static int skipTemplate(String source, int start) {
+        int i = start + 1;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '`') {
+                return i + 1;
+            } else if (c == '$' && i + 1 < source.length() && source.charAt(i + 1) == '{') {
+                i = skipTemplateExpression(source, i + 2);
+            } else {
+                i++;
+            }
+        }
+        return source.length();
+    }
+
+    /**
+     * 跳过模板字符串中的 ${ 表达式 }
+     *
+     * @return 表达式结束的 } 之后的位置
+     */
+    private static int skipTemplateExpression(String source, int start) {
+        int depth = 1;
+        int i = start;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(source, i);
+            } else if (c == '`') {
+                i = skipTemplate(source, i);
+            } else if (c == '{') {
+                depth++;
+                i++;
+            } else if (c == '}') {
+                if (--depth == 0) {
+                    return i + 1;
+                }
+                i++;
+            } else {
+                i++;
+            }
+        }
+        return source.length();
+    }
+
+    /**
+     * 跳过正则字面量（不包括后面的标志位）
+     *
+     * @param source 源码
+     * @param start  开始 / 的位置
+     * @return 结束 / 之后的位置；正则不能跨行，遇到换行时停止
+     */
+    static int skipRegex(String source, int start) {
+        boolean inClass = false;
+        int i = start + 1;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '\n') {
+                return i;
+            } else if (c == '[') {
+                inClass = true;
+                i++;
+            } else if (c == ']') {
+                inClass = false;
+                i++;
+            } else if (c == '/' && !inClass) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return source.length();
+    }
+}
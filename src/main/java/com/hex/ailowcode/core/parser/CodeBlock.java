@@ -0,0 +1,22 @@
+package com.hex.ailowcode.core.parser;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 流式解析出的一个完整代码块（一对闭合的 ``` 围栏）
+ */
+@Data
+@AllArgsConstructor
+public class CodeBlock {
+
+    /**
+     * 归一化后的语言标签：html / css / js，其他语言保留原始标签（小写）
+     */
+    private String language;
+
+    /**
+     * 围栏内的原始代码内容（未 trim），为 CodeSlice 视图：一次性扫描时指向完整响应，流式解析时指向生成流的分块账本
+     */
+    private CharSequence content;
+}
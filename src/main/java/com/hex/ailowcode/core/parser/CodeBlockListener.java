@@ -0,0 +1,34 @@
+package com.hex.ailowcode.core.parser;
+
+/**
+ * 流式解析事件监听器
+ * StreamingCodeParser 每识别到一个闭合的代码块就会立即回调，后续阶段无需等待整个响应结束
+ */
+@FunctionalInterface
+public interface CodeBlockListener {
+
+    /**
+     * 开始围栏识别完成，进入代码块时回调
+     *
+     * @param language 归一化后的语言标签
+     */
+    default void onBlockStart(String language) {
+    }
+
+    /**
+     * 代码块内容增量回调，每个 chunk 最多回调一次
+     * 传入的片段只在回调期间有效，需要保留请自行复制
+     *
+     * @param language 归一化后的语言标签
+     * @param content  本次新增的代码内容
+     */
+    default void onBlockContent(String language, CharSequence content) {
+    }
+
+    /**
+     * 代码块闭合（遇到结束围栏）时回调
+     *
+     * @param codeBlock 完整的代码块
+     */
+    void onBlockComplete(CodeBlock codeBlock);
+}
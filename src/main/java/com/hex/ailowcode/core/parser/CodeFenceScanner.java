@@ -0,0 +1,90 @@
+package com.hex.ailowcode.core.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 代码围栏扫描器（一次性完整文本）
+ * 对整段响应做一次线性扫描，按出现顺序切出所有 ``` 围栏代码块并按语言标签分类，
+ * 取代"每种语言各跑一遍惰性正则"的做法
+ *
+ * 识别规则与 StreamingCodeParser 一致：
+ * 1. 开始围栏：``` + 语言标签（不超过 64 个字符）+ 换行；标签超长时从第 66 个字符之后继续查找
+ * 2. 结束围栏：代码内容之后第一次出现的 ```
+ * 3. 语言标签取第一个单词并转小写，javascript 归一化为 js
+ * 4. 没有闭合的代码块忽略
+ */
+public final class CodeFenceScanner {
+
+    private static final String FENCE = "```";
+
+    /**
+     * 语言标签最大长度，超过说明 ``` 只是普通文本
+     */
+    private static final int MAX_INFO_LENGTH = 64;
+
+    private CodeFenceScanner() {
+    }
+
+    /**
+     * 扫描所有闭合的代码块
+     *
+     * @param content AI 返回的完整内容
+     * @return 代码块列表（按出现顺序，内容为未 trim 的 CodeSlice 视图，不复制字符）
+     */
+    public static List<CodeBlock> scan(String content) {
+        List<CodeBlock> codeBlocks = new ArrayList<>();
+        if (content == null) {
+            return codeBlocks;
+        }
+        int length = content.length();
+        int fenceStart = content.indexOf(FENCE);
+        while (fenceStart >= 0) {
+            int infoStart = fenceStart + FENCE.length();
+            // 只在标签长度范围内查找换行，避免一行中大量 ``` 时每次都扫描到行尾
+            int lineEnd = indexOfNewline(content, infoStart, Math.min(length, infoStart + MAX_INFO_LENGTH + 1));
+            if (lineEnd < 0) {
+                if (infoStart + MAX_INFO_LENGTH >= length) {
+                    break;
+                }
+                // 不是合法的开始围栏，与流式解析一样丢弃超长标签后继续查找
+                fenceStart = content.indexOf(FENCE, infoStart + MAX_INFO_LENGTH + 1);
+                continue;
+            }
+            int codeStart = lineEnd + 1;
+            int fenceEnd = codeStart <= length ? content.indexOf(FENCE, codeStart) : -1;
+            if (fenceEnd < 0) {
+                break;
+            }
+            String language = normalizeLanguage(content, infoStart, lineEnd);
+            codeBlocks.add(new CodeBlock(language, CodeSlice.of(content, codeStart, fenceEnd)));
+            fenceStart = content.indexOf(FENCE, fenceEnd + FENCE.length());
+        }
+        return codeBlocks;
+    }
+
+    private static int indexOfNewline(String content, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (content.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 语言标签归一化：取第一个单词并转小写，javascript 统一为 js
+     */
+    private static String normalizeLanguage(String content, int start, int end) {
+        while (start < end && Character.isWhitespace(content.charAt(start))) {
+            start++;
+        }
+        int wordEnd = start;
+        while (wordEnd < end && !Character.isWhitespace(content.charAt(wordEnd))) {
+            wordEnd++;
+        }
+        String tag = content.substring(start, wordEnd).toLowerCase(Locale.ROOT);
+        return "javascript".equals(tag) ? "js" : tag;
+    }
+}
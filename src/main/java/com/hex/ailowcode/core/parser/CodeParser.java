@@ -1,9 +1,41 @@
 package com.hex.ailowcode.core.parser;
 
+import java.util.List;
+
 public interface CodeParser<T> {
 
     /**
      * 策略模式封装接口,不同策略需要实现这个接口--解析AI流式返回的结果, 解析为能用的代码
      */
     T parseCode(String codeContent);
-}
\ No newline at end of file
+
+    /**
+     * 根据 StreamingCodeParser 已经切分好的代码块组装结果，无需再扫描完整响应
+     *
+     * @param codeBlocks 流式解析出的代码块
+     * @return 解析结果，没有可用的代码块时返回 null（由调用方回退到 parseCode）
+     */
+    T parseBlocks(List<CodeBlock> codeBlocks);
+
+    /**
+     * 查找第一个指定语言且内容非空的代码块，返回 trim 后的内容视图（不复制字符）
+     *
+     * @param codeBlocks 代码块列表
+     * @param language   归一化后的语言标签
+     * @return 代码内容，找不到返回 null
+     */
+    default CodeSlice findFirstBlock(List<CodeBlock> codeBlocks, String language) {
+        if (codeBlocks == null) {
+            return null;
+        }
+        for (CodeBlock codeBlock : codeBlocks) {
+            if (language.equals(codeBlock.getLanguage())) {
+                CodeSlice code = CodeSlice.of(codeBlock.getContent()).trim();
+                if (code.length() > 0) {
+                    return code;
+                }
+            }
+        }
+        return null;
+    }
+}
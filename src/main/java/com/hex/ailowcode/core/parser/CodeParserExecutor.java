@@ -4,6 +4,8 @@ import com.hex.ailowcode.exception.BusinessException;
 import com.hex.ailowcode.exception.ErrorCode;
 import com.hex.ailowcode.model.enums.CodeGenTypeEnum;
 
+import java.util.List;
+
 /**
  * 执行器设计模式--根据传入枚举值不同选择对应不同的解析策略执行
  */
@@ -27,4 +29,19 @@ public class CodeParserExecutor {
             default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型");
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * 根据流式解析出的代码块组装结果
+     *
+     * @param codeBlocks      StreamingCodeParser 解析出的代码块
+     * @param codeGenTypeEnum 代码生成类型
+     * @return 解析结果（HtmlCodeResult 或 MultiFileCodeResult），没有可用代码块时返回 null
+     */
+    public static Object executeParser(List<CodeBlock> codeBlocks, CodeGenTypeEnum codeGenTypeEnum) {
+        return switch (codeGenTypeEnum) {
+            case HTML -> htmlCodeParser.parseBlocks(codeBlocks);
+            case MULTI_FILE -> multiFileCodeParser.parseBlocks(codeBlocks);
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型");
+        };
+    }
+}
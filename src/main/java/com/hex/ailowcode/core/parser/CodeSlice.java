@@ -0,0 +1,82 @@
+package com.hex.ailowcode.core.parser;
+
+/**
+ * 代码片段视图：指向完整响应中的一段（偏移 + 长度），不复制字符
+ * 解析结果以视图的形式引用 AI 的完整响应，保存时直接从视图编码写入文件，只有调用 toString 时才会复制
+ */
+public final class CodeSlice implements CharSequence {
+
+    private final CharSequence source;
+
+    private final int start;
+
+    private final int end;
+
+    private CodeSlice(CharSequence source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * 创建视图
+     *
+     * @param source 完整内容
+     * @param start  起始下标（包含）
+     * @param end    结束下标（不包含）
+     */
+    public static CodeSlice of(CharSequence source, int start, int end) {
+        if (start < 0 || end > source.length() || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + source.length());
+        }
+        return new CodeSlice(source, start, end);
+    }
+
+    /**
+     * 创建覆盖整个内容的视图
+     */
+    public static CodeSlice of(CharSequence source) {
+        return source instanceof CodeSlice slice ? slice : new CodeSlice(source, 0, source.length());
+    }
+
+    /**
+     * 去掉首尾空白（与 String.trim 规则一致），只移动边界，不复制
+     */
+    public CodeSlice trim() {
+        int newStart = start;
+        int newEnd = end;
+        while (newStart < newEnd && source.charAt(newStart) <= ' ') {
+            newStart++;
+        }
+        while (newEnd > newStart && source.charAt(newEnd - 1) <= ' ') {
+            newEnd--;
+        }
+        return newStart == start && newEnd == end ? this : new CodeSlice(source, newStart, newEnd);
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length());
+        }
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int subStart, int subEnd) {
+        if (subStart < 0 || subEnd > length() || subStart > subEnd) {
+            throw new IndexOutOfBoundsException("start: " + subStart + ", end: " + subEnd + ", length: " + length());
+        }
+        return new CodeSlice(source, start + subStart, start + subEnd);
+    }
+
+    @Override
+    public String toString() {
+        return source.subSequence(start, end).toString();
+    }
+}
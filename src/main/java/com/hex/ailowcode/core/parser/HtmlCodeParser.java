@@ -2,41 +2,36 @@ package com.hex.ailowcode.core.parser;
 
 import com.hex.ailowcode.ai.model.HtmlCodeResult;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
 /**
  * 策略模式 -- 单文件代码解析实现
+ * 解析结果为 HtmlCodeSliceResult：代码以完整响应的视图形式返回，不复制字符
  */
 public class HtmlCodeParser implements CodeParser<HtmlCodeResult> {
 
-    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-
     @Override
     public HtmlCodeResult parseCode(String codeContent) {
-        HtmlCodeResult result = new HtmlCodeResult();
+        HtmlCodeSliceResult result = new HtmlCodeSliceResult();
         // 提取 HTML 代码
-        String htmlCode = extractHtmlCode(codeContent);
-        if (htmlCode != null && !htmlCode.trim().isEmpty()) {
-            result.setHtmlCode(htmlCode.trim());
+        CodeSlice htmlCode = findFirstBlock(CodeFenceScanner.scan(codeContent), "html");
+        if (htmlCode != null) {
+            result.setHtmlCodeSlice(htmlCode);
         } else {
             // 如果没有找到代码块，将整个内容作为HTML
-            result.setHtmlCode(codeContent.trim());
+            result.setHtmlCodeSlice(CodeSlice.of(codeContent).trim());
         }
         return result;
     }
 
-    /**
-     * 提取 HTML 代码内容
-     *
-     * @param content 原始内容
-     * @return HTML代码
-     */
-    private String extractHtmlCode(String content) {
-        Matcher matcher = HTML_CODE_PATTERN.matcher(content);
-        if (matcher.find()) {
-            return matcher.group(1);
+    @Override
+    public HtmlCodeResult parseBlocks(List<CodeBlock> codeBlocks) {
+        CodeSlice htmlCode = findFirstBlock(codeBlocks, "html");
+        if (htmlCode == null) {
+            return null;
         }
-        return null;
+        HtmlCodeSliceResult result = new HtmlCodeSliceResult();
+        result.setHtmlCodeSlice(htmlCode);
+        return result;
     }
-}
\ No newline at end of file
+}
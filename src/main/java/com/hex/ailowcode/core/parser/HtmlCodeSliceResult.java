@@ -0,0 +1,29 @@
+package com.hex.ailowcode.core.parser;
+
+import com.hex.ailowcode.ai.model.HtmlCodeResult;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 零拷贝的单文件解析结果：HTML 代码以视图的形式引用完整响应
+ * 单独作为子类，避免视图字段进入 AI 结构化输出（HtmlCodeResult）的 JSON Schema
+ */
+@Getter
+@Setter
+public class HtmlCodeSliceResult extends HtmlCodeResult {
+
+    private CharSequence htmlCodeSlice;
+
+    /**
+     * 兼容按字符串读取的调用方，每次调用都会复制一次视图内容
+     */
+    @Override
+    public String getHtmlCode() {
+        return htmlCodeSlice != null ? htmlCodeSlice.toString() : super.getHtmlCode();
+    }
+
+    @Override
+    public CharSequence htmlCodeContent() {
+        return htmlCodeSlice != null ? htmlCodeSlice : super.getHtmlCode();
+    }
+}
@@ -1,53 +1,63 @@
 package com.hex.ailowcode.core.parser;
 
+import cn.hutool.core.util.StrUtil;
 import com.hex.ailowcode.ai.model.MultiFileCodeResult;
+import lombok.extern.slf4j.Slf4j;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 策略模式--多文件代码解析实现
+ * 解析结果为 MultiFileCodeSliceResult：代码以完整响应的视图形式返回，不复制字符
  */
+@Slf4j
 public class MultiFileCodeParser implements CodeParser<MultiFileCodeResult> {
 
-    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    /**
+     * 日志中最多列出的额外代码块数量（病态输出可能包含成千上万个小代码块）
+     */
+    private static final int MAX_LOGGED_EXTRA_BLOCKS = 10;
 
     @Override
     public MultiFileCodeResult parseCode(String codeContent) {
-        MultiFileCodeResult result = new MultiFileCodeResult();
-        // 提取各类代码
-        String htmlCode = extractCodeByPattern(codeContent, HTML_CODE_PATTERN);
-        String cssCode = extractCodeByPattern(codeContent, CSS_CODE_PATTERN);
-        String jsCode = extractCodeByPattern(codeContent, JS_CODE_PATTERN);
-        // 设置HTML代码
-        if (htmlCode != null && !htmlCode.trim().isEmpty()) {
-            result.setHtmlCode(htmlCode.trim());
+        MultiFileCodeSliceResult result = new MultiFileCodeSliceResult();
+        // 一次线性扫描切出所有代码块，每种语言取第一个非空代码块（以视图形式引用原始响应，不复制）
+        List<String> extraBlocks = new ArrayList<>();
+        int extraBlockCount = 0;
+        for (CodeBlock codeBlock : CodeFenceScanner.scan(codeContent)) {
+            CodeSlice code = CodeSlice.of(codeBlock.getContent()).trim();
+            if (code.length() == 0) {
+                continue;
+            }
+            String language = codeBlock.getLanguage();
+            if ("html".equals(language) && result.getHtmlCodeSlice() == null) {
+                result.setHtmlCodeSlice(code);
+            } else if ("css".equals(language) && result.getCssCodeSlice() == null) {
+                result.setCssCodeSlice(code);
+            } else if ("js".equals(language) && result.getJsCodeSlice() == null) {
+                result.setJsCodeSlice(code);
+            } else if (++extraBlockCount <= MAX_LOGGED_EXTRA_BLOCKS) {
+                extraBlocks.add(StrUtil.format("{}({} 字符)", StrUtil.blankToDefault(language, "无标签"), code.length()));
+            }
         }
-        // 设置CSS代码
-        if (cssCode != null && !cssCode.trim().isEmpty()) {
-            result.setCssCode(cssCode.trim());
-        }
-        // 设置JS代码
-        if (jsCode != null && !jsCode.trim().isEmpty()) {
-            result.setJsCode(jsCode.trim());
+        // 重复语言或不支持的语言的代码块不会被保存，记录下来便于排查提示词问题
+        if (extraBlockCount > 0) {
+            log.warn("多文件解析忽略了 {} 个额外代码块: {}", extraBlockCount, extraBlocks);
         }
         return result;
     }
 
-    /**
-     * 根据正则模式提取代码
-     *
-     * @param content 原始内容
-     * @param pattern 正则模式
-     * @return 提取的代码
-     */
-    private String extractCodeByPattern(String content, Pattern pattern) {
-        Matcher matcher = pattern.matcher(content);
-        if (matcher.find()) {
-            return matcher.group(1);
+    @Override
+    public MultiFileCodeResult parseBlocks(List<CodeBlock> codeBlocks) {
+        CodeSlice htmlCode = findFirstBlock(codeBlocks, "html");
+        if (htmlCode == null) {
+            return null;
         }
-        return null;
+        MultiFileCodeSliceResult result = new MultiFileCodeSliceResult();
+        result.setHtmlCodeSlice(htmlCode);
+        result.setCssCodeSlice(findFirstBlock(codeBlocks, "css"));
+        result.setJsCodeSlice(findFirstBlock(codeBlocks, "js"));
+        return result;
     }
-}
\ No newline at end of file
+}
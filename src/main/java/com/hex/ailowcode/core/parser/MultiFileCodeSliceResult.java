@@ -0,0 +1,53 @@
+package com.hex.ailowcode.core.parser;
+
+import com.hex.ailowcode.ai.model.MultiFileCodeResult;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 零拷贝的多文件解析结果：HTML / CSS / JS 代码以视图的形式引用完整响应
+ * 单独作为子类，避免视图字段进入 AI 结构化输出（MultiFileCodeResult）的 JSON Schema
+ */
+@Getter
+@Setter
+public class MultiFileCodeSliceResult extends MultiFileCodeResult {
+
+    private CharSequence htmlCodeSlice;
+
+    private CharSequence cssCodeSlice;
+
+    private CharSequence jsCodeSlice;
+
+    /**
+     * 兼容按字符串读取的调用方，以下三个 getter 每次调用都会复制一次视图内容
+     */
+    @Override
+    public String getHtmlCode() {
+        return htmlCodeSlice != null ? htmlCodeSlice.toString() : super.getHtmlCode();
+    }
+
+    @Override
+    public String getCssCode() {
+        return cssCodeSlice != null ? cssCodeSlice.toString() : super.getCssCode();
+    }
+
+    @Override
+    public String getJsCode() {
+        return jsCodeSlice != null ? jsCodeSlice.toString() : super.getJsCode();
+    }
+
+    @Override
+    public CharSequence htmlCodeContent() {
+        return htmlCodeSlice != null ? htmlCodeSlice : super.getHtmlCode();
+    }
+
+    @Override
+    public CharSequence cssCodeContent() {
+        return cssCodeSlice != null ? cssCodeSlice : super.getCssCode();
+    }
+
+    @Override
+    public CharSequence jsCodeContent() {
+        return jsCodeSlice != null ? jsCodeSlice : super.getJsCode();
+    }
+}
@@ -0,0 +1,233 @@
+package com.hex.ailowcode.core.parser;
+
+import com.hex.ailowcode.core.stream.ChunkLedger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 流式代码围栏解析器（状态机）
+ * 直接消费 AI 返回的 Flux 小块，跨 chunk 边界跟踪 ```html / ```css / ```js 围栏的开闭状态，
+ * 每当一个围栏闭合就通过 CodeBlockListener 发出"文件完成"事件，避免流结束后再对整个响应跑正则
+ *
+ * 识别规则与 HtmlCodeParser / MultiFileCodeParser 的正则保持一致：
+ * 1. 开始围栏：``` + 语言标签 + 换行
+ * 2. 结束围栏：代码内容之后第一次出现的 ```
+ * 3. 语言标签超过 64 个字符时不是开始围栏，回到普通文本
+ * 4. 语言标签取第一个单词（任意空白分隔）并转小写，javascript 归一化为 js
+ *
+ * 解析器按绝对下标跟踪累积的完整响应（生成流的分块账本），完成的代码块是指向账本的 CodeSlice 视图，
+ * 不再另外缓冲一份代码内容，闭合时也不复制 String，后续 trim 和保存直接基于视图；
+ * 内容增量回调优先使用当前 chunk 上的视图
+ *
+ * 非线程安全：每个生成流使用一个独立实例，Flux 的 onNext 本身是串行的
+ */
+public class StreamingCodeParser {
+
+    /**
+     * 围栏由 3 个反引号组成
+     */
+    private static final int FENCE_LENGTH = 3;
+
+    /**
+     * 语言标签最大长度，超过说明 ``` 只是普通文本
+     */
+    private static final int MAX_INFO_LENGTH = 64;
+
+    /**
+     * 解析状态：围栏外的普通文本 / 读取语言标签 / 围栏内的代码
+     */
+    private enum State {
+        TEXT, INFO, CODE
+    }
+
+    private State state = State.TEXT;
+
+    /**
+     * 当前连续反引号的数量（跨 chunk 保留）
+     */
+    private int backtickCount;
+
+    private final StringBuilder infoBuilder = new StringBuilder();
+
+    /**
+     * 累积的完整响应，喂入的 chunk 已经追加在末尾
+     */
+    private final CharSequence response;
+
+    /**
+     * 解析器自己维护的账本（没有传入 response 时），喂入的 chunk 由解析器追加
+     */
+    private final ChunkLedger ownLedger;
+
+    /**
+     * 当前代码块在 response 中的起始位置
+     */
+    private int blockStart;
+
+    private String currentLanguage;
+
+    /**
+     * 当前代码块中已经通过 onBlockContent 推送到的位置（response 下标）
+     */
+    private int emittedEnd;
+
+    private final List<CodeBlock> completedBlocks = new ArrayList<>();
+
+    private final CodeBlockListener listener;
+
+    public StreamingCodeParser() {
+        this(null);
+    }
+
+    /**
+     * 解析器自己维护一份账本（不计入内存预算），适用于没有共享账本的场景
+     */
+    public StreamingCodeParser(CodeBlockListener listener) {
+        this.ownLedger = new ChunkLedger();
+        this.response = ownLedger;
+        this.listener = listener;
+    }
+
+    /**
+     * @param response 累积的完整响应（如生成流的分块账本），每个 chunk 必须在喂入之前追加到它的末尾，完成的代码块是它的视图
+     * @param listener 事件监听器
+     */
+    public StreamingCodeParser(CharSequence response, CodeBlockListener listener) {
+        this.ownLedger = null;
+        this.response = response;
+        this.listener = listener;
+    }
+
+    /**
+     * 喂入一个流式小块
+     *
+     * @param chunk AI 返回的代码片段
+     */
+    public void feed(CharSequence chunk) {
+        if (chunk == null) {
+            return;
+        }
+        if (ownLedger != null) {
+            ownLedger.append(chunk.toString());
+        }
+        int len = chunk.length();
+        // chunk 在完整响应中的起始位置
+        int offset = response.length() - len;
+        for (int i = 0; i < len; i++) {
+            char c = chunk.charAt(i);
+            switch (state) {
+                case TEXT -> consumeText(c);
+                case INFO -> consumeInfo(c, offset + i);
+                case CODE -> consumeCode(c, offset + i);
+            }
+        }
+        // 每个 chunk 结束时把新增的代码内容一次性推送出去（末尾可能是结束围栏的反引号暂不推送）
+        if (state == State.CODE) {
+            emitContent(chunk, offset, offset + len - backtickCount);
+        }
+    }
+
+    /**
+     * 当前是否处于未闭合的代码块中
+     */
+    public boolean isInsideBlock() {
+        return state == State.CODE;
+    }
+
+    /**
+     * 已完成的代码块（按出现顺序）
+     */
+    public List<CodeBlock> getCompletedBlocks() {
+        return completedBlocks;
+    }
+
+    private void consumeText(char c) {
+        if (c != '`') {
+            backtickCount = 0;
+            return;
+        }
+        if (++backtickCount == FENCE_LENGTH) {
+            backtickCount = 0;
+            infoBuilder.setLength(0);
+            state = State.INFO;
+        }
+    }
+
+    private void consumeInfo(char c, int position) {
+        if (c == '\n') {
+            currentLanguage = normalizeLanguage(infoBuilder);
+            blockStart = position + 1;
+            emittedEnd = blockStart;
+            state = State.CODE;
+            if (listener != null) {
+                listener.onBlockStart(currentLanguage);
+            }
+            return;
+        }
+        if (infoBuilder.length() >= MAX_INFO_LENGTH) {
+            // 不是合法的开始围栏，回到普通文本
+            state = State.TEXT;
+            return;
+        }
+        infoBuilder.append(c);
+    }
+
+    private void consumeCode(char c, int position) {
+        if (c == '`') {
+            if (++backtickCount == FENCE_LENGTH) {
+                backtickCount = 0;
+                // 代码内容到结束围栏的第一个反引号为止
+                completeBlock(position - FENCE_LENGTH + 1);
+            }
+            return;
+        }
+        // 不足 3 个的反引号属于代码内容本身（在完整响应中本来就是连续的）
+        backtickCount = 0;
+    }
+
+    private void completeBlock(int contentEnd) {
+        emitContent(null, 0, contentEnd);
+        CodeBlock codeBlock = new CodeBlock(currentLanguage, CodeSlice.of(response, blockStart, contentEnd));
+        currentLanguage = null;
+        state = State.TEXT;
+        completedBlocks.add(codeBlock);
+        if (listener != null) {
+            listener.onBlockComplete(codeBlock);
+        }
+    }
+
+    /**
+     * 推送 [emittedEnd, end) 的代码内容：完全落在当前 chunk 内时使用 chunk 上的视图，否则使用完整响应上的视图
+     *
+     * @param chunk  当前 chunk，为 null 时使用完整响应
+     * @param offset 当前 chunk 在完整响应中的起始位置
+     * @param end    推送到的位置（不包含）
+     */
+    private void emitContent(CharSequence chunk, int offset, int end) {
+        if (listener != null && end > emittedEnd) {
+            CodeSlice content = chunk != null && emittedEnd >= offset
+                    ? CodeSlice.of(chunk, emittedEnd - offset, end - offset)
+                    : CodeSlice.of(response, emittedEnd, end);
+            listener.onBlockContent(currentLanguage, content);
+        }
+        emittedEnd = Math.max(emittedEnd, end);
+    }
+
+    /**
+     * 语言标签归一化：取第一个单词并转小写，javascript 统一为 js
+     */
+    private static String normalizeLanguage(CharSequence info) {
+        int start = 0;
+        while (start < info.length() && Character.isWhitespace(info.charAt(start))) {
+            start++;
+        }
+        int wordEnd = start;
+        while (wordEnd < info.length() && !Character.isWhitespace(info.charAt(wordEnd))) {
+            wordEnd++;
+        }
+        String tag = info.subSequence(start, wordEnd).toString().toLowerCase(Locale.ROOT);
+        return "javascript".equals(tag) ? "js" : tag;
+    }
+}
@@ -0,0 +1,590 @@
+package com.hex.ailowcode.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import com.hex.ailowcode.constant.AppConstant;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * 内容寻址的文件存储（SHA-256 -> blob）
+ *
+ * 生成的文件内容只在 {CODE_OUTPUT_ROOT_DIR}/.blobs/{前两位}/{哈希} 中保存一份，
+ * code_output 的版本目录和 code_deploy 的部署目录中的文件都是指向 blob 的硬链接：
+ * - 多轮生成、多个应用、多次部署中内容相同的文件只占用一份磁盘空间
+ * - 部署只需要创建目录和硬链接，不再复制文件内容
+ *
+ * 约定：blob 一旦写入不再修改，所有写入方都是"写新文件 + rename 替换"，不会原地修改硬链接指向的文件。
+ * 文件系统不支持硬链接（或跨文件系统）时退化为直接写入 / 复制。
+ * 只剩 blob 自身一个链接（没有任何目录引用）的 blob 会被定期清理。
+ */
+@Slf4j
+public final class BlobStore {
+
+    static final String BLOBS_DIR = ".blobs";
+
+    private static final Path BLOB_ROOT = Path.of(AppConstant.CODE_OUTPUT_ROOT_DIR, BLOBS_DIR);
+
+    /**
+     * 垃圾回收的最小间隔
+     */
+    private static final Duration GC_INTERVAL = Duration.ofHours(1);
+
+    /**
+     * 新写入的 blob 在这段时间内不回收（可能正在被链接）
+     */
+    private static final Duration GC_MIN_AGE = Duration.ofMinutes(10);
+
+    /**
+     * 预压缩收益不足的标记（不被任何目录链接）在最后一次使用后保留的时间
+     */
+    private static final Duration SKIP_MARKER_TTL = Duration.ofDays(7);
+
+    private static final AtomicLong LAST_GC_MILLIS = new AtomicLong(System.currentTimeMillis());
+
+    private BlobStore() {
+    }
+
+    /**
+     * 把已经编码好的内容写为目标文件：内容存入 blob（已存在则复用），目标文件为指向 blob 的硬链接
+     *
+     * @param target  目标文件（不能已存在链接到其他内容的文件，存在时会先删除该目录项）
+     * @param content 已 flip 的内容缓冲区，调用后缓冲区内容不会被消费
+     */
+    static void writeLinked(Path target, ByteBuffer[] content) throws IOException {
+        writeLinked(BLOB_ROOT, target, content);
+    }
+
+    static void writeLinked(Path blobRoot, Path target, ByteBuffer[] content) throws IOException {
+        Path blob = blobPath(blobRoot, sha256(content));
+        boolean linked;
+        try {
+            storeContent(blob, content);
+            linked = link(target, blob);
+        } catch (NoSuchFileException e) {
+            // 复用的 blob 在检查之后被回收：重新写入后再链接一次
+            log.debug("blob 已被回收，重新写入: {}", blob);
+            storeContent(blob, content);
+            linked = link(target, blob);
+        }
+        if (!linked) {
+            // 不支持硬链接：直接写入目标文件
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(channel, content);
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * 把源目录物化为目标根目录下的一个新版本并原子发布（部署使用）
+     * 源目录中的文件先存入 blob（内容已存在时不再写入），目标目录中只创建硬链接；以 . 开头的隐藏文件和目录会被跳过
+     * - 开启 minify 时 html/css/js 链接到压缩后的变体，源目录保持原样
+     * - 开启预压缩时同时为文本类文件链接 .gz 变体（基于 minify 之后的内容；源目录中已有同名 .gz 时不再生成）
+     *
+     * @param sourceDir   源目录
+     * @param targetRoot  目标根目录，如 code_deploy
+     * @param dirName     目标目录名，如 deployKey
+     * @param minify      是否压缩 html/css/js
+     * @param precompress 是否生成预压缩变体
+     * @return 物化结果
+     */
+    public static MaterializeResult materialize(File sourceDir, Path targetRoot, String dirName, boolean minify,
+                                                boolean precompress) throws IOException {
+        Path sourceRoot = sourceDir.toPath().toRealPath();
+        Path versionDir = DirectoryPublisher.createVersionDir(targetRoot, dirName);
+        long minifyOriginalBytes = 0;
+        long minifiedBytes = 0;
+        try (Stream<Path> paths = Files.walk(sourceRoot)) {
+            List<Path> files = paths.filter(path -> !isHidden(sourceRoot.relativize(path))).toList();
+            for (Path source : files) {
+                Path target = versionDir.resolve(sourceRoot.relativize(source).toString());
+                if (Files.isDirectory(source)) {
+                    Files.createDirectories(target);
+                } else if (Files.isRegularFile(source)) {
+                    Path original;
+                    Path linked;
+                    try {
+                        original = storeFile(source);
+                        linked = linkStoredFile(source, target, original, minify, precompress);
+                    } catch (NoSuchFileException e) {
+                        // 复用的 blob（或变体）在检查之后被回收：重新存入后再链接一次
+                        log.debug("blob 已被回收，重新存入: {}", e.getMessage());
+                        original = storeFile(source);
+                        linked = linkStoredFile(source, target, original, minify, precompress);
+                    }
+                    if (linked != original) {
+                        minifyOriginalBytes += Files.size(original);
+                        minifiedBytes += Files.size(linked);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            FileUtil.del(versionDir.toFile());
+            throw e;
+        }
+        DirectoryPublisher.syncDirectory(versionDir);
+        File liveDir = DirectoryPublisher.publish(targetRoot, dirName, versionDir).toFile();
+        return new MaterializeResult(liveDir, minifyOriginalBytes, minifiedBytes);
+    }
+
+    /**
+     * 把已有文件纳入 blob 存储并返回内容哈希；文件随后被替换为指向 blob 的硬链接（原子 rename），
+     * 下一次判断内容是否变化时只需比较文件标识，不必重新读取内容
+     *
+     * @param file 文件（调用方保证此时没有并发写入）
+     * @return 内容哈希
+     */
+    public static String adopt(Path file) throws IOException {
+        Path blob = storeFile(file);
+        if (!isSameFile(file, blob)) {
+            try {
+                replaceWithLink(file, blob);
+            } catch (NoSuchFileException e) {
+                // 复用的 blob 在检查之后被回收：重新存入后再替换一次
+                blob = storeFile(file);
+                replaceWithLink(file, blob);
+            }
+        }
+        return blob.getFileName().toString();
+    }
+
+    /**
+     * 把已经写完并刷盘、内容哈希已知的文件纳入 blob 存储（流式保存边写边计算哈希，不必再读取一遍文件）
+     * blob 已存在时文件替换为指向 blob 的硬链接，否则文件本身链接为 blob（文件之后不会再被原地修改）
+     *
+     * @param file 文件
+     * @param hash 文件内容的 SHA-256
+     */
+    static void adoptWritten(Path file, String hash) throws IOException {
+        adoptWritten(BLOB_ROOT, file, hash);
+    }
+
+    static void adoptWritten(Path blobRoot, Path file, String hash) throws IOException {
+        Path blob = blobPath(blobRoot, hash);
+        if (touch(blob)) {
+            try {
+                replaceWithLink(file, blob);
+                return;
+            } catch (NoSuchFileException e) {
+                // 复用的 blob 在检查之后被回收：改为把文件本身纳入 blob 存储
+                log.debug("blob 已被回收，改为链接写入的文件: {}", blob);
+            }
+        }
+        Files.createDirectories(blob.getParent());
+        Path tempLink = blob.resolveSibling("." + blob.getFileName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            Files.createLink(tempLink, file);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            log.debug("无法创建硬链接，文件不纳入 blob 存储: {}", e.getMessage());
+            return;
+        }
+        moveIntoStore(tempLink, blob);
+    }
+
+    /**
+     * 文件是否就是指定内容 blob 的硬链接（只比较文件标识，不读取内容）
+     */
+    public static boolean isLinkedTo(Path file, String hash) {
+        return isSameFile(file, blobPath(hash));
+    }
+
+    /**
+     * 按文件表构建一个新版本并原子发布为预览目录（版本回滚使用），读取方不会看到只替换了一部分文件的项目
+     * - 文件表中的文件链接到对应的 blob
+     * - 当前版本中不纳入版本的内容带入新版本：隐藏文件以硬链接带入，node_modules 整体移入；dist 为旧的构建产物，丢弃
+     *
+     * @param rootDir 输出根目录
+     * @param dirName 预览目录名 {type}_{appId}
+     * @param files   相对路径 -> 内容哈希
+     * @return 预览目录
+     */
+    public static Path publishManifest(Path rootDir, String dirName, Map<String, String> files) throws IOException {
+        return publishManifest(BLOB_ROOT, rootDir, dirName, files);
+    }
+
+    static Path publishManifest(Path blobRoot, Path rootDir, String dirName, Map<String, String> files) throws IOException {
+        Path liveDir = rootDir.resolve(dirName);
+        // 与进行中的构建和其他发布互斥
+        Lock projectLock = ProjectDirLocks.lockFor(liveDir);
+        projectLock.lock();
+        Path versionDir = null;
+        Path nodeModules = null;
+        try {
+            versionDir = DirectoryPublisher.createVersionDir(rootDir, dirName);
+            Path currentDir = Files.isDirectory(liveDir) ? liveDir.toRealPath() : null;
+            Set<Path> createdDirs = new HashSet<>();
+            for (Map.Entry<String, String> entry : new TreeMap<>(files).entrySet()) {
+                Path blob = blobPath(blobRoot, entry.getValue());
+                if (!Files.isRegularFile(blob)) {
+                    throw new NoSuchFileException(blob.toString(), null, "blob 不存在: " + entry.getKey());
+                }
+                Path target = versionDir.resolve(entry.getKey());
+                if (createdDirs.add(target.getParent())) {
+                    Files.createDirectories(target.getParent());
+                }
+                linkOrCopy(target, blob);
+            }
+            if (currentDir != null) {
+                carryOverHiddenFiles(currentDir, versionDir);
+                Path currentNodeModules = currentDir.resolve(VirtualProject.NODE_MODULES_DIR);
+                if (Files.isDirectory(currentNodeModules, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.move(currentNodeModules, versionDir.resolve(VirtualProject.NODE_MODULES_DIR), StandardCopyOption.ATOMIC_MOVE);
+                    nodeModules = currentNodeModules;
+                }
+            }
+            DirectoryPublisher.syncDirectory(versionDir);
+            return DirectoryPublisher.publish(rootDir, dirName, versionDir);
+        } catch (IOException | RuntimeException e) {
+            // 发布失败：依赖目录移回原项目，删除暂存区，预览目录保持原来的版本
+            if (nodeModules != null && Files.isDirectory(versionDir.resolve(VirtualProject.NODE_MODULES_DIR))) {
+                Files.move(versionDir.resolve(VirtualProject.NODE_MODULES_DIR), nodeModules, StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (versionDir != null) {
+                FileUtil.del(versionDir.toFile());
+            }
+            throw e;
+        } finally {
+            projectLock.unlock();
+        }
+    }
+
+    /**
+     * 在固定目录下为 blob 保留一个硬链接，保证它不会被回收（版本快照引用的内容使用）
+     *
+     * @param pinDir 保留目录
+     * @param hash   内容哈希
+     * @throws NoSuchFileException blob 不存在
+     */
+    public static void pin(Path pinDir, String hash) throws IOException {
+        pin(BLOB_ROOT, pinDir, hash);
+    }
+
+    static void pin(Path blobRoot, Path pinDir, String hash) throws IOException {
+        Path pin = pinDir.resolve(hash);
+        if (Files.exists(pin)) {
+            return;
+        }
+        Files.createDirectories(pinDir);
+        try {
+            Files.createLink(pin, blobPath(blobRoot, hash));
+        } catch (FileAlreadyExistsException e) {
+            // 并发保留同一内容
+        } catch (NoSuchFileException e) {
+            // blob 已经丢失，版本引用的内容无法恢复，不能记录这个版本
+            throw new NoSuchFileException(blobPath(blobRoot, hash).toString(), null, "版本引用的 blob 不存在");
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // 不支持硬链接时 blob 也不会按链接数回收
+            log.debug("无法保留 blob: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 回收没有被任何目录引用的 blob（距离上次回收超过间隔时才执行，由目录发布时触发）
+     */
+    static void collectGarbageIfDue() {
+        long now = System.currentTimeMillis();
+        long lastRun = LAST_GC_MILLIS.get();
+        if (now - lastRun < GC_INTERVAL.toMillis() || !LAST_GC_MILLIS.compareAndSet(lastRun, now)) {
+            return;
+        }
+        int removed = collectGarbage(BLOB_ROOT, Instant.now().minus(GC_MIN_AGE));
+        log.info("blob 回收完成，删除 {} 个未引用的 blob", removed);
+    }
+
+    /**
+     * 删除只剩自身一个链接、且修改时间早于 expireBefore 的 blob；预压缩跳过标记在此基础上再保留 SKIP_MARKER_TTL
+     *
+     * @return 删除的 blob 数量
+     */
+    static int collectGarbage(Path blobRoot, Instant expireBefore) {
+        if (!Files.isDirectory(blobRoot)) {
+            return 0;
+        }
+        int removed = 0;
+        try (Stream<Path> blobs = Files.walk(blobRoot, 2)) {
+            for (Path blob : blobs.filter(Files::isRegularFile).toList()) {
+                Instant blobExpireBefore = blob.getFileName().toString().endsWith(PrecompressedVariants.SKIP_MARKER_SUFFIX)
+                        ? expireBefore.minus(SKIP_MARKER_TTL) : expireBefore;
+                if (isUnreferenced(blob) && Files.getLastModifiedTime(blob).toInstant().isBefore(blobExpireBefore)) {
+                    Files.deleteIfExists(blob);
+                    removed++;
+                }
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("回收 blob 失败: {}", e.getMessage());
+        }
+        return removed;
+    }
+
+    /**
+     * 把源文件存入 blob（内容已存在时直接复用），返回 blob 路径
+     * 复制而不是直接链接源文件，避免源文件之后被原地修改（如 Vue 构建产物）时改动 blob
+     */
+    private static Path storeFile(Path source) throws IOException {
+        Path blob = blobPath(sha256(source));
+        if (!touch(blob)) {
+            Path tempFile = createTempFile(blob);
+            Files.copy(source, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.force(false);
+            }
+            moveIntoStore(tempFile, blob);
+        }
+        return blob;
+    }
+
+    /**
+     * 把源文件（已存入 blob）链接到目标位置，按需链接 minify 变体和预压缩变体
+     *
+     * @return 目标文件链接的 blob（原内容或 minify 变体）
+     * @throws NoSuchFileException blob 在链接之前被回收
+     */
+    private static Path linkStoredFile(Path source, Path target, Path blob, boolean minify, boolean precompress)
+            throws IOException {
+        long size = Files.size(blob);
+        if (minify && MinifiedVariants.isMinifiable(source, size)) {
+            Path variant = MinifiedVariants.minifiedVariant(BLOB_ROOT, blob, source.getFileName().toString());
+            if (variant != null) {
+                blob = variant;
+                size = Files.size(variant);
+            }
+        }
+        linkOrCopy(target, blob);
+        if (precompress && PrecompressedVariants.isCompressible(source, size)
+                && !Files.exists(source.resolveSibling(source.getFileName() + PrecompressedVariants.GZIP_SUFFIX))) {
+            Path variant = PrecompressedVariants.gzipVariant(BLOB_ROOT, blob);
+            if (variant != null) {
+                linkOrCopy(target.resolveSibling(target.getFileName() + PrecompressedVariants.GZIP_SUFFIX), variant);
+            }
+        }
+        return blob;
+    }
+
+    /**
+     * 把内容写为 blob（内容已存在时直接复用）
+     */
+    private static void storeContent(Path blob, ByteBuffer[] content) throws IOException {
+        if (touch(blob)) {
+            return;
+        }
+        Path tempFile = createTempFile(blob);
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            writeFully(channel, content);
+            channel.force(false);
+        }
+        moveIntoStore(tempFile, blob);
+    }
+
+    /**
+     * 复用已有的 blob 前刷新其修改时间，使它在 GC_MIN_AGE 内不会被回收（链接数为 1 的旧 blob 可能正等待回收）
+     *
+     * @return blob 不存在时返回 false
+     */
+    private static boolean touch(Path blob) throws IOException {
+        try {
+            Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建指向 blob 的硬链接
+     *
+     * @return 文件系统不支持硬链接时返回 false
+     * @throws NoSuchFileException blob 不存在（如刚好被回收），由调用方重新存入
+     */
+    private static boolean link(Path target, Path blob) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, blob);
+            return true;
+        } catch (FileAlreadyExistsException | NoSuchFileException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // 跨文件系统、Windows FAT 等不支持硬链接的情况
+            log.debug("无法创建硬链接，退化为写入副本: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 通过"临时链接 + 原子 rename"把目标文件替换为指向 blob 的硬链接，替换过程中目标文件始终完整可读
+     *
+     * @return 文件系统不支持硬链接时返回 false
+     * @throws NoSuchFileException blob 不存在（如刚好被回收）
+     */
+    private static boolean replaceWithLink(Path target, Path blob) throws IOException {
+        Path tempLink = target.resolveSibling("." + target.getFileName() + "." + IdUtil.fastSimpleUUID() + ".link");
+        try {
+            Files.createLink(tempLink, blob);
+        } catch (FileAlreadyExistsException | NoSuchFileException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            log.debug("无法创建硬链接，保留原文件: {}", e.getMessage());
+            return false;
+        }
+        try {
+            Files.move(tempLink, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            Files.deleteIfExists(tempLink);
+        }
+    }
+
+    /**
+     * 把当前版本中的隐藏文件以硬链接带入新版本（node_modules 和 dist 除外）
+     */
+    private static void carryOverHiddenFiles(Path currentDir, Path versionDir) throws IOException {
+        Files.walkFileTree(currentDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String relativeDir = currentDir.relativize(dir).toString();
+                return relativeDir.equals(VirtualProject.NODE_MODULES_DIR) || relativeDir.equals(VirtualProject.DIST_DIR)
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path relativePath = currentDir.relativize(file);
+                if (attrs.isRegularFile() && isHidden(relativePath)) {
+                    Path target = versionDir.resolve(relativePath.toString());
+                    Files.createDirectories(target.getParent());
+                    linkOrCopy(target, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isSameFile(Path file, Path blob) {
+        try {
+            Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            return fileKey != null && fileKey.equals(Files.readAttributes(blob, BasicFileAttributes.class).fileKey());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void linkOrCopy(Path target, Path blob) throws IOException {
+        if (!link(target, blob)) {
+            Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path createTempFile(Path blob) throws IOException {
+        Files.createDirectories(blob.getParent());
+        return Files.createFile(blob.resolveSibling("." + blob.getFileName() + "." + IdUtil.fastSimpleUUID() + ".tmp"));
+    }
+
+    /**
+     * 把临时文件原子移动为 blob；并发写入同一内容时保留先到的一份
+     */
+    private static void moveIntoStore(Path tempFile, Path blob) throws IOException {
+        try {
+            if (Files.exists(blob)) {
+                return;
+            }
+            Files.move(tempFile, blob, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static boolean isUnreferenced(Path blob) throws IOException {
+        Object linkCount = Files.getAttribute(blob, "unix:nlink");
+        return linkCount instanceof Integer count && count <= 1;
+    }
+
+    private static boolean isHidden(Path relativePath) {
+        for (Path segment : relativePath) {
+            if (segment.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer[] content) throws IOException {
+        ByteBuffer[] views = new ByteBuffer[content.length];
+        long remaining = 0;
+        for (int i = 0; i < content.length; i++) {
+            views[i] = content[i].duplicate();
+            remaining += views[i].remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(views);
+        }
+    }
+
+    private static Path blobPath(String hash) {
+        return blobPath(BLOB_ROOT, hash);
+    }
+
+    private static Path blobPath(Path blobRoot, String hash) {
+        return blobRoot.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String sha256(ByteBuffer[] content) {
+        MessageDigest digest = newDigest();
+        for (ByteBuffer buffer : content) {
+            digest.update(buffer.duplicate());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -6,9 +6,22 @@ import com.hex.ailowcode.constant.AppConstant;
 import com.hex.ailowcode.exception.BusinessException;
 import com.hex.ailowcode.exception.ErrorCode;
 import com.hex.ailowcode.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 模板设计模式
@@ -21,8 +34,19 @@ public abstract class CodeFileSaverTemplate<T> {
      */
     protected static final String FILE_SAVE_ROOT_DIR = AppConstant.CODE_OUTPUT_ROOT_DIR;
 
+    /**
+     * 写文件使用的直接内存缓冲区大小
+     */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 复用的写缓冲区（保存任务运行在虚拟线程上，ThreadLocal 无法复用，这里用一个小池子，超出的缓冲区用完即丢弃）
+     */
+    private static final BlockingQueue<ByteBuffer> WRITE_BUFFER_POOL = new ArrayBlockingQueue<>(64);
+
     /**
      * 模板公共方法：保存代码的标准流程, 子类不可改变!!!
+     * 文件先全部写入新的版本目录（暂存区）并刷盘，再原子切换预览目录，并发的预览和部署不会读到新旧混杂的文件
      *
      * @param result 代码结果对象
      * @return 保存的文件
@@ -30,12 +54,45 @@ public abstract class CodeFileSaverTemplate<T> {
     public final File saveCode(T result, Long appId) {
         // 1. 验证输入
         validateInput(result);
-        // 2. 构建基于 appId 的目录
-        String baseDirPath = buildUniqueDir(appId);
-        // 3. 保存文件（具体实现由子类提供）
-        saveFiles(result, baseDirPath);
-        // 4. 返回目录文件对象
-        return new File(baseDirPath);
+        // 2. 构建基于 appId 的目录名
+        String dirName = buildDirName(appId);
+        Path rootDir = Path.of(FILE_SAVE_ROOT_DIR);
+        long startNanos = System.nanoTime();
+        Path versionDir;
+        try {
+            versionDir = DirectoryPublisher.createVersionDir(rootDir, dirName);
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "创建版本目录失败：" + e.getMessage());
+        }
+        try {
+            // 3. 保存文件到版本目录（具体实现由子类提供），每个文件写完即刷盘
+            saveFiles(result, versionDir.toString());
+            DirectoryPublisher.syncDirectory(versionDir);
+            long writtenNanos = System.nanoTime();
+            recordSaveDuration("write", writtenNanos - startNanos);
+            // 4. 原子发布为预览目录
+            Path liveDir = DirectoryPublisher.publish(rootDir, dirName, versionDir);
+            recordSaveDuration("publish", System.nanoTime() - writtenNanos);
+            // 5. 返回目录文件对象
+            return liveDir.toFile();
+        } catch (IOException e) {
+            FileUtil.del(versionDir.toFile());
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "发布代码目录失败：" + e.getMessage());
+        } catch (RuntimeException e) {
+            FileUtil.del(versionDir.toFile());
+            throw e;
+        }
+    }
+
+    /**
+     * 模板公共方法：开启一个流式保存会话（边生成边保存）, 子类不可改变!!!
+     * 与 saveCode 相同，文件先写入新的版本目录再原子发布，每个代码块闭合后发布一次；文件名由子类的 getFileName 决定
+     *
+     * @param appId 应用 ID
+     * @return 流式保存会话，作为 StreamingCodeParser 的监听器使用
+     */
+    public final StreamingCodeFileSaver openStreamingSaver(Long appId) {
+        return new StreamingCodeFileSaver(Path.of(FILE_SAVE_ROOT_DIR), buildDirName(appId), this::getFileName);
     }
 
     /**
@@ -51,20 +108,14 @@ public abstract class CodeFileSaverTemplate<T> {
     }
 
     /**
-     * 2. 构建文件的唯一目录
-     * tmp/code_output/bizType_雪花 ID
-     *
-     * @return 目录路径
+     * 2. 预览目录名：bizType_appId
      */
-    protected final String buildUniqueDir(Long appId) {
+    private String buildDirName(Long appId) {
         if (appId == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
         }
         String codeType = getCodeType().getValue();
-        String uniqueDirName = StrUtil.format("{}_{}", codeType, appId);
-        String dirPath = FILE_SAVE_ROOT_DIR + File.separator + uniqueDirName;
-        FileUtil.mkdir(dirPath);
-        return dirPath;
+        return StrUtil.format("{}_{}", codeType, appId);
     }
 
     /**
@@ -78,18 +129,85 @@ public abstract class CodeFileSaverTemplate<T> {
 
     /**
      * 给子类使用的工具方法, 用于写入文件, 不需要重写
+     * 内容可以是解析结果中指向完整响应的视图：直接编码进复用的 ByteBuffer，整个文件通过一个 FileChannel
+     * 一次聚集写（gather write）写入 blob 存储，最后只刷一次盘，不再复制出中间字符串和字节数组；
+     * 内容与已有 blob 相同时不再写入，只创建硬链接
      *
      * @param dirPath  目录路径
      * @param filename 文件名
      * @param content  文件内容
      */
-    public final void writeToFile(String dirPath, String filename, String content) {
-        if (StrUtil.isNotBlank(content)) {
-            String filePath = dirPath + File.separator + filename;
-            FileUtil.writeString(content, filePath, StandardCharsets.UTF_8);
+    public final void writeToFile(String dirPath, String filename, CharSequence content) {
+        if (StrUtil.isBlank(content)) {
+            return;
+        }
+        Path filePath = Path.of(dirPath, filename);
+        List<ByteBuffer> buffers = new ArrayList<>();
+        try {
+            encode(content, buffers);
+            // 内容存入 blob 存储（相同内容只写一次），目标文件为指向 blob 的硬链接
+            BlobStore.writeLinked(filePath, buffers.toArray(ByteBuffer[]::new));
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "写入文件失败：" + filename + "，" + e.getMessage());
+        } finally {
+            buffers.forEach(CodeFileSaverTemplate::returnWriteBuffer);
         }
     }
 
+    /**
+     * 把内容按 UTF-8 编码进若干个复用的缓冲区（已 flip，可直接写出）
+     * 与 String.getBytes(UTF_8) 一致：无法编码的字符（单独的代理项）替换为 ?
+     */
+    private static void encode(CharSequence content, List<ByteBuffer> buffers) {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.wrap(content);
+        ByteBuffer buffer = borrowWriteBuffer();
+        buffers.add(buffer);
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            buffer.flip();
+            buffer = borrowWriteBuffer();
+            buffers.add(buffer);
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            buffer.flip();
+            buffer = borrowWriteBuffer();
+            buffers.add(buffer);
+        }
+        buffer.flip();
+    }
+
+    /**
+     * 记录保存耗时：write 为写入版本目录并刷盘，publish 为原子切换预览目录
+     */
+    private void recordSaveDuration(String phase, long nanos) {
+        Timer.builder("code_file_save_duration_seconds")
+                .description("代码文件保存耗时")
+                .tag("code_gen_type", getCodeType().getValue())
+                .tag("phase", phase)
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static ByteBuffer borrowWriteBuffer() {
+        ByteBuffer buffer = WRITE_BUFFER_POOL.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    }
+
+    private static void returnWriteBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        WRITE_BUFFER_POOL.offer(buffer);
+    }
+
+    /**
+     * 流式保存时，代码块语言对应保存的文件名
+     *
+     * @param language 归一化后的语言标签（html / css / js）
+     * @return 文件名，返回 null 表示该语言的代码块不需要保存
+     */
+    protected abstract String getFileName(String language);
+
     /**
      * 获取代码生成类型, 也是工具方法 不需要重写
      *
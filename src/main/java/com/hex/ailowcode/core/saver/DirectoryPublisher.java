@@ -0,0 +1,147 @@
+package com.hex.ailowcode.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 目录原子发布工具
+ *
+ * 预览目录 {root}/{type}_{appId} 是一个指向版本目录 {root}/.versions/{type}_{appId}/{版本号} 的符号链接：
+ * 1. 新版本的文件全部写入一个新的版本目录（暂存区，对预览和部署不可见）
+ * 2. 创建指向新版本的临时链接，再通过 rename 原子替换预览目录链接
+ * 读取方要么看到完整的旧版本，要么看到完整的新版本；任意时刻崩溃，预览目录都指向一个完整的版本
+ *
+ * 不支持符号链接的文件系统（如未开启开发者模式的 Windows）退化为"旧目录移走 + 新目录移入"两次 rename
+ */
+@Slf4j
+final class DirectoryPublisher {
+
+    /**
+     * 版本目录所在的隐藏目录
+     */
+    static final String VERSIONS_DIR = ".versions";
+
+    /**
+     * 清理旧版本时保留的最短时间，避免删除并发保存中的版本目录或仍在被读取的上一个版本
+     */
+    private static final Duration VERSION_RETENTION = Duration.ofMinutes(5);
+
+    private DirectoryPublisher() {
+    }
+
+    /**
+     * 创建一个新的版本目录（暂存区）
+     *
+     * @param rootDir 输出根目录
+     * @param dirName 预览目录名 {type}_{appId}
+     * @return 版本目录
+     */
+    static Path createVersionDir(Path rootDir, String dirName) throws IOException {
+        String versionName = System.currentTimeMillis() + "_" + IdUtil.fastSimpleUUID().substring(0, 8);
+        Path versionDir = rootDir.resolve(VERSIONS_DIR).resolve(dirName).resolve(versionName);
+        Files.createDirectories(versionDir);
+        return versionDir;
+    }
+
+    /**
+     * 把版本目录原子发布为预览目录
+     *
+     * @param rootDir    输出根目录
+     * @param dirName    预览目录名 {type}_{appId}
+     * @param versionDir 已经写完并刷盘的版本目录
+     * @return 预览目录
+     */
+    static Path publish(Path rootDir, String dirName, Path versionDir) throws IOException {
+        Path liveDir = rootDir.resolve(dirName);
+        Path previousVersion = Files.isSymbolicLink(liveDir) ? liveDir.resolveSibling(Files.readSymbolicLink(liveDir)) : null;
+        if (Files.exists(liveDir, LinkOption.NOFOLLOW_LINKS) && !Files.isSymbolicLink(liveDir)) {
+            // 旧的实体目录（升级前生成或文件系统不支持符号链接），先整体移入版本目录
+            previousVersion = rootDir.resolve(VERSIONS_DIR).resolve(dirName).resolve("replaced_" + System.currentTimeMillis());
+            Files.move(liveDir, previousVersion, StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (!swapLink(rootDir, liveDir, versionDir)) {
+            // 不支持符号链接：直接把版本目录移动为预览目录
+            Files.move(versionDir, liveDir, StandardCopyOption.ATOMIC_MOVE);
+        }
+        syncDirectory(rootDir);
+        removeStaleVersions(rootDir.resolve(VERSIONS_DIR).resolve(dirName), versionDir, previousVersion);
+        // 旧版本删除后，不再被引用的 blob 可以回收
+        BlobStore.collectGarbageIfDue();
+        return liveDir;
+    }
+
+    /**
+     * 创建临时链接并原子替换预览目录链接
+     *
+     * @return 文件系统不支持符号链接时返回 false
+     */
+    private static boolean swapLink(Path rootDir, Path liveDir, Path versionDir) throws IOException {
+        Path tempLink = rootDir.resolve("." + liveDir.getFileName() + "." + IdUtil.fastSimpleUUID() + ".link");
+        try {
+            // 使用相对路径，根目录整体迁移后链接仍然有效
+            Files.createSymbolicLink(tempLink, rootDir.relativize(versionDir));
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            log.debug("文件系统不支持符号链接，退化为目录 rename 发布: {}", e.getMessage());
+            return false;
+        }
+        try {
+            Files.move(tempLink, liveDir, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            Files.deleteIfExists(tempLink);
+            throw e;
+        }
+    }
+
+    /**
+     * 目录刷盘，保证 rename 在崩溃后仍然可见（部分平台不支持打开目录，忽略）
+     */
+    static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("目录刷盘失败（平台不支持）: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 删除过期的版本：保留当前版本和上一个版本，其余超过保留时间的版本（包括崩溃遗留的暂存目录）删除
+     */
+    private static void removeStaleVersions(Path versionsRoot, Path currentVersion, Path previousVersion) {
+        if (!Files.isDirectory(versionsRoot)) {
+            return;
+        }
+        Instant expireBefore = Instant.now().minus(VERSION_RETENTION);
+        try (Stream<Path> versions = Files.list(versionsRoot)) {
+            List<Path> staleVersions = versions
+                    .filter(version -> !version.equals(currentVersion) && !version.equals(previousVersion))
+                    .filter(version -> isModifiedBefore(version, expireBefore))
+                    .toList();
+            staleVersions.forEach(version -> FileUtil.del(version.toFile()));
+        } catch (IOException e) {
+            log.warn("清理旧版本目录失败: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isModifiedBefore(Path path, Instant instant) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isBefore(instant);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -19,14 +19,19 @@ public class HtmlCodeFileSaver extends CodeFileSaverTemplate<HtmlCodeResult> {
 
     @Override
     protected void saveFiles(HtmlCodeResult result, String baseDirPath) {
-        writeToFile(baseDirPath, "index.html", result.getHtmlCode());
+        writeToFile(baseDirPath, "index.html", result.htmlCodeContent());
+    }
+
+    @Override
+    protected String getFileName(String language) {
+        return "html".equals(language) ? "index.html" : null;
     }
 
     @Override
     protected void validateInput(HtmlCodeResult result) {
         super.validateInput(result);
         // HTML 代码不能为空
-        if (StrUtil.isBlank(result.getHtmlCode())) {
+        if (StrUtil.isBlank(result.htmlCodeContent())) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "HTML 代码不能为空");
         }
     }
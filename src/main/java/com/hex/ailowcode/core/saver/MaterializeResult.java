@@ -0,0 +1,29 @@
+package com.hex.ailowcode.core.saver;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.File;
+
+/**
+ * 目录物化（部署）结果
+ */
+@Getter
+@AllArgsConstructor
+public class MaterializeResult {
+
+    /**
+     * 发布后的目标目录
+     */
+    private final File dir;
+
+    /**
+     * 被压缩（minify）的文件压缩前的总字节数
+     */
+    private final long minifyOriginalBytes;
+
+    /**
+     * 被压缩（minify）的文件压缩后的总字节数
+     */
+    private final long minifiedBytes;
+}
@@ -0,0 +1,86 @@
+package com.hex.ailowcode.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import com.hex.ailowcode.core.optimizer.AssetMinifierExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 压缩（minify）变体
+ *
+ * 部署时用 AssetMinifierExecutor 压缩 html/css/js，结果按原内容哈希缓存在 {blob 根目录}/min/{哈希}.{扩展名}.v{压缩策略版本}，
+ * 内容和类型都相同的文件只压缩一次（压缩策略由扩展名决定，同一内容以不同扩展名部署时各自压缩）；code_output 中的源码保持原样（模型和 Vue 工程模式读取的都是可读的源码）
+ */
+@Slf4j
+final class MinifiedVariants {
+
+    private static final String MIN_DIR = "min";
+
+    /**
+     * 压缩策略版本：压缩规则变化时递增，使旧的缓存结果失效
+     */
+    private static final int MINIFIER_VERSION = 2;
+
+    /**
+     * 超过该大小的文件（通常已经是构建工具打包压缩过的）不处理
+     */
+    private static final long MAX_SIZE = 2 * 1024 * 1024;
+
+    private MinifiedVariants() {
+    }
+
+    /**
+     * 是否需要压缩该文件（已经压缩过的 .min.* 文件不处理）
+     */
+    static boolean isMinifiable(Path file, long size) {
+        String fileName = file.getFileName().toString().toLowerCase();
+        return size <= MAX_SIZE && !fileName.contains(".min.") && AssetMinifierExecutor.supports(FileUtil.extName(fileName));
+    }
+
+    /**
+     * 获取 blob 的压缩变体，不存在时压缩生成
+     *
+     * @param blobRoot blob 根目录
+     * @param blob     原内容 blob
+     * @param fileName 原文件名（决定压缩策略）
+     * @return 压缩变体文件，压缩后没有变小或内容不是 UTF-8 时返回 null
+     */
+    static Path minifiedVariant(Path blobRoot, Path blob, String fileName) throws IOException {
+        String extension = FileUtil.extName(fileName).toLowerCase();
+        Path variant = blobRoot.resolve(MIN_DIR).resolve(blob.getFileName() + "." + extension + ".v" + MINIFIER_VERSION);
+        if (Files.exists(variant)) {
+            return variant;
+        }
+        String content;
+        try {
+            content = Files.readString(blob, StandardCharsets.UTF_8);
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+        String minified = AssetMinifierExecutor.executeMinifier(extension, content);
+        if (minified == null || minified.length() >= content.length()) {
+            return null;
+        }
+        Files.createDirectories(variant.getParent());
+        Path tempFile = variant.resolveSibling("." + variant.getFileName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            Files.writeString(tempFile, minified, StandardCharsets.UTF_8);
+            try {
+                Files.move(tempFile, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // 并发部署同一内容，已有的压缩结果与本次相同
+            }
+            return variant;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -20,18 +20,28 @@ public class MultiFileCodeFileSaver extends CodeFileSaverTemplate<MultiFileCodeR
     @Override
     protected void saveFiles(MultiFileCodeResult result, String baseDirPath) {
         // 保存 HTML 文件
-        writeToFile(baseDirPath, "index.html", result.getHtmlCode());
+        writeToFile(baseDirPath, "index.html", result.htmlCodeContent());
         // 保存 CSS 文件
-        writeToFile(baseDirPath, "style.css", result.getCssCode());
+        writeToFile(baseDirPath, "style.css", result.cssCodeContent());
         // 保存 JavaScript 文件
-        writeToFile(baseDirPath, "script.js", result.getJsCode());
+        writeToFile(baseDirPath, "script.js", result.jsCodeContent());
+    }
+
+    @Override
+    protected String getFileName(String language) {
+        return switch (language) {
+            case "html" -> "index.html";
+            case "css" -> "style.css";
+            case "js" -> "script.js";
+            default -> null;
+        };
     }
 
     @Override
     protected void validateInput(MultiFileCodeResult result) {
         super.validateInput(result);
         // 至少要有 HTML 代码，CSS 和 JS 可以为空
-        if (StrUtil.isBlank(result.getHtmlCode())) {
+        if (StrUtil.isBlank(result.htmlCodeContent())) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "HTML代码内容不能为空");
         }
     }
@@ -0,0 +1,144 @@
+package com.hex.ailowcode.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预压缩变体（.gz）
+ *
+ * 部署时为文本类静态文件生成 gzip 压缩版本，nginx 开启 gzip_static 后直接返回压缩文件，压缩只在写入时做一次，
+ * 不再在每个请求上压缩。压缩结果按原内容哈希缓存在 {blob 根目录}/gz/{哈希}.gz，内容相同的文件只压缩一次，
+ * 和 blob 一样以硬链接的形式出现在部署目录中，不再被引用时由 blob 回收一并清理。
+ * 压缩收益不足的内容在同一位置留下一个空的 .skip 标记，之后的部署直接跳过，不再重复压缩。
+ *
+ * brotli 目前没有可用的纯 Java 编码器，暂只生成 gzip。
+ */
+final class PrecompressedVariants {
+
+    static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * 压缩收益不足的标记文件后缀（{哈希}.gz.skip）
+     */
+    static final String SKIP_MARKER_SUFFIX = ".skip";
+
+    private static final String GZIP_DIR = "gz";
+
+    /**
+     * 值得预压缩的文件类型（图片、字体等已压缩格式不处理）
+     */
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("html", "htm", "css", "js", "mjs", "json",
+            "svg", "xml", "txt", "map");
+
+    /**
+     * 小于该大小的文件压缩收益不足以抵消额外的文件查找，与 nginx gzip_min_length 的常用值一致
+     */
+    private static final long MIN_SIZE = 1024;
+
+    /**
+     * 压缩后至少要小于原文件的比例，否则不生成压缩变体
+     */
+    private static final double MAX_RATIO = 0.9;
+
+    private PrecompressedVariants() {
+    }
+
+    /**
+     * 是否需要为该文件生成压缩变体
+     */
+    static boolean isCompressible(Path file, long size) {
+        return size >= MIN_SIZE && COMPRESSIBLE_EXTENSIONS.contains(FileUtil.extName(file.getFileName().toString()).toLowerCase());
+    }
+
+    /**
+     * 获取 blob 的 gzip 变体，不存在时压缩生成（最高压缩级别，只做一次）
+     *
+     * @param blobRoot blob 根目录
+     * @param blob     原内容 blob（或 minify 变体）
+     * @return gzip 变体文件，压缩收益不足时返回 null
+     */
+    static Path gzipVariant(Path blobRoot, Path blob) throws IOException {
+        // minify 变体的文件名带有压缩策略后缀，与原内容的压缩结果互不冲突
+        Path variant = blobRoot.resolve(GZIP_DIR).resolve(blob.getFileName() + GZIP_SUFFIX);
+        if (Files.exists(variant)) {
+            recordVariant("reused");
+            return variant;
+        }
+        Path skipMarker = variant.resolveSibling(variant.getFileName() + SKIP_MARKER_SUFFIX);
+        if (Files.exists(skipMarker)) {
+            // 刷新修改时间，仍在使用的标记不会被回收
+            touch(skipMarker);
+            recordVariant("skipped");
+            return null;
+        }
+        Files.createDirectories(variant.getParent());
+        Path tempFile = variant.resolveSibling("." + variant.getFileName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            try (InputStream inputStream = Files.newInputStream(blob);
+                 OutputStream outputStream = new BestCompressionGzipOutputStream(Files.newOutputStream(tempFile))) {
+                inputStream.transferTo(outputStream);
+            }
+            if (Files.size(tempFile) >= Files.size(blob) * MAX_RATIO) {
+                try {
+                    Files.createFile(skipMarker);
+                } catch (FileAlreadyExistsException e) {
+                    // 并发部署同一内容
+                }
+                recordVariant("skipped");
+                return null;
+            }
+            try {
+                Files.move(tempFile, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // 并发部署同一内容，已有的压缩结果与本次相同
+            }
+            recordVariant("compressed");
+            return variant;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            // 标记刚好被回收，下次部署重新压缩一次即可
+        }
+    }
+
+    private static void recordVariant(String result) {
+        Counter.builder("code_precompressed_files_total")
+                .description("部署时预压缩文件数（compressed 新压缩 / reused 复用已有压缩结果 / skipped 收益不足）")
+                .tag("encoding", "gzip")
+                .tag("result", result)
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+
+    /**
+     * 使用最高压缩级别的 gzip 输出流（文件头时间戳固定为 0，相同内容得到相同的压缩结果）
+     */
+    private static final class BestCompressionGzipOutputStream extends GZIPOutputStream {
+
+        BestCompressionGzipOutputStream(OutputStream out) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
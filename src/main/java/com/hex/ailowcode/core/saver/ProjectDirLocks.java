@@ -0,0 +1,35 @@
+package com.hex.ailowcode.core.saver;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import java.nio.file.Path;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 项目目录锁：同一个预览目录（{root}/{type}_{appId}）上会互相破坏的操作按目录互斥
+ * - 发布新版本（VirtualProject.flush、按文件表发布）会把 node_modules 移入新版本并丢弃 dist
+ * - Vue 工程构建在当前版本目录中链接依赖、执行 npm run build，部署时再从该版本目录读取 dist
+ * 构建期间持有锁，发布等构建结束后再移走依赖目录；构建结束后发布的新版本不影响已经解析出的旧版本目录
+ *
+ * 每个目录一把锁（不分段），长时间的构建不会挡住其他应用的发布；锁对象弱引用，没有持有者时回收
+ */
+public final class ProjectDirLocks {
+
+    private static final LoadingCache<String, Lock> LOCKS = Caffeine.newBuilder()
+            .weakValues()
+            .build(key -> new ReentrantLock());
+
+    private ProjectDirLocks() {
+    }
+
+    /**
+     * 获取预览目录对应的锁
+     *
+     * @param liveDir 预览目录
+     */
+    public static Lock lockFor(Path liveDir) {
+        return LOCKS.get(liveDir.toAbsolutePath().normalize().toString());
+    }
+}
@@ -0,0 +1,151 @@
+package com.hex.ailowcode.core.saver;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Vue 工程文件索引：每个应用一份 相对路径 -> (大小, 内容哈希)
+ *
+ * - 第一次访问时遍历一次项目目录建立索引（依赖目录和构建产物除外），并叠加进行中轮次尚未发布的写入
+ * - 之后文件工具的每次写入都同步更新索引，列目录不再访问磁盘
+ * - 索引记录建立时预览目录链接指向的版本目录，任何发布（本轮写入、流式保存、版本回滚）切换链接后，下次访问时重建
+ * - 在当前版本目录中原地修改项目的操作（构建写入 package-lock.json、丢弃本轮写入、删除应用）调用 invalidate
+ */
+@Slf4j
+@Component
+public class ProjectFileIndex {
+
+    /**
+     * 不纳入索引的目录：依赖和构建产物
+     */
+    private static final Set<String> EXCLUDED_DIRS = Set.of("node_modules", "dist");
+
+    /**
+     * appId -> 建立索引时的版本目录和按路径排序的文件表
+     */
+    private final Cache<Long, ProjectIndex> indexes = Caffeine.newBuilder()
+            .maximumSize(1024)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+
+    /**
+     * 获取应用的文件索引
+     *
+     * @param appId       应用 ID
+     * @param projectRoot 项目目录
+     * @param active      进行中轮次的内存项目树，可以为 null
+     * @return 只读的文件表（按路径排序）
+     */
+    public NavigableMap<String, FileMeta> getIndex(Long appId, Path projectRoot, VirtualProject active) throws IOException {
+        Path versionDir = Files.isDirectory(projectRoot) ? projectRoot.toRealPath() : projectRoot;
+        ProjectIndex cached = indexes.getIfPresent(appId);
+        if (cached != null && !cached.versionDir().equals(versionDir)) {
+            // 预览目录已经切换到新发布的版本
+            indexes.asMap().remove(appId, cached);
+        }
+        try {
+            return Collections.unmodifiableNavigableMap(indexes.get(appId, id -> load(versionDir, active)).files());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 记录一次文件写入，索引尚未建立时不做任何事（之后建立时会读到这次写入）
+     *
+     * 使用 compute 而不是 computeIfPresent：后者在没有值时直接返回，不会等待进行中的建立，
+     * compute 会等建立完成后再把写入应用到新索引上，建立过程中发生的写入不会丢失
+     */
+    public void recordWrite(Long appId, String relativePath, byte[] content) {
+        FileMeta meta = FileMeta.of(content);
+        indexes.asMap().compute(appId, (id, index) -> {
+            if (index != null) {
+                index.files().put(relativePath, meta);
+            }
+            return index;
+        });
+    }
+
+    /**
+     * 项目文件被文件工具之外的操作修改，丢弃索引
+     */
+    public void invalidate(Long appId) {
+        indexes.invalidate(appId);
+    }
+
+    private ProjectIndex load(Path versionDir, VirtualProject active) {
+        ConcurrentSkipListMap<String, FileMeta> index = new ConcurrentSkipListMap<>();
+        try {
+            if (Files.isDirectory(versionDir)) {
+                Path root = versionDir;
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        return EXCLUDED_DIRS.contains(root.relativize(dir).toString())
+                                ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        if (attrs.isRegularFile()) {
+                            String relativePath = root.relativize(file).toString().replace('\\', '/');
+                            index.put(relativePath, new FileMeta(attrs.size(), DigestUtil.sha256Hex(file.toFile())));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+            // 叠加本轮尚未发布的写入
+            if (active != null) {
+                for (String relativePath : active.writtenPaths()) {
+                    byte[] content = active.read(relativePath);
+                    if (content != null) {
+                        index.put(relativePath, FileMeta.of(content));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("建立项目文件索引: {}, 文件 {} 个", versionDir, index.size());
+        return new ProjectIndex(versionDir, index);
+    }
+
+    /**
+     * 一个应用的索引
+     *
+     * @param versionDir 建立索引时预览目录指向的版本目录
+     * @param files      按路径排序的文件表
+     */
+    private record ProjectIndex(Path versionDir, ConcurrentSkipListMap<String, FileMeta> files) {
+    }
+
+    /**
+     * 索引中的文件信息
+     *
+     * @param size 文件大小（字节）
+     * @param hash 内容的 SHA-256
+     */
+    public record FileMeta(long size, String hash) {
+
+        static FileMeta of(byte[] content) {
+            return new FileMeta(content.length, DigestUtil.sha256Hex(content));
+        }
+    }
+}
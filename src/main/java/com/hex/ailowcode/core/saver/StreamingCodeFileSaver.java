@@ -0,0 +1,348 @@
+package com.hex.ailowcode.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import com.hex.ailowcode.core.parser.CodeBlock;
+import com.hex.ailowcode.core.parser.CodeBlockListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 流式保存会话（边生成边保存）
+ * 作为 StreamingCodeParser 的监听器使用，一个生成流对应一个实例：
+ * 1. 代码块开始时准备一个新的版本目录（暂存区，对预览和部署不可见），本轮已经完成的文件从上一个版本以硬链接带入
+ * 2. 每个 chunk 的新增内容编码进复用的 ByteBuffer，通过该文件唯一的 FileChannel 追加写入暂存区中隐藏的临时文件，同时计算内容哈希
+ * 3. 围栏闭合后刷盘（force），rename 为 index.html / style.css / script.js 并纳入 blob 存储，
+ *    再通过 DirectoryPublisher 把暂存区原子发布为预览目录：预览随每个代码块更新
+ * 4. 生成流正常结束时调用 finish；异常结束或取消时调用 abort 删除还没有发布的暂存区，已经发布的代码块保留
+ * 读取方看到的每个版本都只包含已经完整写入并刷盘的文件，不会看到写了一半的文件
+ *
+ * 与 CodeParser 的语义保持一致：每种语言只取第一个非空代码块，内容首尾空白（<= ' '，与 CodeSlice.trim 相同）会被去掉，
+ * 编码规则与 CodeFileSaverTemplate.writeToFile 相同（无法编码的字符替换为 ?），两条保存路径写出的字节一致
+ * 写入或发布失败时会话失效，isCompleted 返回 false，由调用方改用整体保存
+ *
+ * 解析回调在 Flux 的 onNext 中串行执行，finish / abort 可能来自其他线程，方法均加锁
+ */
+@Slf4j
+public class StreamingCodeFileSaver implements CodeBlockListener {
+
+    /**
+     * 写缓冲区大小（每个会话一个，所有代码块复用）
+     */
+    private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+    private final Path rootDir;
+
+    private final String dirName;
+
+    /**
+     * 语言标签 -> 文件名，返回 null 表示该语言不需要保存
+     */
+    private final Function<String, String> fileNameResolver;
+
+    /**
+     * 本会话最近一次发布的版本目录
+     */
+    private Path publishedDir;
+
+    /**
+     * 为当前代码块准备的版本目录（暂存区），发布后置空
+     */
+    private Path stagingDir;
+
+    private boolean closed;
+
+    private boolean failed;
+
+    /**
+     * 已经发布的文件名（按完成顺序），同一个文件只保存第一个非空代码块
+     */
+    private final Set<String> completedFiles = new LinkedHashSet<>();
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private ByteBuffer writeBuffer;
+
+    private String currentFileName;
+
+    private Path currentTempFile;
+
+    private FileChannel currentChannel;
+
+    private MessageDigest currentDigest;
+
+    /**
+     * 是否已经写出过非空白字符（用于去掉开头空白）
+     */
+    private boolean contentStarted;
+
+    /**
+     * 尚未写出的空白字符（用于去掉结尾空白）
+     */
+    private final StringBuilder pendingWhitespace = new StringBuilder();
+
+    /**
+     * 上一段内容末尾还没有配对的高代理项，与下一段开头的低代理项一起编码
+     */
+    private char pendingHighSurrogate;
+
+    /**
+     * @param rootDir          输出根目录
+     * @param dirName          预览目录名 {type}_{appId}
+     * @param fileNameResolver 语言标签 -> 文件名
+     */
+    public StreamingCodeFileSaver(Path rootDir, String dirName, Function<String, String> fileNameResolver) {
+        this.rootDir = rootDir;
+        this.dirName = dirName;
+        this.fileNameResolver = fileNameResolver;
+    }
+
+    @Override
+    public synchronized void onBlockStart(String language) {
+        String fileName = fileNameResolver.apply(language);
+        if (closed || fileName == null || completedFiles.contains(fileName)) {
+            return;
+        }
+        try {
+            if (stagingDir == null) {
+                stagingDir = DirectoryPublisher.createVersionDir(rootDir, dirName);
+                linkCompletedFiles();
+            }
+            currentTempFile = stagingDir.resolve("." + fileName + "." + IdUtil.fastSimpleUUID() + ".tmp");
+            currentChannel = FileChannel.open(currentTempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            currentDigest = newDigest();
+            currentFileName = fileName;
+            encoder.reset();
+            contentStarted = false;
+            pendingWhitespace.setLength(0);
+            pendingHighSurrogate = 0;
+        } catch (IOException e) {
+            fail("创建临时文件失败", e);
+        }
+    }
+
+    @Override
+    public synchronized void onBlockContent(String language, CharSequence content) {
+        if (currentChannel == null) {
+            return;
+        }
+        try {
+            int start = 0;
+            int end = content.length();
+            if (!contentStarted) {
+                // 去掉代码块开头的空白
+                while (start < end && content.charAt(start) <= ' ') {
+                    start++;
+                }
+                if (start == end) {
+                    return;
+                }
+                contentStarted = true;
+            }
+            // 结尾空白先暂存，遇到后续非空白字符再写出
+            int lastNonWhitespace = end - 1;
+            while (lastNonWhitespace >= start && content.charAt(lastNonWhitespace) <= ' ') {
+                lastNonWhitespace--;
+            }
+            if (lastNonWhitespace < start) {
+                pendingWhitespace.append(content, start, end);
+                return;
+            }
+            if (!pendingWhitespace.isEmpty()) {
+                write(pendingWhitespace, 0, pendingWhitespace.length(), false);
+                pendingWhitespace.setLength(0);
+            }
+            write(content, start, lastNonWhitespace + 1, false);
+            pendingWhitespace.append(content, lastNonWhitespace + 1, end);
+        } catch (IOException e) {
+            fail("写入临时文件失败", e);
+        }
+    }
+
+    @Override
+    public synchronized void onBlockComplete(CodeBlock codeBlock) {
+        if (currentChannel == null) {
+            return;
+        }
+        if (!contentStarted) {
+            // 空代码块不发布，等待同语言的下一个代码块（暂存区留给下一个代码块）
+            discardCurrent();
+            return;
+        }
+        String fileName = currentFileName;
+        try {
+            write("", 0, 0, true);
+            currentChannel.force(false);
+            currentChannel.close();
+            currentChannel = null;
+            Path target = stagingDir.resolve(fileName);
+            Files.move(currentTempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            currentTempFile = null;
+            // 边写边算好了哈希，纳入 blob 存储时不必再读取文件
+            BlobStore.adoptWritten(target, HexFormat.of().formatHex(currentDigest.digest()));
+            DirectoryPublisher.syncDirectory(stagingDir);
+            DirectoryPublisher.publish(rootDir, dirName, stagingDir);
+            publishedDir = stagingDir;
+            stagingDir = null;
+            completedFiles.add(fileName);
+            log.info("流式保存发布文件: {}/{}", dirName, fileName);
+        } catch (IOException e) {
+            fail("发布文件失败: " + fileName, e);
+        } finally {
+            discardCurrent();
+        }
+    }
+
+    /**
+     * 指定文件是否已经写入并发布（会话失效后返回 false）
+     */
+    public synchronized boolean isCompleted(String fileName) {
+        return !failed && completedFiles.contains(fileName);
+    }
+
+    /**
+     * 生成流正常结束：已经完成的代码块都已发布，删除为未闭合的代码块准备的暂存区
+     *
+     * @return 预览目录
+     */
+    public synchronized Path finish() {
+        if (closed || publishedDir == null) {
+            throw new IllegalStateException("没有已发布的流式保存内容: " + dirName);
+        }
+        closed = true;
+        discardStaging();
+        return rootDir.resolve(dirName);
+    }
+
+    /**
+     * 流异常结束、被取消或改用整体保存时调用，删除还没有发布的暂存区（已经结束时不做任何事）
+     */
+    public synchronized void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        discardStaging();
+    }
+
+    /**
+     * 把本轮已经发布的文件以硬链接带入新的暂存区
+     */
+    private void linkCompletedFiles() throws IOException {
+        for (String fileName : completedFiles) {
+            Path source = publishedDir.resolve(fileName);
+            Path target = stagingDir.resolve(fileName);
+            try {
+                Files.createLink(target, source);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(source, target);
+            }
+        }
+    }
+
+    /**
+     * 把内容编码后写入当前文件
+     *
+     * @param endOfInput 是否为代码块的结尾（冲刷编码器，单独的高代理项替换为 ?）
+     */
+    private void write(CharSequence text, int start, int end, boolean endOfInput) throws IOException {
+        CharBuffer chars = pendingHighSurrogate == 0 ? CharBuffer.wrap(text, start, end)
+                : CharBuffer.wrap(new StringBuilder(end - start + 1).append(pendingHighSurrogate).append(text, start, end));
+        pendingHighSurrogate = 0;
+        if (writeBuffer == null) {
+            writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        }
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, writeBuffer, endOfInput);
+            drain();
+        } while (result.isOverflow());
+        if (endOfInput) {
+            while (encoder.flush(writeBuffer).isOverflow()) {
+                drain();
+            }
+            drain();
+        } else if (chars.hasRemaining()) {
+            pendingHighSurrogate = chars.get();
+        }
+    }
+
+    private void drain() throws IOException {
+        writeBuffer.flip();
+        currentDigest.update(writeBuffer.duplicate());
+        while (writeBuffer.hasRemaining()) {
+            currentChannel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    /**
+     * 写入或发布失败：会话失效，之后的代码块不再保存
+     */
+    private void fail(String message, IOException e) {
+        log.error("流式保存{}，改为整体保存: {}", message, e.getMessage());
+        failed = true;
+        closed = true;
+        discardCurrent();
+        discardStaging();
+    }
+
+    private void discardStaging() {
+        discardCurrent();
+        if (stagingDir != null) {
+            FileUtil.del(stagingDir.toFile());
+            stagingDir = null;
+        }
+    }
+
+    private void discardCurrent() {
+        if (currentChannel != null) {
+            try {
+                currentChannel.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响清理
+            }
+            currentChannel = null;
+        }
+        if (currentTempFile != null) {
+            try {
+                Files.deleteIfExists(currentTempFile);
+            } catch (IOException e) {
+                log.warn("删除临时文件失败: {}", currentTempFile);
+            }
+            currentTempFile = null;
+        }
+        currentFileName = null;
+        currentDigest = null;
+        pendingWhitespace.setLength(0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.hex.ailowcode.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 一轮生成中的内存项目树（相对路径 -> 文件内容）
+ *
+ * Vue 工程模式下 Agent 的文件写入工具先写入内存，同一个文件在一轮中多次改写只保留最后一次，
+ * 本轮生成成功结束时一次性发布到 {root}/{dirName}：
+ * 1. 本轮写入的文件按路径顺序存入 blob 并链接到新的版本目录（暂存区）
+ * 2. 当前项目中本轮没有改写的文件以硬链接的形式带入新版本，node_modules 整体移入（dist 为旧的构建产物，丢弃）
+ * 3. 通过 DirectoryPublisher 原子切换预览目录链接，读取方要么看到上一轮的完整项目，要么看到本轮的完整项目
+ * 发布持有项目目录锁（ProjectDirLocks），等待进行中的构建结束，不会移走正在构建的版本的依赖目录
+ *
+ * 内存中的内容超过上限时全部溢写到暂存区，之后的写入直接落盘；本轮失败或取消时丢弃，磁盘上的项目保持不变
+ *
+ * 线程安全：工具调用可能发生在不同线程上
+ */
+@Slf4j
+public class VirtualProject {
+
+    /**
+     * 发布新版本时整体移入的依赖目录
+     */
+    static final String NODE_MODULES_DIR = "node_modules";
+
+    /**
+     * 发布新版本时丢弃的构建产物目录
+     */
+    static final String DIST_DIR = "dist";
+
+    private final Path rootDir;
+
+    private final String dirName;
+
+    private final long memoryLimitBytes;
+
+    /**
+     * 内存中的文件，按路径排序，发布时按顺序写入
+     */
+    private final TreeMap<String, byte[]> memoryFiles = new TreeMap<>();
+
+    /**
+     * 已经溢写到暂存区的文件
+     */
+    private final Set<String> spilledFiles = new HashSet<>();
+
+    private long memoryBytes;
+
+    private int writeCount;
+
+    /**
+     * 暂存的版本目录，第一次溢写或发布时创建
+     */
+    private Path stagingDir;
+
+    private boolean closed;
+
+    /**
+     * @param rootDir          输出根目录
+     * @param dirName          项目目录名 vue_project_{appId}
+     * @param memoryLimitBytes 内存中缓冲的文件总大小上限
+     */
+    public VirtualProject(Path rootDir, String dirName, long memoryLimitBytes) {
+        this.rootDir = rootDir;
+        this.dirName = dirName;
+        this.memoryLimitBytes = memoryLimitBytes;
+    }
+
+    /**
+     * 写入一个文件
+     *
+     * @param relativePath 项目内的相对路径（/ 分隔，已校验不会越出项目目录）
+     * @param content      文件内容
+     * @return 本轮已经结束（发布或丢弃）时返回 false，调用方应直接写入磁盘
+     */
+    public synchronized boolean write(String relativePath, byte[] content) throws IOException {
+        if (closed) {
+            return false;
+        }
+        writeCount++;
+        if (stagingDir == null && memoryBytes + content.length - sizeInMemory(relativePath) > memoryLimitBytes) {
+            spill();
+        }
+        if (stagingDir != null) {
+            writeToStaging(relativePath, content);
+            spilledFiles.add(relativePath);
+            return true;
+        }
+        byte[] previous = memoryFiles.put(relativePath, content);
+        memoryBytes += content.length - (previous != null ? previous.length : 0);
+        return true;
+    }
+
+    /**
+     * 读取本轮写入的文件（包括已溢写到暂存区的文件）
+     *
+     * @param relativePath 项目内的相对路径（/ 分隔）
+     * @return 本轮没有写入该文件或本轮已经结束时返回 null，调用方应读取磁盘上的项目
+     */
+    public synchronized byte[] read(String relativePath) throws IOException {
+        if (closed) {
+            return null;
+        }
+        byte[] content = memoryFiles.get(relativePath);
+        if (content == null && spilledFiles.contains(relativePath)) {
+            content = Files.readAllBytes(stagingDir.resolve(relativePath));
+        }
+        return content;
+    }
+
+    /**
+     * 本轮写入过的文件路径
+     *
+     * @return 本轮已经结束时返回空集合
+     */
+    public synchronized Set<String> writtenPaths() {
+        if (closed) {
+            return Set.of();
+        }
+        Set<String> paths = new HashSet<>(memoryFiles.keySet());
+        paths.addAll(spilledFiles);
+        return paths;
+    }
+
+    /**
+     * 把本轮写入的文件发布为新的项目版本
+     *
+     * @return 项目目录
+     */
+    public synchronized Path flush() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("项目已发布或已丢弃: " + dirName);
+        }
+        closed = true;
+        if (memoryFiles.isEmpty() && spilledFiles.isEmpty()) {
+            return rootDir.resolve(dirName);
+        }
+        Path nodeModules = null;
+        Lock projectLock = ProjectDirLocks.lockFor(rootDir.resolve(dirName));
+        projectLock.lock();
+        try {
+            if (stagingDir == null) {
+                stagingDir = DirectoryPublisher.createVersionDir(rootDir, dirName);
+            }
+            Set<Path> createdDirs = new HashSet<>();
+            for (var entry : memoryFiles.entrySet()) {
+                writeToStaging(entry.getKey(), entry.getValue(), createdDirs);
+            }
+            Path currentDir = resolveCurrentDir();
+            if (currentDir != null) {
+                carryOverUnchangedFiles(currentDir);
+                // 依赖目录可能有上万个文件，最后整体 rename 进新版本
+                if (Files.isDirectory(currentDir.resolve(NODE_MODULES_DIR), LinkOption.NOFOLLOW_LINKS)) {
+                    nodeModules = currentDir.resolve(NODE_MODULES_DIR);
+                    Files.move(nodeModules, stagingDir.resolve(NODE_MODULES_DIR), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            DirectoryPublisher.syncDirectory(stagingDir);
+            Path liveDir = DirectoryPublisher.publish(rootDir, dirName, stagingDir);
+            log.info("项目发布完成: {}, 写入 {} 次, 文件 {} 个, 溢写 {} 个", dirName, writeCount,
+                    memoryFiles.size() + spilledFiles.size(), spilledFiles.size());
+            return liveDir;
+        } catch (IOException | RuntimeException e) {
+            // 发布失败：依赖目录移回原项目，删除暂存区，磁盘上的项目保持上一轮的状态
+            if (nodeModules != null && Files.isDirectory(stagingDir.resolve(NODE_MODULES_DIR))) {
+                Files.move(stagingDir.resolve(NODE_MODULES_DIR), nodeModules, StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (stagingDir != null) {
+                FileUtil.del(stagingDir.toFile());
+            }
+            throw e;
+        } finally {
+            projectLock.unlock();
+            memoryFiles.clear();
+            memoryBytes = 0;
+        }
+    }
+
+    /**
+     * 丢弃本轮写入的文件（本轮失败或取消时），已经发布时不做任何事
+     *
+     * @return 是否丢弃了写入
+     */
+    public synchronized boolean discard() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        memoryFiles.clear();
+        memoryBytes = 0;
+        if (stagingDir != null) {
+            FileUtil.del(stagingDir.toFile());
+        }
+        log.info("丢弃未发布的项目写入: {}, 写入 {} 次", dirName, writeCount);
+        return writeCount > 0;
+    }
+
+    /**
+     * 内存超过上限：创建暂存区并把内存中的文件全部写入，之后的写入直接落盘
+     */
+    private void spill() throws IOException {
+        stagingDir = DirectoryPublisher.createVersionDir(rootDir, dirName);
+        Set<Path> createdDirs = new HashSet<>();
+        for (var entry : memoryFiles.entrySet()) {
+            writeToStaging(entry.getKey(), entry.getValue(), createdDirs);
+            spilledFiles.add(entry.getKey());
+        }
+        log.info("项目写入超过内存上限，溢写到暂存区: {}, 文件 {} 个, {} 字节", dirName, memoryFiles.size(), memoryBytes);
+        memoryFiles.clear();
+        memoryBytes = 0;
+    }
+
+    private void writeToStaging(String relativePath, byte[] content) throws IOException {
+        writeToStaging(relativePath, content, new HashSet<>());
+    }
+
+    private void writeToStaging(String relativePath, byte[] content, Set<Path> createdDirs) throws IOException {
+        Path target = stagingDir.resolve(relativePath);
+        if (createdDirs.add(target.getParent())) {
+            Files.createDirectories(target.getParent());
+        }
+        BlobStore.writeLinked(target, new ByteBuffer[]{ByteBuffer.wrap(content)});
+    }
+
+    /**
+     * 当前项目所在的实际目录（预览目录是指向版本目录的符号链接）
+     *
+     * @return 项目不存在时返回 null
+     */
+    private Path resolveCurrentDir() throws IOException {
+        Path liveDir = rootDir.resolve(dirName);
+        return Files.isDirectory(liveDir) ? liveDir.toRealPath() : null;
+    }
+
+    /**
+     * 把当前项目中本轮没有改写的文件带入新版本（依赖目录和构建产物除外）
+     */
+    private void carryOverUnchangedFiles(Path currentDir) throws IOException {
+        Files.walkFileTree(currentDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String relativeDir = currentDir.relativize(dir).toString();
+                return relativeDir.equals(NODE_MODULES_DIR) || relativeDir.equals(DIST_DIR)
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String relativePath = currentDir.relativize(file).toString().replace('\\', '/');
+                if (!attrs.isRegularFile() || memoryFiles.containsKey(relativePath) || spilledFiles.contains(relativePath)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Path target = stagingDir.resolve(relativePath);
+                Files.createDirectories(target.getParent());
+                linkOrCopy(file, target);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 以硬链接带入文件（文件只会被整体替换、不会原地修改，新旧版本共享同一份内容是安全的）
+     */
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, LinkOption.NOFOLLOW_LINKS);
+        }
+    }
+
+    private long sizeInMemory(String relativePath) {
+        byte[] content = memoryFiles.get(relativePath);
+        return content != null ? content.length : 0;
+    }
+}
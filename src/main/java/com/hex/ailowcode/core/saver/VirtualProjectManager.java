@@ -0,0 +1,97 @@
+package com.hex.ailowcode.core.saver;
+
+import com.hex.ailowcode.config.CodeGenProperties;
+import com.hex.ailowcode.constant.AppConstant;
+import com.hex.ailowcode.exception.BusinessException;
+import com.hex.ailowcode.exception.ErrorCode;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Vue 工程内存项目树管理
+ * 每个应用一轮生成对应一个 VirtualProject：生成开始时创建，文件写入工具写入当前轮次，
+ * 生成成功结束时一次性发布，失败或取消时丢弃
+ */
+@Slf4j
+@Component
+public class VirtualProjectManager {
+
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    @Resource
+    private ProjectFileIndex projectFileIndex;
+
+    /**
+     * 进行中的轮次：appId -> 内存项目树
+     */
+    private final ConcurrentMap<Long, VirtualProject> activeProjects = new ConcurrentHashMap<>();
+
+    /**
+     * 开始一轮生成
+     *
+     * @param appId 应用 ID
+     * @return 本轮的内存项目树，未启用内存缓冲时返回 null（工具直接写入磁盘）
+     * @throws BusinessException 应用已有进行中的轮次
+     */
+    public VirtualProject begin(Long appId) {
+        long memoryLimitMb = codeGenProperties.getVueProjectMemoryMb();
+        if (memoryLimitMb <= 0) {
+            return null;
+        }
+        VirtualProject project = new VirtualProject(Path.of(AppConstant.CODE_OUTPUT_ROOT_DIR), "vue_project_" + appId,
+                memoryLimitMb * 1024 * 1024);
+        VirtualProject previous = activeProjects.putIfAbsent(appId, project);
+        if (previous != null) {
+            // 同一应用同时进行两轮生成（不同提示词）：拒绝后开始的一轮，不接管进行中轮次已经缓冲的写入
+            log.warn("应用已有进行中的项目写入轮次，拒绝新的轮次，appId: {}", appId);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "应用正在生成中，请等待当前生成结束后再试");
+        }
+        return project;
+    }
+
+    /**
+     * 获取应用进行中的内存项目树
+     *
+     * @return 没有进行中的轮次时返回 null
+     */
+    public VirtualProject getActive(Long appId) {
+        return activeProjects.get(appId);
+    }
+
+    /**
+     * 本轮生成成功结束：发布到磁盘
+     */
+    public void flush(Long appId, VirtualProject project) {
+        if (project == null) {
+            return;
+        }
+        activeProjects.remove(appId, project);
+        try {
+            project.flush();
+        } catch (IOException e) {
+            log.error("发布 Vue 项目失败，appId: {}", appId, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "保存 Vue 项目失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 本轮生成结束（失败或取消时丢弃未发布的写入，已发布时不做任何事）
+     */
+    public void release(Long appId, VirtualProject project) {
+        if (project == null) {
+            return;
+        }
+        activeProjects.remove(appId, project);
+        if (project.discard()) {
+            // 文件索引中记录了被丢弃的写入
+            projectFileIndex.invalidate(appId);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.hex.ailowcode.core.stream;
+
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 流式 chunk 合并工具（时间窗口 + 大小窗口）
+ * 上游每个 token 一个 chunk，直接转成 SSE 会产生大量的小写入和 flush；
+ * 这里把一个时间窗口内的 chunk 合并成一个，窗口内累计字符数达到上限时提前输出，两者谁先到按谁来
+ *
+ * - 顺序：窗口按顺序串行处理（concatMap），合并后的内容与原始拼接结果完全一致
+ * - 结束：上游完成时当前窗口中剩余的内容会立即输出，随后才会发送 done 事件
+ * - 取消：下游取消会一路传递到上游
+ */
+public class ChunkCoalescer {
+
+    /**
+     * 合并流式 chunk
+     *
+     * @param source        原始 chunk 流
+     * @param flushInterval 时间窗口，不大于 0 时不合并
+     * @param maxChars      单次输出的字符数上限，不大于 0 时只按时间窗口合并
+     * @return 合并后的流
+     */
+    public static Flux<String> coalesce(Flux<String> source, Duration flushInterval, int maxChars) {
+        if (flushInterval == null || flushInterval.isZero() || flushInterval.isNegative()) {
+            return source;
+        }
+        return source.windowTimeout(Integer.MAX_VALUE, flushInterval)
+                .concatMap(window -> {
+                    // 每个窗口独立统计累计字符数，达到上限时切出一个缓冲
+                    int[] bufferedChars = new int[1];
+                    return window.bufferUntil(chunk -> {
+                                if (maxChars <= 0) {
+                                    return false;
+                                }
+                                bufferedChars[0] += chunk.length();
+                                if (bufferedChars[0] >= maxChars) {
+                                    bufferedChars[0] = 0;
+                                    return true;
+                                }
+                                return false;
+                            })
+                            .filter(chunks -> !chunks.isEmpty())
+                            .map(ChunkCoalescer::join);
+                });
+    }
+
+    private static String join(List<String> chunks) {
+        if (chunks.size() == 1) {
+            return chunks.get(0);
+        }
+        int length = 0;
+        for (String chunk : chunks) {
+            length += chunk.length();
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (String chunk : chunks) {
+            builder.append(chunk);
+        }
+        return builder.toString();
+    }
+}
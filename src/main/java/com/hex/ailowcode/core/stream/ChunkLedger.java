@@ -0,0 +1,165 @@
+package com.hex.ailowcode.core.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单个生成流的分块账本（只追加的 rope）
+ * 直接保存 AI 返回的 chunk 引用，不做扩容复制；历史记录保存和代码保存共用同一份账本，
+ * 取代原来 AppServiceImpl 和 AiCodeGeneratorFacade 中各自维护的 StringBuilder
+ *
+ * 使用约定：
+ * - append 只在 Flux 的 onNext 中串行调用
+ * - 流结束后可以多次读取（toString 每次都会物化一份新的 String，按需调用）
+ * - 由 ChunkLedgerManager 创建的账本会计入节点级内存预算，流结束后必须调用 release
+ */
+public class ChunkLedger implements CharSequence {
+
+    private final List<String> segments = new ArrayList<>();
+
+    /**
+     * 每个分段在整体中的结束位置（不包含），用于按下标二分定位分段
+     */
+    private int[] segmentEnds = new int[64];
+
+    private int length;
+
+    /**
+     * 上一次 charAt 命中的分段，顺序读取（视图编码、解析）时不必每次二分查找
+     */
+    private int lastSegment;
+
+    private final ChunkLedgerManager manager;
+
+    private long accountedBytes;
+
+    private boolean released;
+
+    /**
+     * 创建一个不计入内存预算的账本
+     */
+    public ChunkLedger() {
+        this(null);
+    }
+
+    ChunkLedger(ChunkLedgerManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * 追加一个 chunk
+     *
+     * @param chunk AI 返回的片段
+     */
+    public void append(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        int count = segments.size();
+        if (count == segmentEnds.length) {
+            segmentEnds = Arrays.copyOf(segmentEnds, count * 2);
+        }
+        segments.add(chunk);
+        length += chunk.length();
+        segmentEnds[count] = length;
+        if (manager != null && !released) {
+            long bytes = ChunkLedgerManager.estimateBytes(chunk);
+            accountedBytes += bytes;
+            manager.onAppend(bytes);
+        }
+    }
+
+    /**
+     * 已追加的分段数量
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 已追加的分段（只读视图，按引用返回，不复制内容）
+     */
+    List<String> segments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * 释放预算占用（幂等），账本内容仍然可读
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        if (manager != null) {
+            manager.onRelease(accountedBytes);
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+        }
+        int segmentIndex = lastSegment;
+        int segmentStart = segmentIndex == 0 ? 0 : segmentEnds[segmentIndex - 1];
+        if (index < segmentStart || index >= segmentEnds[segmentIndex]) {
+            segmentIndex = findSegment(index);
+            segmentStart = segmentIndex == 0 ? 0 : segmentEnds[segmentIndex - 1];
+            lastSegment = segmentIndex;
+        }
+        return segments.get(segmentIndex).charAt(index - segmentStart);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+        }
+        StringBuilder builder = new StringBuilder(end - start);
+        if (start == end) {
+            return builder;
+        }
+        int segmentIndex = findSegment(start);
+        int segmentStart = segmentIndex == 0 ? 0 : segmentEnds[segmentIndex - 1];
+        int position = start;
+        while (position < end) {
+            String segment = segments.get(segmentIndex);
+            int from = position - segmentStart;
+            int to = Math.min(segment.length(), end - segmentStart);
+            builder.append(segment, from, to);
+            position = segmentStart + to;
+            segmentStart = segmentEnds[segmentIndex];
+            segmentIndex++;
+        }
+        return builder;
+    }
+
+    /**
+     * 物化为完整字符串（只做一次精确大小的复制）
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(length);
+        for (String segment : segments) {
+            builder.append(segment);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 二分查找下标所在的分段
+     */
+    private int findSegment(int index) {
+        int position = Arrays.binarySearch(segmentEnds, 0, segments.size(), index);
+        // 命中某个分段的结束位置，说明下标属于下一个分段
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+}
@@ -0,0 +1,103 @@
+package com.hex.ailowcode.core.stream;
+
+import com.hex.ailowcode.config.CodeGenProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分块账本管理器
+ * 负责创建 ChunkLedger，并统计当前节点上所有进行中生成流缓冲的总字节数：
+ * - ai_stream_buffered_bytes：所有活跃流缓冲（账本 + 可重放生成流的重放缓冲区）的估算字节数
+ * - ai_stream_active_count：活跃（未释放）的账本数量
+ * - ai_stream_rejected_total：超出内存预算被拒绝的生成请求数
+ *
+ * 内存预算只做准入控制：超出预算时拒绝新的生成请求，已经开始的流不会被中断
+ */
+@Slf4j
+@Component
+public class ChunkLedgerManager {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void initMetrics() {
+        Gauge.builder("ai_stream_buffered_bytes", bufferedBytes, AtomicLong::get)
+                .description("生成流缓冲的估算字节数")
+                .register(meterRegistry);
+        Gauge.builder("ai_stream_active_count", activeCount, AtomicInteger::get)
+                .description("活跃的生成流数量")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("ai_stream_rejected_total")
+                .description("超出内存预算被拒绝的生成请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 创建一个计入内存预算的账本，使用完必须调用 ChunkLedger.release
+     */
+    public ChunkLedger create() {
+        activeCount.incrementAndGet();
+        return new ChunkLedger(this);
+    }
+
+    /**
+     * 当前节点的缓冲是否已经超出预算，超出时记录一次拒绝
+     */
+    public boolean isOverBudget() {
+        long budgetBytes = codeGenProperties.getStreamBufferBudgetMb() * 1024L * 1024L;
+        boolean overBudget = budgetBytes > 0 && bufferedBytes.get() >= budgetBytes;
+        if (overBudget) {
+            rejectedCounter.increment();
+            log.warn("生成流缓冲超出预算，当前: {} 字节，活跃流: {}", bufferedBytes.get(), activeCount.get());
+        }
+        return overBudget;
+    }
+
+    /**
+     * 当前所有活跃流缓冲的估算字节数
+     */
+    public long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    void onAppend(long bytes) {
+        bufferedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * 计入不经过账本保存的缓冲（如重放缓冲区），释放时传入负数
+     */
+    void account(long bytes) {
+        bufferedBytes.addAndGet(bytes);
+    }
+
+    void onRelease(long bytes) {
+        bufferedBytes.addAndGet(-bytes);
+        activeCount.decrementAndGet();
+    }
+
+    /**
+     * 估算字符串占用的堆内存（按 UTF-16 每字符 2 字节估算）
+     */
+    static long estimateBytes(String chunk) {
+        return 2L * chunk.length();
+    }
+}
@@ -0,0 +1,172 @@
+package com.hex.ailowcode.core.stream;
+
+import com.hex.ailowcode.config.CodeGenProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流结束后处理执行器
+ *
+ * 生成流的最后一个 token 由 HTTP 客户端的 I/O 线程投递，如果直接在 doOnComplete 中解析、写文件、写数据库，
+ * 磁盘或数据库变慢时会卡住上游网络线程。这里把这些收尾工作放到虚拟线程上执行：
+ * - 每个任务一个虚拟线程，通过信号量限制同时执行的任务数，等待许可的任务计为排队
+ * - 排队任务超过上限时通过 {@link #isSaturated()} 拒绝新的生成请求（背压），已经开始的流不受影响
+ *
+ * 指标：
+ * - ai_completion_queue_depth：等待执行的任务数
+ * - ai_completion_active_count：正在执行的任务数
+ * - ai_completion_wait_duration_seconds：任务排队耗时（按任务类型）
+ * - ai_completion_task_duration_seconds：任务执行耗时（按任务类型）
+ * - ai_completion_failed_total：执行失败的任务数（按任务类型）
+ * - ai_completion_rejected_total：因排队过多被拒绝的生成请求数
+ */
+@Slf4j
+@Component
+public class CompletionTaskExecutor {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final ConcurrentMap<String, Timer> waitTimersCache = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Timer> taskTimersCache = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Counter> failedCountersCache = new ConcurrentHashMap<>();
+
+    private Counter rejectedCounter;
+
+    private Semaphore permits;
+
+    private ExecutorService executorService;
+
+    private Scheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, codeGenProperties.getCompletionMaxConcurrency()));
+        executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gen-completion-", 0).factory());
+        scheduler = Schedulers.fromExecutorService(executorService, "gen-completion");
+        Gauge.builder("ai_completion_queue_depth", queueDepth, AtomicInteger::get)
+                .description("等待执行的流结束后处理任务数")
+                .register(meterRegistry);
+        Gauge.builder("ai_completion_active_count", activeCount, AtomicInteger::get)
+                .description("正在执行的流结束后处理任务数")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("ai_completion_rejected_total")
+                .description("流结束后处理排队过多被拒绝的生成请求数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.dispose();
+        executorService.shutdown();
+        try {
+            // 尽量让已经排队的保存任务执行完
+            if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("流结束后处理任务未在关闭前完成，剩余排队: {}", queueDepth.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 在虚拟线程上执行收尾任务，订阅时提交，任务完成后 Mono 完成
+     *
+     * @param taskName 任务类型（指标标签），如 code_save、history_insert
+     * @param task     任务
+     * @return 任务完成信号，任务抛出的异常以错误信号传递
+     */
+    public Mono<Void> execute(String taskName, Runnable task) {
+        return Mono.defer(() -> {
+            long submitNanos = System.nanoTime();
+            return Mono.<Void>fromRunnable(() -> runBounded(taskName, task, submitNanos)).subscribeOn(scheduler);
+        });
+    }
+
+    /**
+     * 排队任务是否已经超过上限，超过时记录一次拒绝
+     */
+    public boolean isSaturated() {
+        int maxQueue = codeGenProperties.getCompletionMaxQueue();
+        boolean saturated = maxQueue > 0 && queueDepth.get() >= maxQueue;
+        if (saturated) {
+            rejectedCounter.increment();
+            log.warn("流结束后处理排队过多，排队: {}，执行中: {}", queueDepth.get(), activeCount.get());
+        }
+        return saturated;
+    }
+
+    /**
+     * 当前等待执行的任务数
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    private void runBounded(String taskName, Runnable task, long submitNanos) {
+        queueDepth.incrementAndGet();
+        try {
+            // 虚拟线程上阻塞等待许可，不占用平台线程
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待执行流结束后处理任务时被中断", e);
+        } finally {
+            queueDepth.decrementAndGet();
+        }
+        activeCount.incrementAndGet();
+        long startNanos = System.nanoTime();
+        getTimer(waitTimersCache, "ai_completion_wait_duration_seconds", "流结束后处理任务排队耗时", taskName)
+                .record(startNanos - submitNanos, TimeUnit.NANOSECONDS);
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            failedCountersCache.computeIfAbsent(taskName, k ->
+                    Counter.builder("ai_completion_failed_total")
+                            .description("执行失败的流结束后处理任务数")
+                            .tag("task", taskName)
+                            .register(meterRegistry)).increment();
+            throw e;
+        } finally {
+            getTimer(taskTimersCache, "ai_completion_task_duration_seconds", "流结束后处理任务执行耗时", taskName)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            activeCount.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private Timer getTimer(ConcurrentMap<String, Timer> cache, String name, String description, String taskName) {
+        return cache.computeIfAbsent(taskName, k ->
+                Timer.builder(name)
+                        .description(description)
+                        .tag("task", taskName)
+                        .register(meterRegistry));
+    }
+}
@@ -0,0 +1,196 @@
+package com.hex.ailowcode.core.stream;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 单飞（single-flight）生成：同一生成的所有订阅者共享一次上游调用和一份响应账本
+ *
+ * 账本属于 flight 本身（由 ChunkLedgerManager 创建，计入节点内存预算），不属于某一个订阅者：
+ * - 上游的每个 chunk 只追加一次，所有订阅者读取同一份账本，不再各自复制
+ * - 中途加入的订阅者先按引用重放账本中已有的分段，再接收后续 chunk，重放的内容就是账本本身，不额外缓冲
+ * - 第一个订阅者到来时才订阅上游，全部订阅者取消时取消上游；结束（完成 / 失败 / 取消）后不再接受新的持有者
+ * - 每个持有者（retain 成功）用完后调用 release，最后一个持有者释放时账本才归还预算，
+ *   发起者先断开时账本仍然计入预算，直到跟随者也结束
+ * - 上游处理链可以通过 record 在 chunk 发给订阅者之前先追加到账本（流式解析以视图引用账本），
+ *   同一个 chunk 到达时不再重复追加；重放只包含已经发给订阅者的分段
+ */
+public class GenerationFlight {
+
+    private final ChunkLedger ledger;
+
+    private final Function<GenerationFlight, Flux<String>> upstreamFactory;
+
+    private final Consumer<GenerationFlight> onTerminate;
+
+    private final List<FluxSink<String>> sinks = new ArrayList<>();
+
+    private final Disposable.Swap upstream = Disposables.swap();
+
+    private boolean connected;
+
+    private boolean terminated;
+
+    private Throwable error;
+
+    private int holders;
+
+    private boolean released;
+
+    /**
+     * 已经发给订阅者的分段数（之后的分段是 record 提前追加、还没有到达的 chunk）
+     */
+    private int dispatchedSegments;
+
+    /**
+     * @param ledger          flight 持有的账本，最后一个持有者释放时调用 ChunkLedger.release
+     * @param upstreamFactory 第一个订阅者到来时创建上游流
+     * @param onTerminate     上游结束或全部订阅者取消时回调（用于从进行中表移除）
+     */
+    public GenerationFlight(ChunkLedger ledger, Function<GenerationFlight, Flux<String>> upstreamFactory,
+                            Consumer<GenerationFlight> onTerminate) {
+        this.ledger = ledger;
+        this.upstreamFactory = upstreamFactory;
+        this.onTerminate = onTerminate;
+    }
+
+    /**
+     * 成为持有者，flight 已经结束或账本已释放时返回 false（调用方应该另起一次生成）
+     */
+    public synchronized boolean retain() {
+        if (terminated || released) {
+            return false;
+        }
+        holders++;
+        return true;
+    }
+
+    /**
+     * 释放持有，最后一个持有者释放时账本归还预算（账本内容仍然可读）
+     */
+    public void release() {
+        synchronized (this) {
+            if (released || --holders > 0) {
+                return;
+            }
+            released = true;
+        }
+        ledger.release();
+    }
+
+    /**
+     * 订阅共享的生成流：先重放已生成的内容，再接收后续 chunk
+     */
+    public Flux<String> stream() {
+        return Flux.create(this::attach);
+    }
+
+    /**
+     * 读取目前为止的完整响应（与上游追加互斥，订阅者取消后读取部分响应也是安全的）
+     */
+    public synchronized String getResponse() {
+        return ledger.toString();
+    }
+
+    /**
+     * 在 chunk 发给订阅者之前先追加到账本，供上游处理链以视图读取；该 chunk 随后到达时不再追加
+     * 只能在上游的 onNext 中调用，每个 chunk 最多一次
+     */
+    public synchronized void record(String chunk) {
+        ledger.append(chunk);
+    }
+
+    /**
+     * 共享账本本身（不复制）：只能在上游的 onNext 中或上游结束后读取，其他线程请使用 getResponse
+     */
+    public CharSequence ledger() {
+        return ledger;
+    }
+
+    private void attach(FluxSink<String> sink) {
+        boolean connect;
+        synchronized (this) {
+            for (String segment : ledger.segments().subList(0, dispatchedSegments)) {
+                sink.next(segment);
+            }
+            if (terminated) {
+                if (error != null) {
+                    sink.error(error);
+                } else {
+                    sink.complete();
+                }
+                return;
+            }
+            sinks.add(sink);
+            connect = !connected;
+            connected = true;
+        }
+        sink.onDispose(() -> detach(sink));
+        if (connect) {
+            // 在锁外订阅上游：上游同步发出的 chunk 会重新进入 onNext，订阅前已经全部取消时 Swap 会立即取消新订阅
+            upstream.update(Flux.defer(() -> upstreamFactory.apply(this))
+                    .subscribe(this::onNext, this::onError, this::onComplete));
+        }
+    }
+
+    private void detach(FluxSink<String> sink) {
+        synchronized (this) {
+            sinks.remove(sink);
+            if (!sinks.isEmpty() || terminated) {
+                return;
+            }
+            terminated = true;
+            error = new CancellationException("生成已取消");
+        }
+        upstream.dispose();
+        onTerminate.accept(this);
+    }
+
+    private synchronized void onNext(String chunk) {
+        if (ledger.getSegmentCount() == dispatchedSegments) {
+            ledger.append(chunk);
+        }
+        dispatchedSegments = ledger.getSegmentCount();
+        for (FluxSink<String> sink : sinks) {
+            sink.next(chunk);
+        }
+    }
+
+    private void onError(Throwable throwable) {
+        terminate(throwable);
+    }
+
+    private void onComplete() {
+        terminate(null);
+    }
+
+    private void terminate(Throwable throwable) {
+        List<FluxSink<String>> targets;
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            error = throwable;
+            targets = new ArrayList<>(sinks);
+            sinks.clear();
+        }
+        // 先从进行中表移除，之后到来的重复请求另起一次生成
+        onTerminate.accept(this);
+        for (FluxSink<String> sink : targets) {
+            if (throwable != null) {
+                sink.error(throwable);
+            } else {
+                sink.complete();
+            }
+        }
+    }
+}
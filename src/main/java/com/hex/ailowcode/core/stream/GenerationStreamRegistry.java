@@ -0,0 +1,119 @@
+package com.hex.ailowcode.core.stream;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.hex.ailowcode.config.CodeGenProperties;
+import com.hex.ailowcode.exception.BusinessException;
+import com.hex.ailowcode.exception.ErrorCode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可重放生成流注册表
+ * 为每次 chatToGenCode 生成一个 streamId 并登记 ReplayableStream，
+ * 客户端断线重连时根据 Last-Event-ID（{streamId}-{seq}）找到会话续传：
+ * 1. 优先使用本节点的会话（重放缓冲区 + 实时尾部）
+ * 2. 本节点没有时，如果开启了 Redis 镜像，则从镜像续传
+ */
+@Slf4j
+@Component
+public class GenerationStreamRegistry {
+
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ChunkLedgerManager chunkLedgerManager;
+
+    private final ConcurrentMap<String, ReplayableStream> streams = new ConcurrentHashMap<>();
+
+    private StreamMirror mirror;
+
+    @PostConstruct
+    public void init() {
+        if (codeGenProperties.isReplayRedisMirror()) {
+            mirror = new RedisStreamMirror(stringRedisTemplate);
+        }
+    }
+
+    /**
+     * 登记一个新的生成流，上游在第一个订阅者到来时才会被订阅
+     *
+     * @param appId  应用 ID
+     * @param userId 用户 ID
+     * @param source 上游生成流
+     * @return 可重放的生成流会话
+     */
+    public ReplayableStream register(Long appId, Long userId, Flux<String> source) {
+        String streamId = IdUtil.fastSimpleUUID();
+        ReplayableStream stream = new ReplayableStream(streamId, appId, userId, source,
+                codeGenProperties.getReplayBufferSize(), Duration.ofSeconds(codeGenProperties.getResumeGraceSeconds()),
+                mirror, chunkLedgerManager, this::scheduleRemoval);
+        streams.put(streamId, stream);
+        if (mirror != null) {
+            mirror.start(streamId, appId, userId);
+        }
+        return stream;
+    }
+
+    /**
+     * 根据 Last-Event-ID 续传生成流
+     *
+     * @param lastEventId 客户端收到的最后一个事件 ID
+     * @param appId       应用 ID
+     * @param userId      用户 ID
+     * @return 错过的事件 + 后续实时事件
+     */
+    public Flux<StreamEvent> resume(String lastEventId, Long appId, Long userId) {
+        int separatorIndex = StrUtil.isBlank(lastEventId) ? -1 : lastEventId.lastIndexOf('-');
+        if (separatorIndex <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "Last-Event-ID 格式错误");
+        }
+        String streamId = lastEventId.substring(0, separatorIndex);
+        long lastSeq;
+        try {
+            lastSeq = Long.parseLong(lastEventId.substring(separatorIndex + 1));
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "Last-Event-ID 格式错误");
+        }
+        ReplayableStream stream = streams.get(streamId);
+        if (stream != null) {
+            if (!stream.getAppId().equals(appId) || !stream.getUserId().equals(userId)) {
+                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该生成流");
+            }
+            log.info("生成流本地续传，streamId: {}, lastSeq: {}", streamId, lastSeq);
+            return stream.subscribe(lastSeq);
+        }
+        if (mirror != null) {
+            Flux<StreamEvent> mirrored = mirror.replay(streamId, lastSeq, appId, userId);
+            if (mirrored != null) {
+                log.info("生成流镜像续传，streamId: {}, lastSeq: {}", streamId, lastSeq);
+                return mirrored;
+            }
+        }
+        throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "生成流不存在或已过期，请重新发起对话");
+    }
+
+    /**
+     * 生成流结束后保留一段时间，供晚到的重连续传，移除时归还重放缓冲区的内存预算
+     */
+    private void scheduleRemoval(ReplayableStream stream) {
+        Schedulers.parallel().schedule(() -> {
+            streams.remove(stream.getStreamId());
+            stream.release();
+        }, codeGenProperties.getResumeRetainSeconds(), TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,141 @@
+package com.hex.ailowcode.core.stream;
+
+import com.hex.ailowcode.config.CodeGenProperties;
+import lombok.Getter;
+
+/**
+ * 生成流输出预算检查（按生成类型配置）
+ * 模型跑题或陷入循环时会一直输出到 max-tokens 才结束，既浪费费用又只能得到无法解析的内容；
+ * 这里随流逐个 chunk 检查，超出预算时由调用方立即中止模型请求：
+ * 1. 输出超过一定长度仍没有出现开始代码围栏
+ * 2. 输出总长度超过上限
+ * 3. 连续重复的行（单行重复，或周期不超过 8 行的多行循环）超过上限
+ *
+ * 非线程安全：每个生成流使用一个独立实例，Flux 的 onNext 本身是串行的
+ */
+public class OutputBudgetGuard {
+
+    /**
+     * 超出预算的原因（value 作为指标标签）
+     */
+    @Getter
+    public enum Reason {
+
+        NO_CODE_FENCE("no_code_fence", "长时间没有输出代码"),
+        OUTPUT_TOO_LONG("output_too_long", "输出内容超出长度上限"),
+        REPEATED_LINES("repeated_lines", "输出内容陷入重复");
+
+        private final String value;
+
+        private final String text;
+
+        Reason(String value, String text) {
+            this.value = value;
+            this.text = text;
+        }
+    }
+
+    /**
+     * 检测的最大循环周期（行数）
+     */
+    private static final int MAX_PERIOD = 8;
+
+    private static final long LINE_HASH_SEED = 1125899906842597L;
+
+    @Getter
+    private final String codeGenType;
+
+    private final long fenceWithinChars;
+
+    private final long maxOutputChars;
+
+    private final int maxRepeatedLines;
+
+    private long outputChars;
+
+    /**
+     * 当前行的滚动哈希（跨 chunk 保留）
+     */
+    private long lineHash = LINE_HASH_SEED;
+
+    /**
+     * 最近 MAX_PERIOD 行的哈希（环形缓冲）
+     */
+    private final long[] recentLines = new long[MAX_PERIOD];
+
+    private long lineCount;
+
+    /**
+     * 每个周期当前连续重复的行数，下标为周期
+     */
+    private final int[] repeatRuns = new int[MAX_PERIOD + 1];
+
+    public OutputBudgetGuard(String codeGenType, CodeGenProperties.OutputBudget budget) {
+        this.codeGenType = codeGenType;
+        this.fenceWithinChars = budget.getFenceWithinKb() * 1024L;
+        this.maxOutputChars = budget.getMaxOutputKb() * 1024L;
+        this.maxRepeatedLines = budget.getMaxRepeatedLines();
+    }
+
+    /**
+     * 检查一个流式小块
+     *
+     * @param chunk       AI 返回的片段
+     * @param fenceOpened 到目前为止是否已经出现过开始代码围栏
+     * @return 超出预算的原因，未超出时返回 null
+     */
+    public Reason feed(CharSequence chunk, boolean fenceOpened) {
+        if (chunk == null) {
+            return null;
+        }
+        outputChars += chunk.length();
+        if (maxOutputChars > 0 && outputChars > maxOutputChars) {
+            return Reason.OUTPUT_TOO_LONG;
+        }
+        if (fenceWithinChars > 0 && !fenceOpened && outputChars > fenceWithinChars) {
+            return Reason.NO_CODE_FENCE;
+        }
+        if (maxRepeatedLines <= 0) {
+            return null;
+        }
+        for (int i = 0, len = chunk.length(); i < len; i++) {
+            char c = chunk.charAt(i);
+            if (c == '\n') {
+                if (completeLine()) {
+                    return Reason.REPEATED_LINES;
+                }
+            } else {
+                lineHash = lineHash * 31 + c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 已检查的输出字符数
+     */
+    public long getOutputChars() {
+        return outputChars;
+    }
+
+    /**
+     * 一行结束：与 1 ~ MAX_PERIOD 行之前的行比较，统计每个周期连续重复的行数
+     *
+     * @return 是否超过重复行数上限
+     */
+    private boolean completeLine() {
+        long hash = lineHash;
+        lineHash = LINE_HASH_SEED;
+        boolean exceeded = false;
+        for (int period = 1; period <= MAX_PERIOD; period++) {
+            if (lineCount >= period && recentLines[(int) ((lineCount - period) % MAX_PERIOD)] == hash) {
+                exceeded |= ++repeatRuns[period] >= maxRepeatedLines;
+            } else {
+                repeatRuns[period] = 0;
+            }
+        }
+        recentLines[(int) (lineCount % MAX_PERIOD)] = hash;
+        lineCount++;
+        return exceeded;
+    }
+}
@@ -0,0 +1,242 @@
+package com.hex.ailowcode.core.stream;
+
+import com.hex.ailowcode.exception.BusinessException;
+import com.hex.ailowcode.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 Redis List 的生成流镜像
+ * - gen_stream:{streamId}       事件列表，下标即事件序号
+ * - gen_stream:{streamId}:owner 归属信息 appId:userId
+ * - gen_stream:{streamId}:end   结束标记 done / error / abandoned
+ *
+ * 写入是异步的：append 只把事件放进每个流自己的有界队列，不在模型回调线程上访问 Redis，
+ * 由 boundedElastic 线程按刷新间隔攒批，每批一次 pipeline（RPUSH 全部事件 + 一次 EXPIRE），
+ * 归属信息、事件批次和结束标记按顺序写入，读到结束标记时列表中已经包含了全部事件
+ * Redis 不可用或写入积压超出队列上限时放弃该流的镜像：删除归属信息并写入 abandoned 结束标记，
+ * 新的续传请求不会读到不完整的列表，已经在跟随的续传立即失败
+ *
+ * 列表长度受模型 max-tokens 限制，所有 key 统一设置过期时间
+ * 跨节点续传时无法直接挂到实时尾部，通过轮询列表增量跟随，直到读到结束标记：
+ * done 正常结束；error / abandoned 或超过 key 的过期时间仍没有结束标记时以错误结束，客户端不会收到完成事件
+ */
+@Slf4j
+public class RedisStreamMirror implements StreamMirror {
+
+    private static final String KEY_PREFIX = "gen_stream:";
+
+    private static final Duration KEY_TTL = Duration.ofMinutes(10);
+
+    private static final String END_DONE = "done";
+
+    private static final String END_ERROR = "error";
+
+    private static final String END_ABANDONED = "abandoned";
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(300);
+
+    /**
+     * 攒批的刷新间隔，也是跨节点续传相对本地多出的延迟上限
+     */
+    private static final Duration FLUSH_INTERVAL = Duration.ofMillis(100);
+
+    private static final int MAX_BATCH_SIZE = 256;
+
+    /**
+     * 每个流等待写入的事件上限，超出说明 Redis 跟不上，放弃该流的镜像
+     */
+    static final int MAX_PENDING_EVENTS = 4096;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 进行中的镜像写入：streamId -> 写入队列
+     */
+    private final ConcurrentMap<String, MirrorWriter> writers = new ConcurrentHashMap<>();
+
+    public RedisStreamMirror(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @Override
+    public void start(String streamId, Long appId, Long userId) {
+        MirrorWriter writer = new MirrorWriter();
+        writers.put(streamId, writer);
+        Mono.fromRunnable(() -> writeOwner(streamId, appId + ":" + userId))
+                .thenMany(writer.events.asFlux()
+                        .bufferTimeout(MAX_BATCH_SIZE, FLUSH_INTERVAL, Schedulers.boundedElastic(), true)
+                        .concatMap(batch -> Mono.fromRunnable(() -> writeBatch(streamId, batch))
+                                .subscribeOn(Schedulers.boundedElastic())))
+                .then(Mono.fromRunnable(() -> writeEnd(streamId, writer.success ? END_DONE : END_ERROR)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doFinally(signalType -> writers.remove(streamId, writer))
+                .subscribe(null, error -> abandon(streamId, error));
+    }
+
+    @Override
+    public void append(StreamEvent event) {
+        MirrorWriter writer = writers.get(event.getStreamId());
+        if (writer == null) {
+            return;
+        }
+        Sinks.EmitResult result = writer.events.tryEmitNext(event);
+        if (result.isFailure()) {
+            // 队列已满或写入已经失败：列表会缺少事件，整体放弃该流的镜像
+            writers.remove(event.getStreamId(), writer);
+            writer.events.tryEmitError(new IllegalStateException("生成流镜像队列无法继续写入: " + result));
+        }
+    }
+
+    @Override
+    public void end(String streamId, boolean success) {
+        MirrorWriter writer = writers.get(streamId);
+        if (writer == null) {
+            return;
+        }
+        writer.success = success;
+        writer.events.tryEmitComplete();
+    }
+
+    @Override
+    public Flux<StreamEvent> replay(String streamId, long lastSeq, Long appId, Long userId) {
+        String owner = stringRedisTemplate.opsForValue().get(ownerKey(streamId));
+        if (owner == null || !owner.equals(appId + ":" + userId)) {
+            return null;
+        }
+        AtomicLong nextSeq = new AtomicLong(lastSeq + 1);
+        AtomicBoolean ended = new AtomicBoolean();
+        return Flux.interval(Duration.ZERO, POLL_INTERVAL)
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromCallable(() -> poll(streamId, nextSeq))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .takeUntil(batch -> batch.end() != null)
+                .take(KEY_TTL)
+                .concatMap(batch -> {
+                    Flux<StreamEvent> events = Flux.fromIterable(batch.events());
+                    if (batch.end() == null) {
+                        return events;
+                    }
+                    ended.set(true);
+                    return END_DONE.equals(batch.end()) ? events : events.concatWith(Mono.error(interrupted()));
+                })
+                // 超过 key 的过期时间仍没有结束标记：镜像已经失效，不能当作正常结束
+                .concatWith(Mono.defer(() -> ended.get() ? Mono.empty() : Mono.error(interrupted())));
+    }
+
+    /**
+     * 先读结束标记再读列表：读到结束标记时，列表中已经包含了全部事件（abandoned 时列表不完整，不再读取）
+     */
+    private MirrorBatch poll(String streamId, AtomicLong nextSeq) {
+        String end = stringRedisTemplate.opsForValue().get(endKey(streamId));
+        if (END_ABANDONED.equals(end)) {
+            return new MirrorBatch(List.of(), end);
+        }
+        long start = nextSeq.get();
+        List<String> values = stringRedisTemplate.opsForList().range(eventsKey(streamId), start, -1);
+        List<StreamEvent> events = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                events.add(new StreamEvent(streamId, nextSeq.getAndIncrement(), value));
+            }
+        }
+        return new MirrorBatch(events, end);
+    }
+
+    private void writeOwner(String streamId, String owner) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            ((StringRedisConnection) connection).set(ownerKey(streamId), owner, Expiration.from(KEY_TTL),
+                    RedisStringCommands.SetOption.upsert());
+            return null;
+        });
+    }
+
+    /**
+     * 一批事件一次往返：RPUSH 全部事件，再刷新一次过期时间
+     */
+    private void writeBatch(String streamId, List<StreamEvent> batch) {
+        String key = eventsKey(streamId);
+        String[] values = new String[batch.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = batch.get(i).getData();
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.rPush(key, values);
+            stringConnection.expire(key, KEY_TTL.toSeconds());
+            return null;
+        });
+    }
+
+    private void writeEnd(String streamId, String end) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            ((StringRedisConnection) connection).set(endKey(streamId), end, Expiration.from(KEY_TTL),
+                    RedisStringCommands.SetOption.upsert());
+            return null;
+        });
+    }
+
+    /**
+     * 放弃该流的镜像：删除归属信息，新的续传请求会提示重新发起对话而不是读到不完整的列表；
+     * 写入 abandoned 结束标记，已经在跟随的续传立即失败，不必轮询到 key 过期
+     */
+    private void abandon(String streamId, Throwable error) {
+        log.warn("写入生成流镜像失败，放弃镜像，streamId: {}, 错误: {}", streamId, error.getMessage());
+        try {
+            stringRedisTemplate.delete(ownerKey(streamId));
+            writeEnd(streamId, END_ABANDONED);
+        } catch (Exception e) {
+            log.warn("标记生成流镜像失效失败，streamId: {}, 错误: {}", streamId, e.getMessage());
+        }
+    }
+
+    private static BusinessException interrupted() {
+        return new BusinessException(ErrorCode.SYSTEM_ERROR, "生成流已中断，请重新发起对话");
+    }
+
+    /**
+     * 单个流的写入队列，append 只在上游 onNext 中串行调用
+     */
+    private static class MirrorWriter {
+
+        private final Sinks.Many<StreamEvent> events =
+                Sinks.many().unicast().onBackpressureBuffer(Queues.<StreamEvent>get(MAX_PENDING_EVENTS).get());
+
+        private volatile boolean success;
+    }
+
+    /**
+     * @param end 结束标记，还没有结束时为 null
+     */
+    private record MirrorBatch(List<StreamEvent> events, String end) {
+    }
+
+    private static String eventsKey(String streamId) {
+        return KEY_PREFIX + streamId;
+    }
+
+    private static String ownerKey(String streamId) {
+        return KEY_PREFIX + streamId + ":owner";
+    }
+
+    private static String endKey(String streamId) {
+        return KEY_PREFIX + streamId + ":end";
+    }
+}
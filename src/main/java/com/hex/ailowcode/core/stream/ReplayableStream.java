@@ -0,0 +1,237 @@
+package com.hex.ailowcode.core.stream;
+
+import com.hex.ailowcode.exception.BusinessException;
+import com.hex.ailowcode.exception.ErrorCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 可重放的生成流会话
+ * 上游（AI 生成流）只会被订阅一次，所有事件写入有界的重放环形缓冲区（Sinks replay limit），
+ * 浏览器断线重连时带上 Last-Event-ID，即可拿到错过的事件并继续接收实时尾部，不会再发起一次 LLM 调用
+ *
+ * 生命周期：
+ * 1. 第一个客户端订阅时连接上游
+ * 2. 客户端全部断开后进入宽限期，宽限期内有客户端重连则继续，否则取消上游
+ * 3. 上游结束（完成 / 失败 / 取消）后回调 onTerminate，由注册表在保留期后移除并调用 release
+ *
+ * 重放缓冲区中事件的估算字节数计入节点内存预算（ChunkLedgerManager），事件被挤出环形缓冲区时扣除，
+ * release 时全部归还
+ */
+@Slf4j
+public class ReplayableStream {
+
+    @Getter
+    private final String streamId;
+
+    @Getter
+    private final Long appId;
+
+    @Getter
+    private final Long userId;
+
+    private final Flux<String> source;
+
+    private final int bufferSize;
+
+    private final Duration gracePeriod;
+
+    private final Sinks.Many<StreamEvent> sink;
+
+    /**
+     * 事件镜像（如 Redis），可以为 null
+     */
+    private final StreamMirror mirror;
+
+    private final Consumer<ReplayableStream> onTerminate;
+
+    /**
+     * 内存预算，可以为 null（不计入预算）
+     */
+    private final ChunkLedgerManager ledgerManager;
+
+    /**
+     * 环形缓冲区每个槽位上事件的估算字节数，下标为序号对缓冲区大小取模
+     */
+    private final int[] retainedBytes;
+
+    private long accountedBytes;
+
+    private boolean released;
+
+    private final AtomicBoolean connected = new AtomicBoolean();
+
+    private final AtomicBoolean terminated = new AtomicBoolean();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    /**
+     * 下一个事件的序号，只在上游 onNext 中串行递增
+     */
+    private final AtomicLong nextSeq = new AtomicLong();
+
+    private volatile Disposable upstream;
+
+    private volatile Disposable graceTask;
+
+    public ReplayableStream(String streamId, Long appId, Long userId, Flux<String> source, int bufferSize,
+                            Duration gracePeriod, StreamMirror mirror, ChunkLedgerManager ledgerManager,
+                            Consumer<ReplayableStream> onTerminate) {
+        this.streamId = streamId;
+        this.appId = appId;
+        this.userId = userId;
+        this.source = source;
+        this.bufferSize = bufferSize;
+        this.gracePeriod = gracePeriod;
+        this.mirror = mirror;
+        this.onTerminate = onTerminate;
+        this.ledgerManager = ledgerManager;
+        this.retainedBytes = ledgerManager != null ? new int[bufferSize] : null;
+        this.sink = Sinks.many().replay().limit(bufferSize);
+    }
+
+    /**
+     * 订阅事件流
+     *
+     * @param lastSeq 客户端已经收到的最后一个序号，首次订阅传 -1
+     * @return 序号大于 lastSeq 的事件（先重放缓冲区，再接实时尾部）
+     */
+    public Flux<StreamEvent> subscribe(long lastSeq) {
+        // 需要的事件已经被挤出环形缓冲区，无法无缝续传
+        long oldestRetainedSeq = nextSeq.get() - bufferSize;
+        if (lastSeq + 1 < oldestRetainedSeq) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "生成流缓冲已过期，请重新发起对话");
+        }
+        return sink.asFlux()
+                .filter(event -> event.getSeq() > lastSeq)
+                .doOnSubscribe(subscription -> onSubscriberJoin())
+                .doFinally(signalType -> onSubscriberLeave());
+    }
+
+    /**
+     * 上游是否已经结束
+     */
+    public boolean isTerminated() {
+        return terminated.get();
+    }
+
+    /**
+     * 归还重放缓冲区占用的内存预算（幂等）
+     */
+    public synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        if (ledgerManager != null) {
+            ledgerManager.account(-accountedBytes);
+        }
+        accountedBytes = 0;
+    }
+
+    private void onSubscriberJoin() {
+        subscriberCount.incrementAndGet();
+        Disposable pendingGraceTask = graceTask;
+        if (pendingGraceTask != null) {
+            pendingGraceTask.dispose();
+            graceTask = null;
+        }
+        // 第一个订阅者到来时才真正发起上游调用
+        if (connected.compareAndSet(false, true)) {
+            upstream = source.subscribe(this::emit, this::fail, this::complete);
+        }
+    }
+
+    private void onSubscriberLeave() {
+        if (subscriberCount.decrementAndGet() > 0 || terminated.get()) {
+            return;
+        }
+        // 客户端全部断开，宽限期内等待重连
+        graceTask = Schedulers.parallel().schedule(this::cancelIfAbandoned, gracePeriod.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelIfAbandoned() {
+        if (subscriberCount.get() > 0 || !terminated.compareAndSet(false, true)) {
+            return;
+        }
+        log.info("生成流在宽限期内没有客户端重连，取消上游，streamId: {}, appId: {}", streamId, appId);
+        Disposable currentUpstream = upstream;
+        if (currentUpstream != null) {
+            currentUpstream.dispose();
+        }
+        sink.tryEmitComplete();
+        if (mirror != null) {
+            mirror.end(streamId, false);
+        }
+        onTerminate.accept(this);
+    }
+
+    private void emit(String chunk) {
+        StreamEvent event = new StreamEvent(streamId, nextSeq.getAndIncrement(), chunk);
+        Sinks.EmitResult result = sink.tryEmitNext(event);
+        if (result.isFailure()) {
+            // 只有宽限期到期的取消会与上游并发结束缓冲区，此时流已经终止，丢弃事件即可
+            if (!terminated.get()) {
+                log.error("生成流事件写入重放缓冲区失败，streamId: {}, seq: {}, 原因: {}", streamId, event.getSeq(), result);
+                Disposable currentUpstream = upstream;
+                if (currentUpstream != null) {
+                    currentUpstream.dispose();
+                }
+                fail(new IllegalStateException("生成流事件写入失败: " + result));
+            }
+            return;
+        }
+        account(event);
+        if (mirror != null) {
+            mirror.append(event);
+        }
+    }
+
+    /**
+     * 新事件占用一个槽位，同时扣除被挤出环形缓冲区的旧事件
+     */
+    private synchronized void account(StreamEvent event) {
+        if (ledgerManager == null || released) {
+            return;
+        }
+        int slot = (int) (event.getSeq() % bufferSize);
+        int bytes = (int) ChunkLedgerManager.estimateBytes(event.getData());
+        long delta = bytes - retainedBytes[slot];
+        retainedBytes[slot] = bytes;
+        accountedBytes += delta;
+        ledgerManager.account(delta);
+    }
+
+    private void complete() {
+        if (!terminated.compareAndSet(false, true)) {
+            return;
+        }
+        sink.tryEmitComplete();
+        if (mirror != null) {
+            mirror.end(streamId, true);
+        }
+        onTerminate.accept(this);
+    }
+
+    private void fail(Throwable error) {
+        if (!terminated.compareAndSet(false, true)) {
+            return;
+        }
+        sink.tryEmitError(error);
+        if (mirror != null) {
+            mirror.end(streamId, false);
+        }
+        onTerminate.accept(this);
+    }
+}
@@ -0,0 +1,34 @@
+package com.hex.ailowcode.core.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 可重放生成流中的一个事件
+ */
+@Data
+@AllArgsConstructor
+public class StreamEvent {
+
+    /**
+     * 所属生成流 ID
+     */
+    private String streamId;
+
+    /**
+     * 流内递增序号，从 0 开始
+     */
+    private long seq;
+
+    /**
+     * 事件内容（代码片段）
+     */
+    private String data;
+
+    /**
+     * SSE 事件 ID：{streamId}-{seq}，浏览器断线重连时通过 Last-Event-ID 带回
+     */
+    public String getEventId() {
+        return streamId + "-" + seq;
+    }
+}
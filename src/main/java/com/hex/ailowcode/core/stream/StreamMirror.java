@@ -0,0 +1,34 @@
+package com.hex.ailowcode.core.stream;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * 生成流事件镜像
+ * 本地重放缓冲区之外的可选副本，使断线重连落到其他节点时也能续传
+ */
+public interface StreamMirror {
+
+    /**
+     * 生成流开始，记录归属信息
+     */
+    void start(String streamId, Long appId, Long userId);
+
+    /**
+     * 追加一个事件
+     */
+    void append(StreamEvent event);
+
+    /**
+     * 生成流结束
+     *
+     * @param success 是否正常完成
+     */
+    void end(String streamId, boolean success);
+
+    /**
+     * 从镜像中续传：先返回序号大于 lastSeq 的已有事件，再跟随后续写入直到流结束
+     *
+     * @return 镜像中不存在该流或归属不匹配时返回 null
+     */
+    Flux<StreamEvent> replay(String streamId, long lastSeq, Long appId, Long userId);
+}
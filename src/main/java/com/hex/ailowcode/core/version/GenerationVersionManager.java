@@ -0,0 +1,384 @@
+package com.hex.ailowcode.core.version;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hex.ailowcode.constant.AppConstant;
+import com.hex.ailowcode.core.saver.BlobStore;
+import com.hex.ailowcode.exception.BusinessException;
+import com.hex.ailowcode.exception.ErrorCode;
+import com.hex.ailowcode.model.enums.CodeGenTypeEnum;
+import com.hex.ailowcode.model.vo.AppVersionDiffVO;
+import com.hex.ailowcode.model.vo.AppVersionVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 应用生成版本管理
+ *
+ * 每轮对话生成结束后为应用的输出目录记录一个版本，版本清单只保存相对上一个版本变化的文件（相对路径 -> 内容哈希），
+ * 文件内容本身在 blob 存储中只保存一份：
+ * - 清单：{CODE_OUTPUT_ROOT_DIR}/.snapshots/{type}_{appId}/manifests/{版本号}.json
+ * - 保留链接：{CODE_OUTPUT_ROOT_DIR}/.snapshots/{type}_{appId}/pins/{哈希}，保证被版本引用的 blob 不会被回收
+ *
+ * 输出目录中的文件在记录版本时被替换为指向 blob 的硬链接，下一轮只需比较文件标识就能判断是否变化，
+ * 记录版本和回滚都只读写变化的文件，不调用模型
+ */
+@Slf4j
+@Component
+public class GenerationVersionManager {
+
+    private static final String SNAPSHOTS_DIR = ".snapshots";
+
+    private static final String MANIFESTS_DIR = "manifests";
+
+    private static final String PINS_DIR = "pins";
+
+    private static final String MANIFEST_SUFFIX = ".json";
+
+    /**
+     * 不纳入版本的目录：依赖和构建产物
+     */
+    private static final Set<String> EXCLUDED_DIRS = Set.of("node_modules", "dist");
+
+    /**
+     * 版本说明中保留的提示词长度
+     */
+    private static final int MESSAGE_MAX_LENGTH = 50;
+
+    private static final Path SNAPSHOT_ROOT = Path.of(AppConstant.CODE_OUTPUT_ROOT_DIR, SNAPSHOTS_DIR);
+
+    /**
+     * 每个应用最新版本的完整文件表，避免每轮都重新合并全部清单
+     */
+    private final Cache<String, VersionState> latestStates = Caffeine.newBuilder()
+            .maximumSize(1024)
+            .build();
+
+    /**
+     * 分段锁：同一应用的记录版本和回滚串行执行
+     */
+    private final Lock[] locks = new Lock[64];
+
+    public GenerationVersionManager() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 为应用当前的输出目录记录一个版本，没有任何文件变化时不产生新版本
+     *
+     * @param appId       应用 ID
+     * @param codeGenType 代码生成类型
+     * @param message     本轮用户提示词
+     * @return 当前版本号，输出目录不存在时返回 null
+     */
+    public Integer createSnapshot(Long appId, CodeGenTypeEnum codeGenType, String message) {
+        String dirName = buildDirName(appId, codeGenType);
+        Lock lock = lockFor(dirName);
+        lock.lock();
+        try {
+            return doCreateSnapshot(dirName, message);
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "记录生成版本失败：" + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取应用的版本列表（新版本在前）
+     */
+    public List<AppVersionVO> listVersions(Long appId, CodeGenTypeEnum codeGenType) {
+        List<VersionManifest> manifests = readManifests(buildDirName(appId, codeGenType));
+        List<AppVersionVO> versionVOList = new ArrayList<>(manifests.size());
+        for (int i = manifests.size() - 1; i >= 0; i--) {
+            versionVOList.add(toVersionVO(manifests.get(i)));
+        }
+        return versionVOList;
+    }
+
+    /**
+     * 比较两个版本之间的文件差异
+     */
+    public AppVersionDiffVO diff(Long appId, CodeGenTypeEnum codeGenType, int fromVersion, int toVersion) {
+        List<VersionManifest> manifests = readManifests(buildDirName(appId, codeGenType));
+        checkVersionExists(manifests, fromVersion);
+        checkVersionExists(manifests, toVersion);
+        Map<String, String> fromFiles = foldManifests(manifests, fromVersion).files();
+        Map<String, String> toFiles = foldManifests(manifests, toVersion).files();
+        List<String> added = new ArrayList<>();
+        List<String> modified = new ArrayList<>();
+        toFiles.forEach((path, hash) -> {
+            String fromHash = fromFiles.get(path);
+            if (fromHash == null) {
+                added.add(path);
+            } else if (!fromHash.equals(hash)) {
+                modified.add(path);
+            }
+        });
+        List<String> deleted = fromFiles.keySet().stream().filter(path -> !toFiles.containsKey(path)).sorted().toList();
+        added.sort(Comparator.naturalOrder());
+        modified.sort(Comparator.naturalOrder());
+        AppVersionDiffVO diffVO = new AppVersionDiffVO();
+        diffVO.setFromVersion(fromVersion);
+        diffVO.setToVersion(toVersion);
+        diffVO.setAdded(added);
+        diffVO.setModified(modified);
+        diffVO.setDeleted(deleted);
+        return diffVO;
+    }
+
+    /**
+     * 把应用的输出目录回滚到指定版本，回滚结果记录为一个新版本（回滚本身也可以撤销）
+     * 按目标版本的文件表在暂存区构建新版本（文件都是指向 blob 的硬链接）并原子发布，不调用模型
+     *
+     * @return 回滚后的版本号
+     */
+    public Integer restore(Long appId, CodeGenTypeEnum codeGenType, int version) {
+        String dirName = buildDirName(appId, codeGenType);
+        Lock lock = lockFor(dirName);
+        lock.lock();
+        try {
+            List<VersionManifest> manifests = readManifests(dirName);
+            checkVersionExists(manifests, version);
+            Map<String, String> targetFiles = foldManifests(manifests, version).files();
+            // 先记录输出目录的当前状态（可能有未入版本的改动），再以它为基准计算需要改动的文件
+            doCreateSnapshot(dirName, null);
+            VersionState current = latestState(dirName);
+            Map<String, String> changed = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : targetFiles.entrySet()) {
+                if (!entry.getValue().equals(current.files().get(entry.getKey()))) {
+                    changed.put(entry.getKey(), entry.getValue());
+                }
+            }
+            List<String> deleted = current.files().keySet().stream().filter(path -> !targetFiles.containsKey(path)).sorted().toList();
+            if (changed.isEmpty() && deleted.isEmpty()) {
+                return current.version();
+            }
+            // 在暂存区按目标版本的文件表构建完整项目后原子切换，读取方不会看到回滚了一半的目录
+            BlobStore.publishManifest(Path.of(AppConstant.CODE_OUTPUT_ROOT_DIR), dirName, targetFiles);
+            log.info("应用回滚完成，目录: {}, 回滚到版本: {}, 替换文件: {}, 删除文件: {}", dirName, version, changed.size(), deleted.size());
+            return writeManifest(dirName, current, changed, deleted, "回滚到版本 " + version, version).getVersion();
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "回滚版本失败：" + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 删除应用的全部版本（删除应用时调用），被引用的 blob 随后由 blob 存储回收
+     */
+    public void deleteVersions(Long appId, CodeGenTypeEnum codeGenType) {
+        String dirName = buildDirName(appId, codeGenType);
+        Lock lock = lockFor(dirName);
+        lock.lock();
+        try {
+            FileUtil.del(SNAPSHOT_ROOT.resolve(dirName).toFile());
+            latestStates.invalidate(dirName);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Integer doCreateSnapshot(String dirName, String message) throws IOException {
+        Path liveDir = Path.of(AppConstant.CODE_OUTPUT_ROOT_DIR, dirName);
+        if (!Files.isDirectory(liveDir)) {
+            return null;
+        }
+        VersionState latest = latestState(dirName);
+        Path root = liveDir.toRealPath();
+        Map<String, String> files = new HashMap<>();
+        Map<String, String> changed = new LinkedHashMap<>();
+        for (Path file : listFiles(root)) {
+            String relativePath = root.relativize(file).toString().replace(File.separatorChar, '/');
+            String previousHash = latest.files().get(relativePath);
+            // 仍是上一版本 blob 的硬链接说明内容没变，不读取文件内容
+            String hash = previousHash != null && BlobStore.isLinkedTo(file, previousHash)
+                    ? previousHash : BlobStore.adopt(file);
+            files.put(relativePath, hash);
+            if (!hash.equals(previousHash)) {
+                changed.put(relativePath, hash);
+            }
+        }
+        List<String> deleted = latest.files().keySet().stream().filter(path -> !files.containsKey(path)).sorted().toList();
+        if (changed.isEmpty() && deleted.isEmpty() && (latest.version() > 0 || files.isEmpty())) {
+            return latest.version() > 0 ? latest.version() : null;
+        }
+        VersionManifest manifest = writeManifest(dirName, latest, changed, deleted, message, null);
+        log.info("记录生成版本，目录: {}, 版本: {}, 变化文件: {}, 删除文件: {}", dirName, manifest.getVersion(),
+                changed.size(), deleted.size());
+        return manifest.getVersion();
+    }
+
+    /**
+     * 保留变化文件的 blob 并写入新版本清单，同时更新最新版本缓存
+     */
+    private VersionManifest writeManifest(String dirName, VersionState base, Map<String, String> changed,
+                                          List<String> deleted, String message, Integer restoredFrom) throws IOException {
+        Path pinDir = SNAPSHOT_ROOT.resolve(dirName).resolve(PINS_DIR);
+        for (String hash : changed.values()) {
+            BlobStore.pin(pinDir, hash);
+        }
+        Map<String, String> files = new HashMap<>(base.files());
+        files.putAll(changed);
+        deleted.forEach(files::remove);
+        VersionManifest manifest = new VersionManifest();
+        manifest.setVersion(base.version() + 1);
+        manifest.setChanged(changed);
+        manifest.setDeleted(deleted);
+        manifest.setFileCount(files.size());
+        manifest.setMessage(StrUtil.maxLength(message, MESSAGE_MAX_LENGTH));
+        manifest.setRestoredFrom(restoredFrom);
+        manifest.setCreateTime(System.currentTimeMillis());
+        writeManifestFile(dirName, manifest);
+        latestStates.put(dirName, new VersionState(manifest.getVersion(), files));
+        return manifest;
+    }
+
+    /**
+     * 写临时文件后原子 rename，清单文件要么不存在要么完整
+     */
+    private void writeManifestFile(String dirName, VersionManifest manifest) throws IOException {
+        Path manifestDir = SNAPSHOT_ROOT.resolve(dirName).resolve(MANIFESTS_DIR);
+        Files.createDirectories(manifestDir);
+        Path tempFile = manifestDir.resolve("." + manifest.getVersion() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            Files.writeString(tempFile, JSONUtil.toJsonStr(manifest), StandardCharsets.UTF_8);
+            Files.move(tempFile, manifestDir.resolve(manifest.getVersion() + MANIFEST_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private VersionState latestState(String dirName) {
+        return latestStates.get(dirName, key -> foldManifests(readManifests(key), Integer.MAX_VALUE));
+    }
+
+    /**
+     * 读取应用的全部版本清单（按版本号升序）
+     */
+    private List<VersionManifest> readManifests(String dirName) {
+        Path manifestDir = SNAPSHOT_ROOT.resolve(dirName).resolve(MANIFESTS_DIR);
+        if (!Files.isDirectory(manifestDir)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(manifestDir)) {
+            List<VersionManifest> manifests = new ArrayList<>();
+            for (Path path : paths.filter(path -> path.getFileName().toString().endsWith(MANIFEST_SUFFIX)
+                    && !path.getFileName().toString().startsWith(".")).toList()) {
+                manifests.add(JSONUtil.toBean(Files.readString(path, StandardCharsets.UTF_8), VersionManifest.class));
+            }
+            manifests.sort(Comparator.comparing(VersionManifest::getVersion));
+            return manifests;
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取版本清单失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 依次合并版本清单，得到指定版本的完整文件表
+     */
+    private static VersionState foldManifests(List<VersionManifest> manifests, int version) {
+        Map<String, String> files = new HashMap<>();
+        int foldedVersion = 0;
+        for (VersionManifest manifest : manifests) {
+            if (manifest.getVersion() > version) {
+                break;
+            }
+            files.putAll(manifest.getChanged());
+            manifest.getDeleted().forEach(files::remove);
+            foldedVersion = manifest.getVersion();
+        }
+        return new VersionState(foldedVersion, files);
+    }
+
+    /**
+     * 列出目录下需要纳入版本的文件，跳过隐藏文件、依赖和构建产物目录
+     */
+    private static List<Path> listFiles(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.equals(root)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String dirName = dir.getFileName().toString();
+                return dirName.startsWith(".") || EXCLUDED_DIRS.contains(dirName)
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !file.getFileName().toString().startsWith(".")) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private static void checkVersionExists(List<VersionManifest> manifests, int version) {
+        boolean exists = manifests.stream().anyMatch(manifest -> manifest.getVersion() == version);
+        if (!exists) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "版本不存在：" + version);
+        }
+    }
+
+    private static AppVersionVO toVersionVO(VersionManifest manifest) {
+        AppVersionVO versionVO = new AppVersionVO();
+        versionVO.setVersion(manifest.getVersion());
+        versionVO.setMessage(manifest.getMessage());
+        versionVO.setFileCount(manifest.getFileCount());
+        versionVO.setChangedCount(manifest.getChanged().size());
+        versionVO.setDeletedCount(manifest.getDeleted().size());
+        versionVO.setRestoredFrom(manifest.getRestoredFrom());
+        versionVO.setCreateTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(manifest.getCreateTime()), ZoneId.systemDefault()));
+        return versionVO;
+    }
+
+    private static String buildDirName(Long appId, CodeGenTypeEnum codeGenType) {
+        return codeGenType.getValue() + "_" + appId;
+    }
+
+    private Lock lockFor(String dirName) {
+        return locks[Math.floorMod(dirName.hashCode(), locks.length)];
+    }
+
+    /**
+     * 某个版本的完整文件表：相对路径 -> 内容哈希
+     */
+    private record VersionState(int version, Map<String, String> files) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.hex.ailowcode.core.version;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个生成版本的清单（只记录相对上一个版本的变化）
+ * 文件内容保存在 blob 存储中，清单里只有 相对路径 -> 内容哈希
+ */
+@Data
+public class VersionManifest {
+
+    /**
+     * 版本号，从 1 开始递增
+     */
+    private Integer version;
+
+    /**
+     * 本版本新增或修改的文件：相对路径 -> 内容哈希
+     */
+    private Map<String, String> changed = new LinkedHashMap<>();
+
+    /**
+     * 本版本删除的文件（相对路径）
+     */
+    private List<String> deleted = new ArrayList<>();
+
+    /**
+     * 本版本的文件总数
+     */
+    private Integer fileCount;
+
+    /**
+     * 产生本版本的用户提示词（截断）
+     */
+    private String message;
+
+    /**
+     * 由回滚产生时，回滚到的版本号
+     */
+    private Integer restoredFrom;
+
+    /**
+     * 创建时间（毫秒时间戳）
+     */
+    private Long createTime;
+}
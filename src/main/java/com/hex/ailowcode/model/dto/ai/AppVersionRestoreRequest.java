@@ -0,0 +1,24 @@
+package com.hex.ailowcode.model.dto.ai;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 回滚应用到指定生成版本请求
+ */
+@Data
+public class AppVersionRestoreRequest implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 要回滚到的版本号
+     */
+    private Integer version;
+
+    private static final long serialVersionUID = 1L;
+}
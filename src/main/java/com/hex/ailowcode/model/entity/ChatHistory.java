@@ -44,6 +44,11 @@ public class ChatHistory implements Serializable {
     @Column("messageType")
     private String messageType;
 
+    /**
+     * 消息状态：completed/failed/cancelled
+     */
+    private String status;
+
     /**
      * 应用id
      */
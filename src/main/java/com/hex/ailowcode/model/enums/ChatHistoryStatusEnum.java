@@ -0,0 +1,42 @@
+package com.hex.ailowcode.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 对话历史消息状态枚举
+ */
+@Getter
+public enum ChatHistoryStatusEnum {
+
+    COMPLETED("已完成", "completed"),
+    FAILED("失败", "failed"),
+    CANCELLED("已取消", "cancelled");
+
+    private final String text;
+
+    private final String value;
+
+    ChatHistoryStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static ChatHistoryStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (ChatHistoryStatusEnum anEnum : ChatHistoryStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
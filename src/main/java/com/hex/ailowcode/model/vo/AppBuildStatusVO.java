@@ -0,0 +1,39 @@
+package com.hex.ailowcode.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 应用构建排队状态封装类
+ */
+@Data
+public class AppBuildStatusVO implements Serializable {
+
+    /**
+     * 状态：queued 排队中，building 构建中
+     */
+    private String state;
+
+    /**
+     * 排队位置（从 1 开始），构建中为 0
+     */
+    private Integer position;
+
+    /**
+     * 当前排队中的构建总数
+     */
+    private Integer queueSize;
+
+    /**
+     * 预计还需等待多久开始构建（秒）
+     */
+    private Long estimatedWaitSeconds;
+
+    /**
+     * 预计还需多久构建完成（秒）
+     */
+    private Long estimatedFinishSeconds;
+
+    private static final long serialVersionUID = 1L;
+}
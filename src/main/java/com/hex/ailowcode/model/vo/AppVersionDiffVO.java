@@ -0,0 +1,40 @@
+package com.hex.ailowcode.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 两个应用生成版本之间的文件差异
+ */
+@Data
+public class AppVersionDiffVO implements Serializable {
+
+    /**
+     * 起始版本号
+     */
+    private Integer fromVersion;
+
+    /**
+     * 目标版本号
+     */
+    private Integer toVersion;
+
+    /**
+     * 目标版本新增的文件
+     */
+    private List<String> added;
+
+    /**
+     * 内容有变化的文件
+     */
+    private List<String> modified;
+
+    /**
+     * 目标版本删除的文件
+     */
+    private List<String> deleted;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,50 @@
+package com.hex.ailowcode.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 应用生成版本封装类
+ */
+@Data
+public class AppVersionVO implements Serializable {
+
+    /**
+     * 版本号
+     */
+    private Integer version;
+
+    /**
+     * 产生该版本的用户提示词（截断）
+     */
+    private String message;
+
+    /**
+     * 文件总数
+     */
+    private Integer fileCount;
+
+    /**
+     * 相对上一个版本新增或修改的文件数
+     */
+    private Integer changedCount;
+
+    /**
+     * 相对上一个版本删除的文件数
+     */
+    private Integer deletedCount;
+
+    /**
+     * 由回滚产生时，回滚到的版本号
+     */
+    private Integer restoredFrom;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -34,6 +34,13 @@ public class AiModelMetricsCollector {
     private final ConcurrentMap<String, Counter> errorCountersCache = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Counter> tokenCountersCache = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Timer> responseTimersCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> singleFlightCountersCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> cancellationCountersCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> cancelledCharsCountersCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> budgetExceededCountersCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> budgetExceededCharsCountersCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> minifyOriginalBytesCountersCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> minifySavedBytesCountersCache = new ConcurrentHashMap<>();
 
     /**
      * 记录 AI 模型请求次数
@@ -128,4 +135,108 @@ public class AiModelMetricsCollector {
         );
         timer.record(duration);  // 记录耗时
     }
+
+    /**
+     * 记录单飞复用次数（即节省的 AI 模型调用次数）
+     *
+     * 同一应用的相同生成请求并发到达时，重复请求挂到进行中的生成流上，不再调用模型：
+     * - app_id: 按应用维度统计
+     * - code_gen_type: 按生成类型统计
+     */
+    public void recordSingleFlightHit(String appId, String codeGenType) {
+        String key = String.format("%s_%s", appId, codeGenType);  // 缓存key：拼接所有维度
+        Counter counter = singleFlightCountersCache.computeIfAbsent(key, k ->
+                Counter.builder("ai_model_calls_saved_total")         // 指标名称
+                        .description("单飞复用节省的AI模型调用次数")       // 指标描述
+                        .tag("app_id", appId)                         // 标签：按应用维度统计
+                        .tag("code_gen_type", codeGenType)            // 标签：按生成类型统计
+                        .register(meterRegistry)                      // 注册到Micrometer注册表
+        );
+        counter.increment();  // 计数器+1
+    }
+
+    /**
+     * 记录生成被取消的次数（客户端断开后中止模型请求）
+     *
+     * 使用两个 Counter 统计：
+     * - ai_generation_cancelled_total: 取消次数
+     * - ai_generation_cancelled_chars_total: 取消前已生成的字符数（估算被浪费的输出）
+     * 标签：user_id、app_id、code_gen_type
+     */
+    public void recordCancellation(String userId, String appId, String codeGenType, long generatedChars) {
+        String key = String.format("%s_%s_%s", userId, appId, codeGenType);  // 缓存key：拼接所有维度
+        Counter counter = cancellationCountersCache.computeIfAbsent(key, k ->
+                Counter.builder("ai_generation_cancelled_total")      // 指标名称
+                        .description("AI生成被取消次数")                 // 指标描述
+                        .tag("user_id", userId)                       // 标签：按用户维度统计
+                        .tag("app_id", appId)                         // 标签：按应用维度统计
+                        .tag("code_gen_type", codeGenType)            // 标签：按生成类型统计
+                        .register(meterRegistry)                      // 注册到Micrometer注册表
+        );
+        counter.increment();  // 计数器+1
+        Counter charsCounter = cancelledCharsCountersCache.computeIfAbsent(key, k ->
+                Counter.builder("ai_generation_cancelled_chars_total") // 指标名称
+                        .description("AI生成被取消前已输出的字符数")        // 指标描述
+                        .tag("user_id", userId)                        // 标签：按用户维度统计
+                        .tag("app_id", appId)                          // 标签：按应用维度统计
+                        .tag("code_gen_type", codeGenType)             // 标签：按生成类型统计
+                        .register(meterRegistry)                       // 注册到Micrometer注册表
+        );
+        charsCounter.increment(generatedChars);  // 计数器增加指定数量
+    }
+
+    /**
+     * 记录生成因超出输出预算被中止的次数
+     *
+     * 使用两个 Counter 统计：
+     * - ai_generation_budget_exceeded_total: 中止次数
+     * - ai_generation_budget_exceeded_chars_total: 中止前已输出的字符数
+     * 标签：app_id、code_gen_type、reason（no_code_fence / output_too_long / repeated_lines）
+     */
+    public void recordOutputBudgetExceeded(String appId, String codeGenType, String reason, long generatedChars) {
+        String key = String.format("%s_%s_%s", appId, codeGenType, reason);  // 缓存key：拼接所有维度
+        Counter counter = budgetExceededCountersCache.computeIfAbsent(key, k ->
+                Counter.builder("ai_generation_budget_exceeded_total")  // 指标名称
+                        .description("AI生成超出输出预算被中止次数")          // 指标描述
+                        .tag("app_id", appId)                           // 标签：按应用维度统计
+                        .tag("code_gen_type", codeGenType)              // 标签：按生成类型统计
+                        .tag("reason", reason)                          // 标签：按中止原因统计
+                        .register(meterRegistry)                        // 注册到Micrometer注册表
+        );
+        counter.increment();  // 计数器+1
+        Counter charsCounter = budgetExceededCharsCountersCache.computeIfAbsent(key, k ->
+                Counter.builder("ai_generation_budget_exceeded_chars_total") // 指标名称
+                        .description("AI生成超出输出预算被中止前已输出的字符数")        // 指标描述
+                        .tag("app_id", appId)                              // 标签：按应用维度统计
+                        .tag("code_gen_type", codeGenType)                 // 标签：按生成类型统计
+                        .tag("reason", reason)                             // 标签：按中止原因统计
+                        .register(meterRegistry)                           // 注册到Micrometer注册表
+        );
+        charsCounter.increment(generatedChars);  // 计数器增加指定数量
+    }
+
+    /**
+     * 记录部署时压缩（minify）html/css/js 节省的字节数
+     *
+     * 使用两个 Counter 统计：
+     * - code_minify_original_bytes_total: 被压缩文件压缩前的字节数
+     * - code_minify_saved_bytes_total: 压缩节省的字节数
+     * 标签：app_id
+     */
+    public void recordAssetMinified(String appId, long originalBytes, long minifiedBytes) {
+        Counter originalCounter = minifyOriginalBytesCountersCache.computeIfAbsent(appId, k ->
+                Counter.builder("code_minify_original_bytes_total")   // 指标名称
+                        .description("部署时被压缩文件的原始字节数")         // 指标描述
+                        .tag("app_id", appId)                         // 标签：按应用维度统计
+                        .register(meterRegistry)                      // 注册到Micrometer注册表
+        );
+        originalCounter.increment(originalBytes);
+        Counter savedCounter = minifySavedBytesCountersCache.computeIfAbsent(appId, k ->
+                Counter.builder("code_minify_saved_bytes_total")      // 指标名称
+                        .description("部署时压缩节省的字节数")              // 指标描述
+                        .tag("app_id", appId)                         // 标签：按应用维度统计
+                        .register(meterRegistry)                      // 注册到Micrometer注册表
+        );
+        savedCounter.increment(originalBytes - minifiedBytes);
+    }
 }
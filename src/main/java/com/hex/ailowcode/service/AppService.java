@@ -6,6 +6,9 @@ import com.hex.ailowcode.model.dto.ai.AppUpdateRequest;
 import com.hex.ailowcode.model.entity.App;
 import com.hex.ailowcode.model.entity.User;
 import com.hex.ailowcode.model.vo.AppVO;
+import com.hex.ailowcode.model.vo.AppBuildStatusVO;
+import com.hex.ailowcode.model.vo.AppVersionDiffVO;
+import com.hex.ailowcode.model.vo.AppVersionVO;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
@@ -138,4 +141,45 @@ public interface AppService extends IService<App> {
      * @return 可访问的部署地址
      */
     String deployApp(Long appId, User loginUser);
-}
\ No newline at end of file
+
+    /**
+     * 获取应用部署构建的排队位置和预计耗时（Vue 工程）
+     *
+     * @param appId     应用 ID
+     * @param loginUser 登录用户
+     * @return 没有排队或执行中的构建时返回 null
+     */
+    AppBuildStatusVO getAppBuildStatus(Long appId, User loginUser);
+
+    // ==================== 版本相关 ====================
+
+    /**
+     * 获取应用的生成版本列表（新版本在前）
+     *
+     * @param appId     应用 ID
+     * @param loginUser 登录用户
+     * @return 版本列表
+     */
+    List<AppVersionVO> listAppVersions(Long appId, User loginUser);
+
+    /**
+     * 比较应用两个生成版本之间的文件差异
+     *
+     * @param appId       应用 ID
+     * @param fromVersion 起始版本号
+     * @param toVersion   目标版本号
+     * @param loginUser   登录用户
+     * @return 文件差异
+     */
+    AppVersionDiffVO diffAppVersions(Long appId, Integer fromVersion, Integer toVersion, User loginUser);
+
+    /**
+     * 把应用回滚到指定生成版本（不调用 AI）
+     *
+     * @param appId     应用 ID
+     * @param version   要回滚到的版本号
+     * @param loginUser 登录用户
+     * @return 回滚后的版本号
+     */
+    Integer restoreAppVersion(Long appId, Integer version, User loginUser);
+}
@@ -27,6 +27,18 @@ public interface ChatHistoryService extends IService<ChatHistory> {
      */
     boolean addChatMessage(Long appId, String message, String messageType, Long userId);
 
+    /**
+     * 添加对话历史（指定消息状态）
+     *
+     * @param appId       应用 id
+     * @param message     消息
+     * @param messageType 消息类型
+     * @param status      消息状态
+     * @param userId      用户 id
+     * @return 是否成功
+     */
+    boolean addChatMessage(Long appId, String message, String messageType, String status, Long userId);
+
     /**
      * 根据应用 id 删除对话历史
      *
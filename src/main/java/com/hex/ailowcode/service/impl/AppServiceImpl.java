@@ -5,10 +5,18 @@ import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
+import com.hex.ailowcode.config.CodeGenProperties;
 import com.hex.ailowcode.constant.AppConstant;
 import com.hex.ailowcode.constant.UserConstant;
 import com.hex.ailowcode.core.AiCodeGeneratorFacade;
-import com.hex.ailowcode.core.builder.VueProjectBuilder;
+import com.hex.ailowcode.core.builder.VueBuildScheduler;
+import com.hex.ailowcode.core.saver.BlobStore;
+import com.hex.ailowcode.core.saver.MaterializeResult;
+import com.hex.ailowcode.core.saver.ProjectFileIndex;
+import com.hex.ailowcode.core.stream.ChunkLedgerManager;
+import com.hex.ailowcode.core.stream.CompletionTaskExecutor;
+import com.hex.ailowcode.core.stream.GenerationFlight;
+import com.hex.ailowcode.core.version.GenerationVersionManager;
 import com.hex.ailowcode.exception.BusinessException;
 import com.hex.ailowcode.exception.ErrorCode;
 import com.hex.ailowcode.exception.ThrowUtils;
@@ -19,9 +27,14 @@ import com.hex.ailowcode.model.dto.ai.AppUpdateRequest;
 import com.hex.ailowcode.model.entity.App;
 import com.hex.ailowcode.model.entity.User;
 import com.hex.ailowcode.model.enums.ChatHistoryMessageTypeEnum;
+import com.hex.ailowcode.model.enums.ChatHistoryStatusEnum;
 import com.hex.ailowcode.model.enums.CodeGenTypeEnum;
+import com.hex.ailowcode.model.vo.AppBuildStatusVO;
 import com.hex.ailowcode.model.vo.AppVO;
+import com.hex.ailowcode.model.vo.AppVersionDiffVO;
+import com.hex.ailowcode.model.vo.AppVersionVO;
 import com.hex.ailowcode.model.vo.UserVO;
+import com.hex.ailowcode.monitor.AiModelMetricsCollector;
 import com.hex.ailowcode.monitor.MonitorContext;
 import com.hex.ailowcode.monitor.MonitorContextHolder;
 import com.hex.ailowcode.service.AppService;
@@ -34,14 +47,20 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.File;
 import java.io.Serializable;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -59,7 +78,19 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     @Resource
     private ChatHistoryService chatHistoryService;
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private VueBuildScheduler vueBuildScheduler;
+    @Resource
+    private ChunkLedgerManager chunkLedgerManager;
+    @Resource
+    private AiModelMetricsCollector aiModelMetricsCollector;
+    @Resource
+    private CompletionTaskExecutor completionTaskExecutor;
+    @Resource
+    private GenerationVersionManager generationVersionManager;
+    @Resource
+    private CodeGenProperties codeGenProperties;
+    @Resource
+    private ProjectFileIndex projectFileIndex;
 
     // ==================== VO 转换相关 ====================
 
@@ -284,32 +315,60 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "应用代码生成类型错误");
         }
 
-        // 5. 在调用 AI 前，先保存用户消息到数据库中
+        // 5. 节点生成流缓冲超出内存预算、或收尾任务排队过多时拒绝新的生成请求
+        ThrowUtils.throwIf(chunkLedgerManager.isOverBudget() || completionTaskExecutor.isSaturated(),
+                ErrorCode.TOO_MANY_REQUEST, "当前生成任务过多，请稍后再试");
+
+        // 6. 在调用 AI 前，先保存用户消息到数据库中
         chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
 
-        // 6. 设置监控上下文（用户 ID 和应用 ID）
+        // 7. 设置监控上下文（用户 ID 和应用 ID）
         MonitorContextHolder.setContext(MonitorContext.builder().userId(loginUser.getId().toString())
                 .appId(appId.toString()).build());
 
-        // 7. 调用 AI 生成代码（流式）
-        Flux<String> contentFlux = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
-        // 8. 收集 AI 响应的内容，并且在完成后保存记录到对话历史
-        StringBuilder aiResponseBuilder = new StringBuilder();
-        return contentFlux.map(chunk -> {
-                    // 实时收集并拼接 AI 响应的内容
-                    aiResponseBuilder.append(chunk);
-                    return chunk;
-                })// 1. Flux流成功完成时（正常结束）
-                .doOnComplete(() -> {
-                    // 流式返回完成后，保存 AI 消息到对话历史中
-                    String aiResponse = aiResponseBuilder.toString();
-                    chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                }) // 2. 流发生错误时
-                .doOnError(error -> {
-                    // 如果 AI 回复失败，也需要保存记录到数据库中
-                    String errorMessage = "AI 回复失败：" + error.getMessage();
-                    chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                })// 3. 流终止时（无论成功或失败都会执行）
+        // 8. 加入（或发起）一次 AI 生成（流式），AI 响应保存在与代码保存共用的单飞账本中，完成后保存记录到对话历史
+        // Flux.using 保证流结束（完成/失败/取消）后释放持有，最后一个持有者释放时账本归还内存预算
+        return Flux.using(() -> aiCodeGeneratorFacade.joinGeneration(message, codeGenTypeEnum, appId),
+                        generation -> generation.stream()
+                                // 1. 生成流发生错误时（只处理生成本身的错误，不包括之后的收尾任务）
+                                .onErrorResume(error -> {
+                                    // 如果 AI 回复失败，也需要保存记录到数据库中，保存后继续向下游传递错误
+                                    String errorMessage = "AI 回复失败：" + error.getMessage();
+                                    return completionTaskExecutor.execute("history_insert", () ->
+                                                    chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(),
+                                                            ChatHistoryStatusEnum.FAILED.getValue(), loginUser.getId()))
+                                            .then(Mono.error(error));
+                                })
+                                // 2. Flux流成功完成时（正常结束），在收尾执行器上保存 AI 消息到对话历史中
+                                // 收尾任务失败时生成结果已经返回给用户，只记录日志（失败次数由收尾执行器计入指标），不作为本轮回复失败
+                                .concatWith(completionTaskExecutor.execute("history_insert", () -> {
+                                    String aiResponse = generation.getResponse();
+                                    chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
+                                }).onErrorResume(error -> {
+                                    log.error("保存 AI 消息失败，appId: {}", appId, error);
+                                    return Mono.empty();
+                                }).then(Mono.empty()))
+                                // 2.1 为本轮生成结果记录一个版本（只保存变化的文件），失败不影响本轮对话
+                                .concatWith(completionTaskExecutor.execute("version_snapshot", () ->
+                                        generationVersionManager.createSnapshot(appId, codeGenTypeEnum, message)
+                                ).onErrorResume(error -> {
+                                    log.error("记录生成版本失败，appId: {}", appId, error);
+                                    return Mono.empty();
+                                }).then(Mono.empty()))
+                                // 3. 客户端断开（超过续传宽限期）导致流被取消时
+                                .doOnCancel(() -> {
+                                    // 取消会向上游传播并中止模型请求、跳过代码保存，这里保存已生成的部分回复
+                                    String partialResponse = generation.getResponse();
+                                    String cancelledMessage = StrUtil.isBlank(partialResponse) ? "AI 回复已取消" : partialResponse;
+                                    completionTaskExecutor.execute("history_insert", () ->
+                                                    chatHistoryService.addChatMessage(appId, cancelledMessage, ChatHistoryMessageTypeEnum.AI.getValue(),
+                                                            ChatHistoryStatusEnum.CANCELLED.getValue(), loginUser.getId()))
+                                            .subscribe(null, error -> log.error("保存已取消的 AI 回复失败，appId: {}", appId, error));
+                                    aiModelMetricsCollector.recordCancellation(loginUser.getId().toString(), appId.toString(),
+                                            codeGenTypeEnum.getValue(), partialResponse.length());
+                                }),
+                        GenerationFlight::release)
+                // 4. 流终止时（无论成功或失败都会执行）
                 .doOnTerminate(() -> {
                     // 流结束后清除监控上下文，防止 ThreadLocal 内存泄漏
                     MonitorContextHolder.clearContext();
@@ -346,24 +405,43 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         // 7. Vue 项目特殊处理：执行构建
         CodeGenTypeEnum codeGenTypeEnum = CodeGenTypeEnum.getEnumByValue(codeGenType);
         if (codeGenTypeEnum == CodeGenTypeEnum.VUE_PROJECT) {
-            // Vue 项目需要构建
-            boolean buildSuccess = vueProjectBuilder.buildProject(sourceDirPath);
-            ThrowUtils.throwIf(!buildSuccess, ErrorCode.SYSTEM_ERROR, "Vue 项目构建失败，请重试");
-            // 获取构建后的 dist 目录
-            File distDir = new File(sourceDirPath, "dist");
+            // Vue 项目需要构建：提交到构建队列排队执行，管理员和精选应用优先
+            boolean highPriority = UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole())
+                    || AppConstant.GOOD_APP_PRIORITY.equals(app.getPriority());
+            CompletableFuture<Path> build = vueBuildScheduler.submit(appId, loginUser.getId(), sourceDirPath,
+                    highPriority ? VueBuildScheduler.BuildPriority.HIGH : VueBuildScheduler.BuildPriority.NORMAL);
+            Path builtDir;
+            try {
+                // 在副本上限时等待：超时不会取消构建，也不影响合并到同一构建的其他部署请求
+                builtDir = build.copy()
+                        .orTimeout(codeGenProperties.getVueBuildWaitTimeoutSeconds(), TimeUnit.SECONDS)
+                        .join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "Vue 项目仍在构建中，请查看构建状态，构建完成后重新部署");
+                }
+                if (e.getCause() instanceof BusinessException businessException) {
+                    throw businessException;
+                }
+                throw e;
+            }
+            ThrowUtils.throwIf(builtDir == null, ErrorCode.SYSTEM_ERROR, "Vue 项目构建失败，请重试");
+            // 获取构建后的 dist 目录：从构建所在的版本目录读取，构建结束后发布的新版本不包含 dist
+            File distDir = builtDir.resolve("dist").toFile();
             // 构建完成后，将构建后的文件复制到部署目录
             sourceDir = distDir;
         }
-        // 8. 复制文件到部署目录
-        String deployDirPath = AppConstant.CODE_DEPLOY_ROOT_DIR + File.separator + deployKey;
-        File deployDir = new File(deployDirPath);
+        // 8. 发布到部署目录：文件以硬链接的形式指向内容寻址存储，不复制文件内容，新目录准备好后原子切换
+        // 同时压缩（minify）html/css/js 并生成 .gz 预压缩变体，由 nginx gzip_static 直接返回
+        // Vue 项目的构建产物已经由构建工具压缩过，不再 minify
+        boolean minify = codeGenProperties.isMinifyEnabled() && codeGenTypeEnum != CodeGenTypeEnum.VUE_PROJECT;
         try {
-            // 先删除残留旧文件
-            if (deployDir.exists()) {
-                FileUtil.del(deployDir);
+            MaterializeResult materializeResult = BlobStore.materialize(sourceDir, Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR),
+                    deployKey, minify, codeGenProperties.isPrecompressEnabled());
+            if (materializeResult.getMinifyOriginalBytes() > 0) {
+                aiModelMetricsCollector.recordAssetMinified(appId.toString(), materializeResult.getMinifyOriginalBytes(),
+                        materializeResult.getMinifiedBytes());
             }
-            // 再复制新文件到部署目录
-            FileUtil.copyContent(sourceDir, deployDir, true);
         } catch (Exception e) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "应用部署失败：" + e.getMessage());
         }
@@ -378,6 +456,54 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         return String.format("%s/%s", AppConstant.CODE_DEPLOY_HOST, deployKey);
     }
 
+    @Override
+    public AppBuildStatusVO getAppBuildStatus(Long appId, User loginUser) {
+        getOwnedApp(appId, loginUser);
+        return vueBuildScheduler.getStatus(appId);
+    }
+
+    // ==================== 版本相关 ====================
+
+    @Override
+    public List<AppVersionVO> listAppVersions(Long appId, User loginUser) {
+        App app = getOwnedApp(appId, loginUser);
+        return generationVersionManager.listVersions(appId, CodeGenTypeEnum.getEnumByValue(app.getCodeGenType()));
+    }
+
+    @Override
+    public AppVersionDiffVO diffAppVersions(Long appId, Integer fromVersion, Integer toVersion, User loginUser) {
+        ThrowUtils.throwIf(fromVersion == null || toVersion == null, ErrorCode.PARAMS_ERROR, "版本号不能为空");
+        App app = getOwnedApp(appId, loginUser);
+        return generationVersionManager.diff(appId, CodeGenTypeEnum.getEnumByValue(app.getCodeGenType()), fromVersion, toVersion);
+    }
+
+    @Override
+    public Integer restoreAppVersion(Long appId, Integer version, User loginUser) {
+        ThrowUtils.throwIf(version == null || version <= 0, ErrorCode.PARAMS_ERROR, "版本号错误");
+        App app = getOwnedApp(appId, loginUser);
+        try {
+            return generationVersionManager.restore(appId, CodeGenTypeEnum.getEnumByValue(app.getCodeGenType()), version);
+        } finally {
+            // 回滚直接替换了输出目录中的文件
+            projectFileIndex.invalidate(appId);
+        }
+    }
+
+    /**
+     * 查询应用并校验仅本人可以操作
+     */
+    private App getOwnedApp(Long appId, User loginUser) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 错误");
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR);
+        App app = this.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        if (!app.getUserId().equals(loginUser.getId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该应用");
+        }
+        ThrowUtils.throwIf(CodeGenTypeEnum.getEnumByValue(app.getCodeGenType()) == null, ErrorCode.PARAMS_ERROR, "应用代码生成类型错误");
+        return app;
+    }
+
     /**
      * 重写 Ibatis 提供的的默认removeById
      *
@@ -403,6 +529,17 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             // 记录日志但不阻止应用删除
             log.error("删除应用关联对话历史失败: {}", e.getMessage());
         }
+        // 删除应用的生成版本
+        App app = this.getById(appId);
+        CodeGenTypeEnum codeGenTypeEnum = app == null ? null : CodeGenTypeEnum.getEnumByValue(app.getCodeGenType());
+        if (codeGenTypeEnum != null) {
+            try {
+                generationVersionManager.deleteVersions(appId, codeGenTypeEnum);
+            } catch (Exception e) {
+                log.error("删除应用生成版本失败: {}", e.getMessage());
+            }
+        }
+        projectFileIndex.invalidate(appId);
         // 删除应用
         return super.removeById(id);
     }
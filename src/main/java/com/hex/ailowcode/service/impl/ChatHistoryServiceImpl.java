@@ -11,6 +11,7 @@ import com.hex.ailowcode.model.entity.App;
 import com.hex.ailowcode.model.entity.ChatHistory;
 import com.hex.ailowcode.model.entity.User;
 import com.hex.ailowcode.model.enums.ChatHistoryMessageTypeEnum;
+import com.hex.ailowcode.model.enums.ChatHistoryStatusEnum;
 import com.hex.ailowcode.service.AppService;
 import com.hex.ailowcode.service.ChatHistoryService;
 import com.mybatisflex.core.paginate.Page;
@@ -41,6 +42,11 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
 
     @Override
     public boolean addChatMessage(Long appId, String message, String messageType, Long userId) {
+        return addChatMessage(appId, message, messageType, ChatHistoryStatusEnum.COMPLETED.getValue(), userId);
+    }
+
+    @Override
+    public boolean addChatMessage(Long appId, String message, String messageType, String status, Long userId) {
         // 基础校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID不能为空");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "消息内容不能为空");
@@ -49,9 +55,10 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         // 验证消息类型是否有效
         ChatHistoryMessageTypeEnum messageTypeEnum = ChatHistoryMessageTypeEnum.getEnumByValue(messageType);
         ThrowUtils.throwIf(messageTypeEnum == null, ErrorCode.PARAMS_ERROR, "不支持的消息类型");
+        ThrowUtils.throwIf(ChatHistoryStatusEnum.getEnumByValue(status) == null, ErrorCode.PARAMS_ERROR, "不支持的消息状态");
         // 插入数据库
         ChatHistory chatHistory = ChatHistory.builder().appId(appId).message(message).messageType(messageType)
-                .userId(userId).build();
+                .status(status).userId(userId).build();
         return this.save(chatHistory);
     }
 
@@ -0,0 +1,97 @@
+package com.hex.ailowcode.utils;
+
+/**
+ * SSE 数据编码工具类
+ * 将流式 chunk 编码为 {"d":"..."}，转义规则与 Hutool JSONUtil.toJsonStr(Map.of("d", chunk)) 完全一致，
+ * 但不创建 Map、不走反射序列化，直接写入线程复用的缓冲区，每个 chunk 只产生最终的那一个 String
+ */
+public class SsePayloadEncoder {
+
+    private static final String PREFIX = "{\"d\":\"";
+
+    private static final String SUFFIX = "\"}";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * 复用缓冲区超过该容量后不再复用，避免个别大 chunk 长期占用内存
+     */
+    private static final int MAX_REUSED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * 编码单个 chunk
+     *
+     * @param chunk 代码片段
+     * @return {"d":"转义后的内容"}
+     */
+    public static String encode(String chunk) {
+        StringBuilder builder = BUFFER.get();
+        builder.setLength(0);
+        builder.append(PREFIX);
+        appendEscaped(builder, chunk);
+        builder.append(SUFFIX);
+        String payload = builder.toString();
+        if (builder.capacity() > MAX_REUSED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return payload;
+    }
+
+    /**
+     * 按 JSON 字符串规则转义并追加
+     */
+    static void appendEscaped(StringBuilder builder, String value) {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        // 连续不需要转义的字符整段追加
+        int plainStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (!needsEscape(c)) {
+                continue;
+            }
+            if (i > plainStart) {
+                builder.append(value, plainStart, i);
+            }
+            appendEscapedChar(builder, c);
+            plainStart = i + 1;
+        }
+        if (plainStart < length) {
+            builder.append(value, plainStart, length);
+        }
+    }
+
+    private static boolean needsEscape(char c) {
+        return c == '"' || c == '\\' || c < ' ' || isUnicodeEscaped(c);
+    }
+
+    /**
+     * 与 Hutool 保持一致：这些区间的字符输出为 unicode 转义形式
+     */
+    private static boolean isUnicodeEscaped(char c) {
+        return (c >= 0x0080 && c <= 0x00A0)
+                || (c >= 0x2000 && c <= 0x2010)
+                || (c >= 0x2028 && c <= 0x202F)
+                || (c >= 0x2066 && c <= 0x206F);
+    }
+
+    private static void appendEscapedChar(StringBuilder builder, char c) {
+        switch (c) {
+            case '"', '\\' -> builder.append('\\').append(c);
+            case '\b' -> builder.append("\\b");
+            case '\t' -> builder.append("\\t");
+            case '\n' -> builder.append("\\n");
+            case '\f' -> builder.append("\\f");
+            case '\r' -> builder.append("\\r");
+            default -> builder.append("\\u")
+                    .append(HEX_DIGITS[(c >> 12) & 0xF])
+                    .append(HEX_DIGITS[(c >> 8) & 0xF])
+                    .append(HEX_DIGITS[(c >> 4) & 0xF])
+                    .append(HEX_DIGITS[c & 0xF]);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.hex.ailowcode.ai.tools;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * FilePatcher 查找/替换与 unified diff 的应用和冲突报告
+ */
+class FilePatcherTest {
+
+    private static final String APP_VUE = """
+            <template>
+              <div class="app">
+                <h1>标题</h1>
+                <p>内容</p>
+              </div>
+            </template>
+            <script setup>
+            const count = 1
+            </script>
+            """;
+
+    @Test
+    void appliesReplacementsInOrder() {
+        FilePatcher.PatchResult result = FilePatcher.applyReplacements(APP_VUE, List.of(
+                hunk("<h1>标题</h1>", "<h1>新标题</h1>"),
+                hunk("const count = 1", "const count = 2")));
+        Assertions.assertTrue(result.isSuccess());
+        Assertions.assertEquals(2, result.getApplied());
+        Assertions.assertEquals(APP_VUE.replace("标题", "新标题").replace("= 1", "= 2"), result.getContent());
+    }
+
+    @Test
+    void reportsMissingAndAmbiguousSearchWithoutChanging() {
+        String content = "a\nb\na\n";
+        FilePatcher.PatchResult result = FilePatcher.applyReplacements(content, List.of(
+                hunk("b", "B"),
+                hunk("a", "A"),
+                hunk("c", "C")));
+        Assertions.assertFalse(result.isSuccess());
+        Assertions.assertNull(result.getContent());
+        Assertions.assertEquals(2, result.getConflicts().size());
+        Assertions.assertTrue(result.getConflicts().get(0).startsWith("第 2 处修改"));
+        Assertions.assertTrue(result.getConflicts().get(0).contains("匹配到 2 处"));
+        Assertions.assertTrue(result.getConflicts().get(1).startsWith("第 3 处修改"));
+    }
+
+    @Test
+    void toleratesTrailingWhitespaceAndCrlf() {
+        String content = APP_VUE.replace("<h1>标题</h1>", "<h1>标题</h1>  ").replace("\n", "\r\n");
+        FilePatcher.PatchResult result = FilePatcher.applyReplacements(content, List.of(
+                hunk("    <h1>标题</h1>\n    <p>内容</p>\n", "    <h1>新标题</h1>\n")));
+        Assertions.assertTrue(result.isSuccess(), String.valueOf(result.getConflicts()));
+        Assertions.assertEquals(APP_VUE.replace("<h1>标题</h1>", "<h1>新标题</h1>").replace("    <p>内容</p>\n", "")
+                .replace("\n", "\r\n"), result.getContent());
+    }
+
+    @Test
+    void appliesUnifiedDiffWithShiftedLineNumbers() {
+        // 行号比实际位置偏后两行，按上下文找到最近的匹配
+        String diff = """
+                --- a/src/App.vue
+                +++ b/src/App.vue
+                @@ -5,3 +5,3 @@
+                     <h1>标题</h1>
+                -    <p>内容</p>
+                +    <p>新内容</p>
+                   </div>
+                @@ -10,1 +10,2 @@
+                 const count = 1
+                +const name = 'app'
+                """;
+        FilePatcher.PatchResult result = FilePatcher.applyUnifiedDiff(APP_VUE, diff);
+        Assertions.assertTrue(result.isSuccess(), String.valueOf(result.getConflicts()));
+        Assertions.assertEquals(2, result.getApplied());
+        Assertions.assertEquals(APP_VUE.replace("<p>内容</p>", "<p>新内容</p>")
+                .replace("const count = 1\n", "const count = 1\nconst name = 'app'\n"), result.getContent());
+    }
+
+    @Test
+    void reportsDiffConflictWithHunkHeader() {
+        String diff = """
+                @@ -3,1 +3,1 @@
+                -    <h1>旧标题</h1>
+                +    <h1>新标题</h1>
+                """;
+        FilePatcher.PatchResult result = FilePatcher.applyUnifiedDiff(APP_VUE, diff);
+        Assertions.assertFalse(result.isSuccess());
+        Assertions.assertTrue(result.getConflicts().getFirst().contains("@@ -3,1 +3,1 @@"));
+        Assertions.assertFalse(FilePatcher.applyUnifiedDiff(APP_VUE, "没有修改块").isSuccess());
+    }
+
+    @Test
+    void createsFileFromInsertOnlyDiff() {
+        String diff = """
+                @@ -0,0 +1,2 @@
+                +export const a = 1
+                +export const b = 2
+                """;
+        FilePatcher.PatchResult result = FilePatcher.applyUnifiedDiff("", diff);
+        Assertions.assertTrue(result.isSuccess());
+        Assertions.assertEquals("export const a = 1\nexport const b = 2\n", result.getContent());
+    }
+
+    private static FileEditTool.EditHunk hunk(String search, String replace) {
+        FileEditTool.EditHunk hunk = new FileEditTool.EditHunk();
+        hunk.setSearch(search);
+        hunk.setReplace(replace);
+        return hunk;
+    }
+}
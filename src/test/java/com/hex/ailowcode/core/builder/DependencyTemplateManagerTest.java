@@ -0,0 +1,120 @@
+package com.hex.ailowcode.core.builder;
+
+import cn.hutool.json.JSONUtil;
+import com.hex.ailowcode.config.CodeGenProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * 依赖模板：退回 npm install 前删除镜像自模板的 node_modules，长期没有使用或超出数量上限的模板被删除
+ */
+class DependencyTemplateManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path templateRoot;
+
+    private Path projectDir;
+
+    private final CodeGenProperties codeGenProperties = new CodeGenProperties();
+
+    private DependencyTemplateManager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        templateRoot = Files.createDirectories(tempDir.resolve("templates"));
+        projectDir = Files.createDirectories(tempDir.resolve("project"));
+        manager = new DependencyTemplateManager(templateRoot);
+        ReflectionTestUtils.setField(manager, "codeGenProperties", codeGenProperties);
+    }
+
+    @Test
+    void removesMirrorBeforeFallingBackToNpmInstall() throws IOException {
+        installTemplate("t1", Map.of("vue", "^3.5.0"), Instant.now());
+        writePackageJson("{\"dependencies\":{\"vue\":\"^3.5.0\"}}");
+        Assertions.assertTrue(manager.linkDependencies(projectDir.toFile()));
+        Assertions.assertEquals("vue", Files.readString(projectDir.resolve("node_modules/vue/index.js")));
+
+        // package.json 无法解析：镜像被删除，模板保持完整
+        writePackageJson("{");
+        Assertions.assertFalse(manager.linkDependencies(projectDir.toFile()));
+        Assertions.assertFalse(Files.exists(projectDir.resolve("node_modules")));
+        Assertions.assertEquals("vue", Files.readString(templateRoot.resolve("t1/node_modules/vue/index.js")));
+    }
+
+    @Test
+    void keepsProjectOwnedNodeModulesWhenTemplatesDisabled() throws IOException {
+        installTemplate("t1", Map.of("vue", "^3.5.0"), Instant.now());
+        writePackageJson("{\"dependencies\":{\"vue\":\"^3.5.0\"}}");
+        Assertions.assertTrue(manager.linkDependencies(projectDir.toFile()));
+
+        codeGenProperties.setVueDependencyTemplateEnabled(false);
+        Assertions.assertFalse(manager.linkDependencies(projectDir.toFile()));
+        Assertions.assertFalse(Files.exists(projectDir.resolve("node_modules")));
+
+        // 项目自己 npm install 安装的依赖（没有标记文件）保留
+        Files.createDirectories(projectDir.resolve("node_modules/vue"));
+        Assertions.assertFalse(manager.linkDependencies(projectDir.toFile()));
+        Assertions.assertTrue(Files.exists(projectDir.resolve("node_modules/vue")));
+    }
+
+    @Test
+    void evictsIdleTemplates() throws IOException {
+        installTemplate("old", Map.of("a", "1"), Instant.now().minus(Duration.ofDays(30)));
+        installTemplate("recent", Map.of("b", "1"), Instant.now().minus(Duration.ofDays(1)));
+        installTemplate("kept", Map.of("c", "1"), Instant.now().minus(Duration.ofDays(30)));
+
+        Assertions.assertEquals(1, manager.evictTemplates("kept"));
+        Assertions.assertFalse(Files.exists(templateRoot.resolve("old")));
+        Assertions.assertTrue(Files.exists(templateRoot.resolve("recent")));
+        Assertions.assertTrue(Files.exists(templateRoot.resolve("kept")));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverMaxCount() throws IOException {
+        codeGenProperties.setVueDependencyTemplateMaxCount(2);
+        installTemplate("t1", Map.of("a", "1"), Instant.now().minus(Duration.ofHours(3)));
+        installTemplate("t2", Map.of("b", "1"), Instant.now().minus(Duration.ofHours(2)));
+        installTemplate("t3", Map.of("c", "1"), Instant.now().minus(Duration.ofHours(1)));
+
+        // 链接刷新使用时间：t1 变为最近使用
+        writePackageJson("{\"dependencies\":{\"a\":\"1\"}}");
+        Assertions.assertTrue(manager.linkDependencies(projectDir.toFile()));
+
+        Assertions.assertEquals(1, manager.evictTemplates(null));
+        Assertions.assertTrue(Files.exists(templateRoot.resolve("t1")));
+        Assertions.assertFalse(Files.exists(templateRoot.resolve("t2")));
+        Assertions.assertTrue(Files.exists(templateRoot.resolve("t3")));
+    }
+
+    /**
+     * 在模板目录中放入一个已安装的模板
+     */
+    private void installTemplate(String key, Map<String, String> dependencies, Instant lastUsed) throws IOException {
+        Path templateDir = templateRoot.resolve(key);
+        for (String name : dependencies.keySet()) {
+            Path index = templateDir.resolve("node_modules").resolve(name).resolve("index.js");
+            Files.createDirectories(index.getParent());
+            Files.writeString(index, name);
+        }
+        Path dependenciesFile = templateDir.resolve("dependencies.json");
+        Files.writeString(dependenciesFile, JSONUtil.toJsonStr(dependencies));
+        Files.setLastModifiedTime(dependenciesFile, FileTime.from(lastUsed));
+    }
+
+    private void writePackageJson(String content) throws IOException {
+        Files.writeString(projectDir.resolve("package.json"), content);
+    }
+}
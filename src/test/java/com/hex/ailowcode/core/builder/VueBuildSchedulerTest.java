@@ -0,0 +1,183 @@
+package com.hex.ailowcode.core.builder;
+
+import com.hex.ailowcode.config.CodeGenProperties;
+import com.hex.ailowcode.core.saver.ProjectFileIndex;
+import com.hex.ailowcode.exception.BusinessException;
+import com.hex.ailowcode.model.vo.AppBuildStatusVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 构建调度：高优先级先于普通、同一优先级按用户轮转、排队中的同一应用合并、排队位置和预计耗时、关闭时结束所有等待
+ */
+class VueBuildSchedulerTest {
+
+    @TempDir
+    Path rootDir;
+
+    private final CodeGenProperties codeGenProperties = new CodeGenProperties();
+
+    /**
+     * 按执行顺序记录构建的应用目录名
+     */
+    private final List<String> builtApps = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch firstBuildStarted = new CountDownLatch(1);
+
+    private final CountDownLatch releaseFirstBuild = new CountDownLatch(1);
+
+    private VueBuildScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        codeGenProperties.setVueBuildWorkers(1);
+        // 第一个构建阻塞到测试放行，其余构建立即成功
+        VueProjectBuilder builder = new VueProjectBuilder() {
+            @Override
+            public boolean buildProject(String projectPath) {
+                builtApps.add(Path.of(projectPath).getFileName().toString());
+                if (firstBuildStarted.getCount() > 0) {
+                    firstBuildStarted.countDown();
+                    try {
+                        return releaseFirstBuild.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+        scheduler = new VueBuildScheduler();
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "codeGenProperties", codeGenProperties);
+        ReflectionTestUtils.setField(scheduler, "vueProjectBuilder", builder);
+        ReflectionTestUtils.setField(scheduler, "projectFileIndex", new ProjectFileIndex());
+        scheduler.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseFirstBuild.countDown();
+        scheduler.destroy();
+    }
+
+    @Test
+    void highPriorityFirstThenRoundRobinByUser() throws Exception {
+        CompletableFuture<Path> blocker = submit(1L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+        Assertions.assertTrue(firstBuildStarted.await(5, TimeUnit.SECONDS));
+
+        // 用户 1 连续提交两个构建，不会挡住用户 2；用户 3 的高优先级构建最先执行
+        List<CompletableFuture<Path>> queued = List.of(
+                submit(2L, 1L, VueBuildScheduler.BuildPriority.NORMAL),
+                submit(3L, 1L, VueBuildScheduler.BuildPriority.NORMAL),
+                submit(4L, 2L, VueBuildScheduler.BuildPriority.NORMAL),
+                submit(5L, 3L, VueBuildScheduler.BuildPriority.HIGH));
+        Assertions.assertEquals(4, scheduler.getQueueDepth());
+        Assertions.assertEquals(1, scheduler.getActiveCount());
+
+        releaseFirstBuild.countDown();
+        Assertions.assertEquals(appDir(1L).toRealPath(), blocker.get(5, TimeUnit.SECONDS));
+        for (CompletableFuture<Path> future : queued) {
+            Assertions.assertNotNull(future.get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(List.of("app_1", "app_5", "app_2", "app_4", "app_3"), builtApps);
+    }
+
+    @Test
+    void queuedBuildsOfSameAppAreMerged() throws Exception {
+        CompletableFuture<Path> running = submit(1L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+        Assertions.assertTrue(firstBuildStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Path> queued = submit(2L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+        Assertions.assertSame(queued, submit(2L, 2L, VueBuildScheduler.BuildPriority.NORMAL));
+        // 执行中的构建可能没有读到最新的文件：不合并，排队等执行中的构建结束后再构建一次
+        CompletableFuture<Path> rebuild = submit(1L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+        Assertions.assertNotSame(running, rebuild);
+        Assertions.assertEquals(2, scheduler.getQueueDepth());
+
+        releaseFirstBuild.countDown();
+        CompletableFuture.allOf(running, queued, rebuild).get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(List.of("app_1", "app_2", "app_1"), builtApps);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        codeGenProperties.setVueBuildMaxQueue(1);
+        submit(1L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+        Assertions.assertTrue(firstBuildStarted.await(5, TimeUnit.SECONDS));
+        submit(2L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+
+        Assertions.assertThrows(BusinessException.class, () -> submit(3L, 2L, VueBuildScheduler.BuildPriority.HIGH));
+        // 合并到排队中的构建不占用排队名额
+        Assertions.assertDoesNotThrow(() -> submit(2L, 1L, VueBuildScheduler.BuildPriority.NORMAL));
+    }
+
+    @Test
+    void reportsPositionAndEstimatedWait() throws Exception {
+        submit(1L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+        Assertions.assertTrue(firstBuildStarted.await(5, TimeUnit.SECONDS));
+        submit(2L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+        submit(3L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+        submit(4L, 2L, VueBuildScheduler.BuildPriority.NORMAL);
+
+        AppBuildStatusVO building = scheduler.getStatus(1L);
+        Assertions.assertEquals("building", building.getState());
+        Assertions.assertEquals(0, building.getPosition());
+        Assertions.assertEquals(3, building.getQueueSize());
+
+        // 调度顺序 2、4、3：一个槽位，每个构建按还没有样本时的 60 秒估算
+        AppBuildStatusVO second = scheduler.getStatus(2L);
+        AppBuildStatusVO third = scheduler.getStatus(4L);
+        AppBuildStatusVO fourth = scheduler.getStatus(3L);
+        Assertions.assertEquals("queued", second.getState());
+        Assertions.assertEquals(1, second.getPosition());
+        Assertions.assertEquals(2, third.getPosition());
+        Assertions.assertEquals(3, fourth.getPosition());
+        Assertions.assertEquals(building.getEstimatedFinishSeconds(), second.getEstimatedWaitSeconds());
+        Assertions.assertEquals(second.getEstimatedWaitSeconds() + 60, third.getEstimatedWaitSeconds());
+        Assertions.assertEquals(third.getEstimatedWaitSeconds() + 60, fourth.getEstimatedWaitSeconds());
+        Assertions.assertEquals(fourth.getEstimatedWaitSeconds() + 60, fourth.getEstimatedFinishSeconds());
+        Assertions.assertNull(scheduler.getStatus(5L));
+    }
+
+    @Test
+    void shutdownCompletesEveryWaitingRequest() throws Exception {
+        CompletableFuture<Path> running = submit(1L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+        Assertions.assertTrue(firstBuildStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Path> queued = submit(2L, 1L, VueBuildScheduler.BuildPriority.NORMAL);
+
+        // 关闭时执行中的构建被中断，排队中的构建不再执行
+        scheduler.destroy();
+
+        Assertions.assertNull(running.get(5, TimeUnit.SECONDS));
+        ExecutionException rejected = Assertions.assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(BusinessException.class, rejected.getCause());
+        Assertions.assertTrue(submit(3L, 1L, VueBuildScheduler.BuildPriority.NORMAL).isCompletedExceptionally());
+        Assertions.assertEquals(0, scheduler.getActiveCount());
+        Assertions.assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    private CompletableFuture<Path> submit(Long appId, Long userId, VueBuildScheduler.BuildPriority priority) throws IOException {
+        return scheduler.submit(appId, userId, Files.createDirectories(appDir(appId)).toString(), priority);
+    }
+
+    private Path appDir(Long appId) {
+        return rootDir.resolve("app_" + appId);
+    }
+}
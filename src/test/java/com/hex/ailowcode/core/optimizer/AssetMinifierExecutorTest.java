@@ -0,0 +1,93 @@
+package com.hex.ailowcode.core.optimizer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 压缩策略测试：只去掉注释和多余空白，字符串、正则、模板字符串和有语义的空白保持不变
+ */
+class AssetMinifierExecutorTest {
+
+    @Test
+    void jsKeepsLiteralsAndLineBreaks() {
+        String js = """
+                // 注释
+                const re = /a\\/b[/]c/g;   /* 块注释 */
+                let s = 'it\\'s // not a comment', t = `tpl ${ add(1, 2) } /* x */`;
+                let y = x
+                ++x
+                const cond = x ? .5 : 1;
+                """;
+        String minified = AssetMinifierExecutor.executeMinifier("js", js);
+        Assertions.assertEquals("""
+                const re=/a\\/b[/]c/g;
+                let s='it\\'s // not a comment',t=`tpl ${ add(1, 2) } /* x */`;
+                let y=x
+                ++x
+                const cond=x ? .5:1;""", minified);
+    }
+
+    @Test
+    void jsTreatsSlashAfterIdentifierAsDivision() {
+        Assertions.assertEquals("let x=a / b / c;", AssetMinifierExecutor.executeMinifier("js", "let x = a / b / c;"));
+        Assertions.assertEquals("return /x/.test(s)", AssetMinifierExecutor.executeMinifier("js", "return /x/.test(s)"));
+    }
+
+    @Test
+    void jsTreatsSlashAfterLiteralsAndBracketsAsDivision() {
+        // 误判为正则时，除号到下一个 / 之间的空白和引号会原样保留或被当成字符串
+        Assertions.assertEquals("let r=\"6\" / 2;let s='a b' / 2;",
+                AssetMinifierExecutor.executeMinifier("js", "let r = \"6\"   / 2; let s = 'a b' /  2;"));
+        Assertions.assertEquals("let t=`${n}` / 2,u=f(1)/ 2,v=a[0]/ 2;",
+                AssetMinifierExecutor.executeMinifier("js", "let t = `${n}`   /  2, u = f(1)  / 2, v = a[0]   / 2;"));
+    }
+
+    @Test
+    void jsTreatsSlashAfterBraceOnSameLineAsDivision() {
+        Assertions.assertEquals("x=({})/ 2;y={}/ 2;", AssetMinifierExecutor.executeMinifier("js", "x = ({})   / 2; y = {}   /   2;"));
+        // 换行之后是新语句，/ 开始正则字面量，正则中的空白保持不变
+        Assertions.assertEquals("if(ok){run()}\n/a  b/.test(s)",
+                AssetMinifierExecutor.executeMinifier("js", "if (ok) { run() }\n/a  b/.test(s)"));
+    }
+
+    @Test
+    void cssKeepsSemanticWhitespace() {
+        String css = """
+                /* header */
+                .a > .b ,  .c:hover {
+                    width: calc(100% - 10px);
+                    font-family: "Open  Sans", sans-serif;
+                }
+                @media screen and (max-width: 600px) { div :first-child { margin: 0 auto ; } }
+                """;
+        Assertions.assertEquals(".a>.b,.c:hover{width:calc(100% - 10px);font-family:\"Open  Sans\",sans-serif}"
+                        + "@media screen and (max-width:600px){div :first-child{margin:0 auto}}",
+                AssetMinifierExecutor.executeMinifier("css", css));
+    }
+
+    @Test
+    void htmlCollapsesTextAndKeepsPre() {
+        String html = """
+                <body   class="x   y"  >
+                  <!-- 注释 -->
+                  <pre>  keep   this  </pre>
+                  <p>Hello    <b>world</b>  !</p>
+                  <script type="application/json">{ "a" :  1 }</script>
+                  <style> body  {  margin : 0 ; } </style>
+                </body>
+                """;
+        Assertions.assertEquals("""
+                <body class="x   y">
+                <pre>  keep   this  </pre>
+                <p>Hello <b>world</b> !</p>
+                <script type="application/json">{ "a" :  1 }</script>
+                <style>body{margin :0}</style>
+                </body>
+                """, AssetMinifierExecutor.executeMinifier("html", html));
+    }
+
+    @Test
+    void unsupportedExtensionReturnsNull() {
+        Assertions.assertNull(AssetMinifierExecutor.executeMinifier("png", "x"));
+    }
+}
@@ -0,0 +1,181 @@
+package com.hex.ailowcode.core.parser;
+
+import com.hex.ailowcode.ai.model.MultiFileCodeResult;
+import com.hex.ailowcode.core.stream.ChunkLedger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MultiFileCodeParser 单次扫描与原三段正则实现的一致性测试 + 10 KB ~ 500 KB 输入的对比基准（基准测试打 benchmark 标签，默认不运行）
+ */
+class MultiFileCodeParserTest {
+
+    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+    private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
+
+    private final MultiFileCodeParser parser = new MultiFileCodeParser();
+
+    @Test
+    void matchesRegexOnTypicalResponses() {
+        List<String> responses = List.of(
+                "说明\n```html\n<div></div>\n```\n```css\nbody{}\n```\n```js\nconsole.log(1)\n```\n",
+                "```HTML\n<p>a</p>\n```\n```JavaScript\nlet a = `x`;\n```",
+                "```html  \n\n  <p>trim</p>  \n```\n没有样式",
+                "```html\n<p>unclosed",
+                "纯文本，没有代码块",
+                "```css\na{}\n```\n```html\n<b></b>\n```\n```css\nb{}\n```\n```python\nprint(1)\n```");
+        for (String response : responses) {
+            assertSameResult(legacyParse(response), parser.parseCode(response));
+        }
+    }
+
+    @Test
+    void matchesRegexOnLargeResponses() {
+        for (int sizeKb : new int[]{10, 100, 500}) {
+            String response = buildResponse(sizeKb * 1024);
+            assertSameResult(legacyParse(response), parser.parseCode(response));
+        }
+    }
+
+    @Test
+    void classifiesBlocksInSinglePass() {
+        List<CodeBlock> codeBlocks = CodeFenceScanner.scan("```html\nA\n```\n```javascript\nB\n```\n```css\nC\n```\n```html\nD\n```");
+        Assertions.assertEquals(List.of("html", "js", "css", "html"), codeBlocks.stream().map(CodeBlock::getLanguage).toList());
+        MultiFileCodeResult result = parser.parseCode("```html\nA\n```\n```javascript\nB\n```\n```css\nC\n```\n```html\nD\n```");
+        Assertions.assertEquals("A", result.getHtmlCode());
+        Assertions.assertEquals("B", result.getJsCode());
+        Assertions.assertEquals("C", result.getCssCode());
+    }
+
+    @Test
+    void streamedBlocksAreViewsIntoSharedLedger() {
+        ChunkLedger ledger = new ChunkLedger();
+        StringBuilder streamedContent = new StringBuilder();
+        StreamingCodeParser streamingParser = new StreamingCodeParser(ledger, new CodeBlockListener() {
+            @Override
+            public void onBlockContent(String language, CharSequence content) {
+                streamedContent.append(content);
+            }
+
+            @Override
+            public void onBlockComplete(CodeBlock codeBlock) {
+                streamedContent.append('|');
+            }
+        });
+        // 结束围栏和内容中的反引号跨 chunk 边界
+        List<String> chunks = List.of("说明\n``", "`html\n<p>`", "a`</p>\n`", "``\n```css\nb{}`", "``");
+        for (String chunk : chunks) {
+            ledger.append(chunk);
+            streamingParser.feed(chunk);
+        }
+
+        List<CodeBlock> codeBlocks = streamingParser.getCompletedBlocks();
+        Assertions.assertEquals(List.of("<p>`a`</p>\n", "b{}"), codeBlocks.stream().map(codeBlock -> codeBlock.getContent().toString()).toList());
+        Assertions.assertTrue(codeBlocks.stream().allMatch(codeBlock -> codeBlock.getContent() instanceof CodeSlice));
+        Assertions.assertEquals("<p>`a`</p>\n|b{}|", streamedContent.toString());
+        assertSameResult(parser.parseCode(ledger.toString()), parser.parseBlocks(codeBlocks));
+    }
+
+    @Test
+    void streamedBlocksAreViewsIntoParserLedger() {
+        StreamingCodeParser streamingParser = new StreamingCodeParser();
+        String response = "说明\n```html\n <div>`a`</div> \n```\n```css\nbody{}\n```";
+        for (int i = 0; i < response.length(); i += 5) {
+            streamingParser.feed(response.substring(i, Math.min(response.length(), i + 5)));
+        }
+        List<CodeBlock> codeBlocks = streamingParser.getCompletedBlocks();
+        Assertions.assertTrue(codeBlocks.stream().allMatch(codeBlock -> codeBlock.getContent() instanceof CodeSlice));
+        MultiFileCodeResult result = parser.parseBlocks(codeBlocks);
+        Assertions.assertInstanceOf(MultiFileCodeSliceResult.class, result);
+        Assertions.assertEquals("<div>`a`</div>", result.getHtmlCode());
+        Assertions.assertEquals("body{}", result.getCssCode());
+        assertSameResult(parser.parseCode(response), result);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkAgainstRegexPath() {
+        for (int sizeKb : new int[]{10, 50, 100, 500}) {
+            String response = buildResponse(sizeKb * 1024);
+            double legacyMicros = measure(MultiFileCodeParserTest::legacyParse, response);
+            double scannerMicros = measure(parser::parseCode, response);
+            Assertions.assertTrue(scannerMicros < legacyMicros,
+                    () -> sizeKb + " KB: scanner " + scannerMicros + " us/op, regex " + legacyMicros + " us/op");
+        }
+    }
+
+    /**
+     * 构造接近真实输出的响应：说明文字 + html / css / js 三个代码块，代码中夹带单个反引号
+     */
+    private static String buildResponse(int targetChars) {
+        StringBuilder builder = new StringBuilder(targetChars + 256);
+        builder.append("下面是生成的留言板应用：\n\n```html\n");
+        int blockChars = targetChars / 3;
+        appendLines(builder, "  <div class=\"message\">留言内容 `item`</div>\n", blockChars);
+        builder.append("```\n\n样式文件：\n\n```css\n");
+        appendLines(builder, ".message { color: #333; margin: 4px 0; }\n", blockChars);
+        builder.append("```\n\n脚本：\n\n```javascript\n");
+        appendLines(builder, "const text = `hello ${name}`; list.push(text);\n", blockChars);
+        builder.append("```\n\n以上代码实现了留言板的全部功能。\n");
+        return builder.toString();
+    }
+
+    private static void appendLines(StringBuilder builder, String line, int chars) {
+        for (int written = 0; written < chars; written += line.length()) {
+            builder.append(line);
+        }
+    }
+
+    private static double measure(Function<String, MultiFileCodeResult> parse, String response) {
+        int iterations = Math.max(20, 20_000_000 / response.length());
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += parse.apply(response).getHtmlCode().length();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += parse.apply(response).getHtmlCode().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        Assertions.assertTrue(sink > 0);
+        return elapsed / 1000.0 / iterations;
+    }
+
+    private static void assertSameResult(MultiFileCodeResult expected, MultiFileCodeResult actual) {
+        Assertions.assertEquals(expected.getHtmlCode(), actual.getHtmlCode());
+        Assertions.assertEquals(expected.getCssCode(), actual.getCssCode());
+        Assertions.assertEquals(expected.getJsCode(), actual.getJsCode());
+    }
+
+    /**
+     * 原实现：三段大小写不敏感的惰性正则分别扫描全文
+     */
+    private static MultiFileCodeResult legacyParse(String codeContent) {
+        MultiFileCodeResult result = new MultiFileCodeResult();
+        String htmlCode = extract(codeContent, HTML_CODE_PATTERN);
+        String cssCode = extract(codeContent, CSS_CODE_PATTERN);
+        String jsCode = extract(codeContent, JS_CODE_PATTERN);
+        if (htmlCode != null && !htmlCode.trim().isEmpty()) {
+            result.setHtmlCode(htmlCode.trim());
+        }
+        if (cssCode != null && !cssCode.trim().isEmpty()) {
+            result.setCssCode(cssCode.trim());
+        }
+        if (jsCode != null && !jsCode.trim().isEmpty()) {
+            result.setJsCode(jsCode.trim());
+        }
+        return result;
+    }
+
+    private static String extract(String content, Pattern pattern) {
+        Matcher matcher = pattern.matcher(content);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -0,0 +1,276 @@
+package com.hex.ailowcode.core.parser;
+
+import com.hex.ailowcode.ai.model.HtmlCodeResult;
+import com.hex.ailowcode.ai.model.MultiFileCodeResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * 代码解析器健壮性与吞吐基准：用接近真实的输出和构造的病态输出（未闭合围栏、模板字符串中嵌套 ```、
+ * 超长围栏标签行、多 MB 响应等）测量每个解析器的耗时、内存分配和正确性
+ *
+ * 输入每扩大 4 倍，分配（默认运行）或耗时（benchmark 标签，默认不运行）超过 MAX_STEP_RATIO 倍即判定为超线性，测试失败
+ */
+class ParserRobustnessBenchmarkTest {
+
+    /**
+     * 基准输入规模（字符数），逐级扩大 4 倍
+     */
+    private static final int[] SIZES = {16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024};
+
+    /**
+     * 输入扩大 4 倍时允许的最大耗时 / 分配倍数（线性约 4 倍，平方级约 16 倍）
+     */
+    private static final double MAX_STEP_RATIO = 10;
+
+    private static final HtmlCodeParser HTML_PARSER = new HtmlCodeParser();
+
+    private static final MultiFileCodeParser MULTI_FILE_PARSER = new MultiFileCodeParser();
+
+    private static final List<NamedParser> PARSERS = List.of(
+            new NamedParser("CodeParser(legacy).html", content ->
+                    com.hex.ailowcode.core.CodeParser.parseHtmlCode(content).getHtmlCode().length()),
+            new NamedParser("CodeParser(legacy).multi", content ->
+                    totalLength(com.hex.ailowcode.core.CodeParser.parseMultiFileCode(content))),
+            new NamedParser("CodeFenceScanner", content -> CodeFenceScanner.scan(content).size()),
+            new NamedParser("HtmlCodeParser", content -> HTML_PARSER.parseCode(content).getHtmlCode().length()),
+            new NamedParser("MultiFileCodeParser", content -> totalLength(MULTI_FILE_PARSER.parseCode(content))),
+            new NamedParser("StreamingCodeParser", content -> feedInChunks(content, 32).size()));
+
+    private static final List<Scenario> SCENARIOS = List.of(
+            new Scenario("真实输出", ParserRobustnessBenchmarkTest::buildResponse),
+            new Scenario("CRLF 换行", size -> buildResponse(size).replace("\n", "\r\n")),
+            new Scenario("未闭合围栏", size -> "说明\n```html\n" + repeat("<div class=\"row\">没有结束围栏</div>\n", size)),
+            new Scenario("未闭合围栏 + 空行", size -> "```html" + repeat("\n", size)),
+            new Scenario("超长围栏标签行", size -> repeat("```" + "x".repeat(70), size) + "\n"),
+            new Scenario("模板字符串中嵌套围栏", size -> repeat("```js\nconst md = `\n```html\n<p>${i}</p>\n```\n`;\n```\n", size)),
+            new Scenario("大量小代码块", size -> repeat("```css\na{}\n```\n", size)),
+            new Scenario("零散反引号", size -> repeat("`` ` ``x`` ```", size)),
+            new Scenario("没有代码块", size -> repeat("纯文本说明，没有任何代码块。\n", size)));
+
+    @Test
+    void parsersAllocateLinearly() {
+        assertScaling(false);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void parsersScaleLinearly() {
+        assertScaling(true);
+    }
+
+    private static void assertScaling(boolean timed) {
+        List<String> failures = new ArrayList<>();
+        for (Scenario scenario : SCENARIOS) {
+            for (NamedParser parser : PARSERS) {
+                String failure = checkScaling(parser, scenario, timed);
+                if (failure != null) {
+                    failures.add(failure);
+                }
+            }
+        }
+        Assertions.assertTrue(failures.isEmpty(), "解析器出现超线性增长:\n" + String.join("\n", failures));
+    }
+
+    @Test
+    void streamingMatchesScannerOnFuzzedOutputs() {
+        Random random = new Random(20240601);
+        for (int round = 0; round < 3000; round++) {
+            String response = randomResponse(random);
+            List<String> expected = describe(CodeFenceScanner.scan(response));
+            int maxChunk = 1 + random.nextInt(round % 2 == 0 ? 4 : 64);
+            List<CodeBlock> streamed = feedRandomChunks(response, random, maxChunk);
+            Assertions.assertEquals(expected, describe(streamed), () -> "流式解析与一次性扫描不一致: " + escape(response));
+            // 流式切分结果组装与完整响应解析一致
+            MultiFileCodeResult fromBlocks = MULTI_FILE_PARSER.parseBlocks(streamed);
+            if (fromBlocks != null) {
+                Assertions.assertEquals(HTML_PARSER.parseCode(response).getHtmlCode(), fromBlocks.getHtmlCode());
+            }
+            // 旧解析器在任意输入上都能正常返回
+            Assertions.assertNotNull(com.hex.ailowcode.core.CodeParser.parseMultiFileCode(response));
+            Assertions.assertNotNull(com.hex.ailowcode.core.CodeParser.parseHtmlCode(response).getHtmlCode());
+        }
+    }
+
+    @Test
+    void nestedFenceInTemplateStringClosesBlockConsistently() {
+        String response = "```html\n<div id=\"app\"></div>\n```\n```js\nconst md = `\n```html\n<p>x</p>\n```\n`;\nrender(md);\n```\n";
+        // 围栏内第一次出现的 ``` 即结束围栏：所有解析器都在模板字符串内截断，且结果一致
+        String expectedJs = "const md = `";
+        Assertions.assertEquals(expectedJs, MULTI_FILE_PARSER.parseCode(response).getJsCode());
+        Assertions.assertEquals(expectedJs, com.hex.ailowcode.core.CodeParser.parseMultiFileCode(response).getJsCode());
+        Assertions.assertEquals(expectedJs, MULTI_FILE_PARSER.parseBlocks(feedInChunks(response, 1)).getJsCode());
+        Assertions.assertEquals(describe(CodeFenceScanner.scan(response)), describe(feedInChunks(response, 7)));
+    }
+
+    @Test
+    void unterminatedFencesYieldNoBlocks() {
+        for (String response : List.of("```html\n<p>a</p>", "```html", "```", "```html\r\n<p>", "``", "```" + "x".repeat(80))) {
+            Assertions.assertTrue(CodeFenceScanner.scan(response).isEmpty());
+            Assertions.assertTrue(feedInChunks(response, 1).isEmpty());
+            Assertions.assertNull(MULTI_FILE_PARSER.parseCode(response).getHtmlCode());
+            // 单文件模式没有代码块时整个内容作为 HTML
+            Assertions.assertEquals(response.trim(), HTML_PARSER.parseCode(response).getHtmlCode());
+            Assertions.assertEquals(response.trim(), com.hex.ailowcode.core.CodeParser.parseHtmlCode(response).getHtmlCode());
+        }
+    }
+
+    @Test
+    void multiMegabyteResponsesParseCompletely() {
+        String response = buildResponse(4 * 1024 * 1024);
+        MultiFileCodeResult legacy = com.hex.ailowcode.core.CodeParser.parseMultiFileCode(response);
+        MultiFileCodeResult scanned = MULTI_FILE_PARSER.parseCode(response);
+        MultiFileCodeResult streamed = MULTI_FILE_PARSER.parseBlocks(feedInChunks(response, 48));
+        for (MultiFileCodeResult result : List.of(scanned, streamed)) {
+            Assertions.assertEquals(legacy.getHtmlCode(), result.getHtmlCode());
+            Assertions.assertEquals(legacy.getCssCode(), result.getCssCode());
+            Assertions.assertEquals(legacy.getJsCode(), result.getJsCode());
+        }
+        Assertions.assertTrue(legacy.getHtmlCode().length() > 1024 * 1024);
+        HtmlCodeResult html = HTML_PARSER.parseCode(response);
+        Assertions.assertEquals(legacy.getHtmlCode(), html.getHtmlCode());
+    }
+
+    /**
+     * 逐级扩大输入，比较相邻两级的分配，timed 为 true 时同时比较耗时
+     *
+     * @return 超线性时返回失败描述，否则返回 null
+     */
+    private static String checkScaling(NamedParser parser, Scenario scenario, boolean timed) {
+        // 预热
+        measure(parser, scenario.generator().apply(SIZES[0]), timed);
+        Measurement previous = null;
+        StringBuilder report = new StringBuilder();
+        for (int size : SIZES) {
+            String content = scenario.generator().apply(size);
+            Measurement current = measure(parser, content, timed);
+            report.append(String.format("  %5d KB: %10.1f us/op %12d B/op", size / 1024, current.nanos / 1000.0, current.bytes));
+            if (previous != null) {
+                double timeRatio = timed ? current.nanos / previous.nanos : 1;
+                // 分配量很小时（只有结果对象）比例没有意义
+                double allocationRatio = previous.bytes < 4096 ? 1 : (double) current.bytes / previous.bytes;
+                if (timeRatio > MAX_STEP_RATIO || allocationRatio > MAX_STEP_RATIO) {
+                    return String.format("%s / %s: 输入 %d KB -> %d KB 耗时 x%.1f 分配 x%.1f%n    %s",
+                            parser.name(), scenario.name(), size / 4096, size / 1024, timeRatio, allocationRatio, report);
+                }
+            }
+            previous = current;
+        }
+        return null;
+    }
+
+    /**
+     * 测量单次解析的内存分配，timed 为 true 时同时测量耗时（多轮取最好成绩，每轮至少运行 10 ms）
+     */
+    private static Measurement measure(NamedParser parser, String content, boolean timed) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long sink = 0;
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        sink += parser.parse().applyAsInt(content);
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        double bestNanos = timed ? Double.MAX_VALUE : 0;
+        for (int round = 0; timed && round < 3; round++) {
+            int iterations = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                sink += parser.parse().applyAsInt(content);
+                iterations++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < 10_000_000L);
+            bestNanos = Math.min(bestNanos, (double) elapsed / iterations);
+        }
+        Assertions.assertTrue(sink >= 0);
+        return new Measurement(bestNanos, bytes);
+    }
+
+    /**
+     * 随机拼接文本、各种语言标签的围栏、零散反引号、CRLF、模板字符串等片段，并随机截断
+     */
+    private static String randomResponse(Random random) {
+        String[] fragments = {
+                "说明文字 ", "\n", "\r\n", "`", "``", "```", "````", "```html\n", "```HTML  \n", "```css\n", "```js\n",
+                "```javascript\n", "```JavaScript extra\n", "```python\n", "```\n", "```" + "x".repeat(63) + "\n",
+                "```" + "y".repeat(64) + "\n", "```" + "z".repeat(65) + "\n", "```" + "a".repeat(30) + "```css\n",
+                "<div class=\"a\">`code`</div>\n", "body { color: red; }\n", "const s = `${a}```;\n", "let t = `\n```\n`;\n",
+                "   ", "中文", "\t"
+        };
+        StringBuilder builder = new StringBuilder();
+        int count = random.nextInt(40);
+        for (int i = 0; i < count; i++) {
+            builder.append(fragments[random.nextInt(fragments.length)]);
+        }
+        return builder.substring(0, random.nextInt(builder.length() + 1));
+    }
+
+    private static List<CodeBlock> feedInChunks(String content, int chunkSize) {
+        StreamingCodeParser parser = new StreamingCodeParser();
+        for (int start = 0; start < content.length(); start += chunkSize) {
+            parser.feed(content.substring(start, Math.min(content.length(), start + chunkSize)));
+        }
+        return parser.getCompletedBlocks();
+    }
+
+    private static List<CodeBlock> feedRandomChunks(String content, Random random, int maxChunk) {
+        StreamingCodeParser parser = new StreamingCodeParser();
+        int start = 0;
+        while (start < content.length()) {
+            int end = Math.min(content.length(), start + 1 + random.nextInt(maxChunk));
+            parser.feed(content.substring(start, end));
+            start = end;
+        }
+        return parser.getCompletedBlocks();
+    }
+
+    private static List<String> describe(List<CodeBlock> codeBlocks) {
+        return codeBlocks.stream().map(codeBlock -> codeBlock.getLanguage() + ":" + codeBlock.getContent()).toList();
+    }
+
+    private static int totalLength(MultiFileCodeResult result) {
+        return length(result.getHtmlCode()) + length(result.getCssCode()) + length(result.getJsCode());
+    }
+
+    private static int length(String code) {
+        return code == null ? 0 : code.length();
+    }
+
+    private static String escape(String content) {
+        return content.replace("\r", "\\r").replace("\n", "\\n");
+    }
+
+    /**
+     * 构造接近真实输出的响应：说明文字 + html / css / js 三个代码块，代码中夹带单个反引号
+     */
+    private static String buildResponse(int targetChars) {
+        int blockChars = targetChars / 3;
+        return "下面是生成的留言板应用：\n\n```html\n"
+                + repeat("  <div class=\"message\">留言内容 `item`</div>\n", blockChars)
+                + "```\n\n样式文件：\n\n```css\n"
+                + repeat(".message { color: #333; margin: 4px 0; }\n", blockChars)
+                + "```\n\n脚本：\n\n```javascript\n"
+                + repeat("const text = `hello ${name}`; list.push(text);\n", blockChars)
+                + "```\n\n以上代码实现了留言板的全部功能。\n";
+    }
+
+    private static String repeat(String unit, int chars) {
+        return unit.repeat(Math.max(1, chars / unit.length()));
+    }
+
+    private record NamedParser(String name, ToIntFunction<String> parse) {
+    }
+
+    private record Scenario(String name, IntFunction<String> generator) {
+    }
+
+    private record Measurement(double nanos, long bytes) {
+    }
+}
@@ -0,0 +1,221 @@
+package com.hex.ailowcode.core.saver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * BlobStore 去重、不支持硬链接时的退化、垃圾回收不删除仍被引用或刚被复用的 blob、按文件表原子发布版本
+ */
+class BlobStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void identicalContentSharesOneBlob() throws IOException {
+        Path blobRoot = tempDir.resolve("blobs");
+        Path first = tempDir.resolve("v1/index.html");
+        Path second = tempDir.resolve("v2/index.html");
+        Path other = tempDir.resolve("v2/style.css");
+        Files.createDirectories(first.getParent());
+        Files.createDirectories(second.getParent());
+
+        BlobStore.writeLinked(blobRoot, first, content("<p>same</p>"));
+        BlobStore.writeLinked(blobRoot, second, content("<p>same</p>"));
+        BlobStore.writeLinked(blobRoot, other, content("p{}"));
+
+        List<Path> blobs = listBlobs(blobRoot);
+        Assertions.assertEquals(2, blobs.size());
+        Assertions.assertEquals(fileKey(first), fileKey(second));
+        Assertions.assertNotEquals(fileKey(first), fileKey(other));
+        Assertions.assertTrue(blobs.stream().anyMatch(blob -> fileKey(blob).equals(fileKey(first))));
+        Assertions.assertEquals("<p>same</p>", Files.readString(second));
+        // 写入同一内容时不覆盖已有的 blob，也不残留临时文件
+        BlobStore.writeLinked(blobRoot, first, content("<p>same</p>"));
+        Assertions.assertEquals(blobs, listBlobs(blobRoot));
+    }
+
+    @Test
+    void fallsBackToCopyWhenHardLinkFails() throws IOException {
+        // 目标与 blob 在不同的文件系统上时无法创建硬链接
+        Path otherFileSystem = Path.of("/dev/shm");
+        Assumptions.assumeTrue(Files.isDirectory(otherFileSystem) && Files.isWritable(otherFileSystem));
+        Assumptions.assumeFalse(Files.getFileStore(otherFileSystem).equals(Files.getFileStore(tempDir)));
+        Path targetDir = Files.createTempDirectory(otherFileSystem, "blob-store-test");
+        try {
+            Path blobRoot = tempDir.resolve("blobs");
+            Path target = targetDir.resolve("script.js");
+            Files.writeString(target, "stale");
+
+            BlobStore.writeLinked(blobRoot, target, content("console.log(1)"));
+
+            Assertions.assertEquals("console.log(1)", Files.readString(target));
+            Path blob = listBlobs(blobRoot).getFirst();
+            Assertions.assertNotEquals(fileKey(blob), fileKey(target));
+            Assertions.assertEquals("console.log(1)", Files.readString(blob));
+        } finally {
+            try (Stream<Path> files = Files.list(targetDir)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(targetDir);
+        }
+    }
+
+    @Test
+    void garbageCollectionKeepsLinkedAndPinnedBlobs() throws IOException {
+        Path blobRoot = tempDir.resolve("blobs");
+        Path versionDir = Files.createDirectories(tempDir.resolve("version"));
+        Path pinDir = tempDir.resolve("pins");
+
+        Path linked = versionDir.resolve("index.html");
+        BlobStore.writeLinked(blobRoot, linked, content("linked"));
+        Path pinnedSource = versionDir.resolve("style.css");
+        BlobStore.writeLinked(blobRoot, pinnedSource, content("pinned"));
+        Path pinnedBlob = findBlob(blobRoot, pinnedSource);
+        BlobStore.pin(blobRoot, pinDir, pinnedBlob.getFileName().toString());
+        Files.delete(pinnedSource);
+        Path orphanSource = versionDir.resolve("script.js");
+        BlobStore.writeLinked(blobRoot, orphanSource, content("orphan"));
+        Path orphanBlob = findBlob(blobRoot, orphanSource);
+        Files.delete(orphanSource);
+
+        // 刚写入的 blob 不回收
+        Assertions.assertEquals(0, BlobStore.collectGarbage(blobRoot, Instant.now().minusSeconds(600)));
+        Assertions.assertEquals(1, BlobStore.collectGarbage(blobRoot, Instant.now().plusSeconds(60)));
+
+        Assertions.assertFalse(Files.exists(orphanBlob));
+        Assertions.assertTrue(Files.exists(pinnedBlob));
+        Assertions.assertEquals("linked", Files.readString(linked));
+        Assertions.assertEquals(2, listBlobs(blobRoot).size());
+    }
+
+    @Test
+    void reusingBlobKeepsItFromGarbageCollection() throws IOException {
+        Path blobRoot = tempDir.resolve("blobs");
+        Path versionDir = Files.createDirectories(tempDir.resolve("version"));
+        Path first = versionDir.resolve("index.html");
+        BlobStore.writeLinked(blobRoot, first, content("reused"));
+        Path blob = findBlob(blobRoot, first);
+        Files.delete(first);
+        // 已经等待回收的旧 blob：只剩自身一个链接
+        Files.setLastModifiedTime(blob, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+
+        Path second = versionDir.resolve("index.html.2");
+        BlobStore.writeLinked(blobRoot, second, content("reused"));
+        Files.delete(second);
+
+        // 复用时刷新了修改时间，链接之前不会被回收
+        Assertions.assertEquals(0, BlobStore.collectGarbage(blobRoot, Instant.now().minusSeconds(600)));
+        Assertions.assertTrue(Files.exists(blob));
+    }
+
+    @Test
+    void pinFailsWhenBlobIsMissing() {
+        Path blobRoot = tempDir.resolve("blobs");
+        Assertions.assertThrows(NoSuchFileException.class,
+                () -> BlobStore.pin(blobRoot, tempDir.resolve("pins"), "ab" + "0".repeat(62)));
+    }
+
+    @Test
+    void publishManifestSwitchesToCompleteVersion() throws IOException {
+        Path blobRoot = tempDir.resolve("blobs");
+        Path rootDir = tempDir.resolve("out");
+        String oldIndex = store(blobRoot, "<div id=\"app\">v1</div>");
+        String app = store(blobRoot, "<template>v1</template>");
+        Path liveDir = BlobStore.publishManifest(blobRoot, rootDir, "vue_project_1", Map.of("index.html", oldIndex, "src/App.vue", app));
+        Files.writeString(liveDir.resolve(".gitignore"), "dist");
+        Files.createDirectories(liveDir.resolve("node_modules/vue"));
+        Files.writeString(liveDir.resolve("node_modules/vue/index.js"), "export default {}");
+        Files.createDirectories(liveDir.resolve("dist"));
+        Files.writeString(liveDir.resolve("dist/index.html"), "old build");
+        Files.writeString(liveDir.resolve("extra.txt"), "not in manifest");
+        Path oldVersion = liveDir.toRealPath();
+
+        String newIndex = store(blobRoot, "<div id=\"app\">v2</div>");
+        BlobStore.publishManifest(blobRoot, rootDir, "vue_project_1", Map.of("index.html", newIndex));
+
+        Path newVersion = liveDir.toRealPath();
+        Assertions.assertNotEquals(oldVersion, newVersion);
+        Assertions.assertEquals("<div id=\"app\">v2</div>", Files.readString(liveDir.resolve("index.html")));
+        Assertions.assertFalse(Files.exists(liveDir.resolve("src/App.vue")));
+        Assertions.assertFalse(Files.exists(liveDir.resolve("extra.txt")));
+        Assertions.assertFalse(Files.exists(liveDir.resolve("dist")));
+        Assertions.assertEquals("dist", Files.readString(liveDir.resolve(".gitignore")));
+        Assertions.assertEquals("export default {}", Files.readString(liveDir.resolve("node_modules/vue/index.js")));
+        // 持有旧版本路径的读取方仍然看到完整的旧版本
+        Assertions.assertEquals("<div id=\"app\">v1</div>", Files.readString(oldVersion.resolve("index.html")));
+        Assertions.assertEquals("<template>v1</template>", Files.readString(oldVersion.resolve("src/App.vue")));
+    }
+
+    @Test
+    void publishManifestWithMissingBlobKeepsLiveVersion() throws IOException {
+        Path blobRoot = tempDir.resolve("blobs");
+        Path rootDir = tempDir.resolve("out");
+        String index = store(blobRoot, "<p>v1</p>");
+        Path liveDir = BlobStore.publishManifest(blobRoot, rootDir, "vue_project_2", Map.of("index.html", index));
+        Files.createDirectories(liveDir.resolve("node_modules/vue"));
+        Files.writeString(liveDir.resolve("node_modules/vue/index.js"), "export default {}");
+        Path liveVersion = liveDir.toRealPath();
+
+        Map<String, String> files = Map.of("index.html", index, "src/main.js", "cd" + "0".repeat(62));
+        Assertions.assertThrows(NoSuchFileException.class, () -> BlobStore.publishManifest(blobRoot, rootDir, "vue_project_2", files));
+
+        Assertions.assertEquals(liveVersion, liveDir.toRealPath());
+        Assertions.assertEquals("<p>v1</p>", Files.readString(liveDir.resolve("index.html")));
+        Assertions.assertTrue(Files.exists(liveDir.resolve("node_modules/vue/index.js")));
+        try (Stream<Path> versions = Files.list(liveVersion.getParent())) {
+            Assertions.assertEquals(List.of(liveVersion), versions.toList());
+        }
+    }
+
+    /**
+     * 把内容存入 blob，返回内容哈希
+     */
+    private String store(Path blobRoot, String text) throws IOException {
+        Path scratch = Files.createDirectories(tempDir.resolve("scratch")).resolve(UUID.randomUUID().toString());
+        BlobStore.writeLinked(blobRoot, scratch, content(text));
+        return findBlob(blobRoot, scratch).getFileName().toString();
+    }
+
+    private static ByteBuffer[] content(String text) {
+        return new ByteBuffer[]{ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))};
+    }
+
+    private static List<Path> listBlobs(Path blobRoot) throws IOException {
+        try (Stream<Path> paths = Files.walk(blobRoot)) {
+            return paths.filter(Files::isRegularFile).sorted().toList();
+        }
+    }
+
+    private static Path findBlob(Path blobRoot, Path linkedFile) throws IOException {
+        Object key = fileKey(linkedFile);
+        return listBlobs(blobRoot).stream().filter(blob -> fileKey(blob).equals(key)).findFirst().orElseThrow();
+    }
+
+    private static Object fileKey(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
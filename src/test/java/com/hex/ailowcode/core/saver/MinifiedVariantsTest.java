@@ -0,0 +1,38 @@
+package com.hex.ailowcode.core.saver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 压缩变体的缓存键：同一内容以不同扩展名部署时使用各自的压缩策略
+ */
+class MinifiedVariantsTest {
+
+    @TempDir
+    Path blobRoot;
+
+    @Test
+    void variantIsKeyedByExtension() throws IOException {
+        Path blob = blobRoot.resolve("ab").resolve("ab12");
+        Files.createDirectories(blob.getParent());
+        Files.writeString(blob, "a  /  b {  color : red ;  }\n");
+
+        Path jsVariant = MinifiedVariants.minifiedVariant(blobRoot, blob, "script.js");
+        Path cssVariant = MinifiedVariants.minifiedVariant(blobRoot, blob, "style.CSS");
+
+        Assertions.assertNotNull(jsVariant);
+        Assertions.assertNotNull(cssVariant);
+        Assertions.assertNotEquals(jsVariant, cssVariant);
+        Assertions.assertTrue(jsVariant.getFileName().toString().startsWith("ab12.js."));
+        Assertions.assertTrue(cssVariant.getFileName().toString().startsWith("ab12.css."));
+        Assertions.assertEquals("a / b{color:red;}", Files.readString(jsVariant));
+        Assertions.assertEquals("a / b{color :red}", Files.readString(cssVariant));
+        // 再次获取时复用各自的缓存结果
+        Assertions.assertEquals(jsVariant, MinifiedVariants.minifiedVariant(blobRoot, blob, "other.js"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.hex.ailowcode.core.saver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 预压缩变体的缓存：压缩结果复用、收益不足的负缓存、并发生成同一变体
+ */
+class PrecompressedVariantsTest {
+
+    @TempDir
+    Path blobRoot;
+
+    @Test
+    void compressesOnceAndReuses() throws IOException {
+        String text = "<div class=\"message\">留言</div>\n".repeat(200);
+        Path blob = writeBlob("aa11", text.getBytes(StandardCharsets.UTF_8));
+
+        Path variant = PrecompressedVariants.gzipVariant(blobRoot, blob);
+        Assertions.assertNotNull(variant);
+        Assertions.assertEquals(text, gunzip(variant));
+        FileTime firstWrite = Files.getLastModifiedTime(variant);
+        Assertions.assertEquals(variant, PrecompressedVariants.gzipVariant(blobRoot, blob));
+        Assertions.assertEquals(firstWrite, Files.getLastModifiedTime(variant));
+    }
+
+    @Test
+    void remembersIncompressibleContent() throws IOException {
+        byte[] random = new byte[8 * 1024];
+        new Random(7).nextBytes(random);
+        Path blob = writeBlob("bb22", random);
+
+        Assertions.assertNull(PrecompressedVariants.gzipVariant(blobRoot, blob));
+        Path marker = blobRoot.resolve("gz").resolve("bb22.gz" + PrecompressedVariants.SKIP_MARKER_SUFFIX);
+        Assertions.assertTrue(Files.exists(marker));
+        // 命中标记时不再读取和压缩内容：把 blob 换成高度可压缩的内容，结果仍然是跳过
+        Files.writeString(blob, "a".repeat(8 * 1024));
+        Assertions.assertNull(PrecompressedVariants.gzipVariant(blobRoot, blob));
+        Assertions.assertFalse(Files.exists(blobRoot.resolve("gz").resolve("bb22.gz")));
+    }
+
+    @Test
+    void concurrentCompressionOfSameBlob() throws Exception {
+        String text = "body { color: #333; margin: 0 auto; }\n".repeat(500);
+        Path blob = writeBlob("cc33", text.getBytes(StandardCharsets.UTF_8));
+        List<Callable<Path>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(() -> PrecompressedVariants.gzipVariant(blobRoot, blob));
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (Future<Path> future : executor.invokeAll(tasks)) {
+                Assertions.assertEquals(blobRoot.resolve("gz").resolve("cc33.gz"), future.get());
+            }
+        }
+        Assertions.assertEquals(text, gunzip(blobRoot.resolve("gz").resolve("cc33.gz")));
+        // 没有残留的临时文件
+        try (Stream<Path> files = Files.list(blobRoot.resolve("gz"))) {
+            Assertions.assertEquals(List.of("cc33.gz"), files.map(file -> file.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    void garbageCollectionKeepsRecentSkipMarkers() throws IOException {
+        byte[] random = new byte[4 * 1024];
+        new Random(11).nextBytes(random);
+        Path blob = writeBlob("dd44", random);
+        Assertions.assertNull(PrecompressedVariants.gzipVariant(blobRoot, blob));
+        Path marker = blobRoot.resolve("gz").resolve("dd44.gz" + PrecompressedVariants.SKIP_MARKER_SUFFIX);
+
+        BlobStore.collectGarbage(blobRoot, Instant.now().plusSeconds(60));
+        Assertions.assertTrue(Files.exists(marker));
+        Assertions.assertFalse(Files.exists(blob));
+
+        Files.setLastModifiedTime(marker, FileTime.from(Instant.now().minusSeconds(30L * 24 * 3600)));
+        BlobStore.collectGarbage(blobRoot, Instant.now().plusSeconds(60));
+        Assertions.assertFalse(Files.exists(marker));
+    }
+
+    private Path writeBlob(String name, byte[] content) throws IOException {
+        Path blob = blobRoot.resolve(name.substring(0, 2)).resolve(name);
+        Files.createDirectories(blob.getParent());
+        return Files.write(blob, content);
+    }
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.hex.ailowcode.core.saver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件索引：发布新版本后自动重建，建立索引过程中的写入不丢失
+ */
+class ProjectFileIndexTest {
+
+    private static final String DIR_NAME = "vue_project_1";
+
+    @TempDir
+    Path rootDir;
+
+    private final ProjectFileIndex projectFileIndex = new ProjectFileIndex();
+
+    @Test
+    void rebuildsAfterVersionIsPublished() throws IOException {
+        Path liveDir = publish(Map.of("src/a.js", "a", "node_modules/vue/index.js", "vue"));
+        Assertions.assertEquals(List.of("src/a.js"), List.copyOf(projectFileIndex.getIndex(1L, liveDir, null).keySet()));
+
+        // 不经过文件工具、也不调用 invalidate 的发布
+        publish(Map.of("src/a.js", "a", "src/b.js", "bb"));
+
+        NavigableMap<String, ProjectFileIndex.FileMeta> index = projectFileIndex.getIndex(1L, liveDir, null);
+        Assertions.assertEquals(List.of("src/a.js", "src/b.js"), List.copyOf(index.keySet()));
+        Assertions.assertEquals(2, index.get("src/b.js").size());
+    }
+
+    @Test
+    void recordsWritesOnlyAfterIndexExists() throws IOException {
+        Path liveDir = publish(Map.of("src/a.js", "a"));
+        projectFileIndex.recordWrite(1L, "src/early.js", bytes("early"));
+        Assertions.assertFalse(projectFileIndex.getIndex(1L, liveDir, null).containsKey("src/early.js"));
+
+        projectFileIndex.recordWrite(1L, "src/late.js", bytes("late"));
+        Assertions.assertEquals(4, projectFileIndex.getIndex(1L, liveDir, null).get("src/late.js").size());
+    }
+
+    @Test
+    void writeDuringLoadIsKept() throws Exception {
+        Path liveDir = publish(Map.of("src/a.js", "a"));
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch resumeLoad = new CountDownLatch(1);
+        // 建立索引时读取进行中轮次的写入，借此在建立过程中暂停
+        VirtualProject active = new VirtualProject(rootDir, DIR_NAME, 1024) {
+            @Override
+            public synchronized Set<String> writtenPaths() {
+                loadStarted.countDown();
+                try {
+                    resumeLoad.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.writtenPaths();
+            }
+        };
+
+        CompletableFuture<NavigableMap<String, ProjectFileIndex.FileMeta>> load = CompletableFuture.supplyAsync(() -> {
+            try {
+                return projectFileIndex.getIndex(1L, liveDir, active);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Assertions.assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> write = CompletableFuture.runAsync(() -> projectFileIndex.recordWrite(1L, "src/during.js", bytes("during")));
+        Thread.sleep(100);
+        resumeLoad.countDown();
+        write.get(5, TimeUnit.SECONDS);
+
+        Assertions.assertTrue(load.get(5, TimeUnit.SECONDS).containsKey("src/a.js"));
+        Assertions.assertTrue(projectFileIndex.getIndex(1L, liveDir, null).containsKey("src/during.js"));
+    }
+
+    /**
+     * 发布一个只包含给定文件的新版本
+     *
+     * @return 预览目录
+     */
+    private Path publish(Map<String, String> files) throws IOException {
+        Path versionDir = DirectoryPublisher.createVersionDir(rootDir, DIR_NAME);
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Path target = versionDir.resolve(file.getKey());
+            Files.createDirectories(target.getParent());
+            Files.writeString(target, file.getValue());
+        }
+        return DirectoryPublisher.publish(rootDir, DIR_NAME, versionDir);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
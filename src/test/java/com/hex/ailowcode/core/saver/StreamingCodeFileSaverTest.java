@@ -0,0 +1,142 @@
+package com.hex.ailowcode.core.saver;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.hex.ailowcode.core.parser.StreamingCodeParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * 流式保存：预览目录随每个代码块更新，读取方只会看到完整写入的文件，异常结束时丢弃未发布的暂存区
+ */
+class StreamingCodeFileSaverTest {
+
+    private static final Map<String, String> FILE_NAMES = Map.of("html", "index.html", "css", "style.css", "js", "script.js");
+
+    private static final String DIR_NAME = "multi_file_1";
+
+    @TempDir
+    Path rootDir;
+
+    @Test
+    void previewUpdatesAsEachBlockCompletes() throws IOException {
+        stream(response("v1"), null).finish();
+        Path liveDir = rootDir.resolve(DIR_NAME);
+        assertVersion(liveDir, "v1");
+
+        AtomicBoolean sawPartialRound = new AtomicBoolean();
+        Path publishedDir = stream(response("v2"), () -> {
+            // 任意时刻预览目录中的文件都是完整的：要么全部是上一轮的，要么是本轮已经完成的代码块
+            List<String> files = listFiles(liveDir);
+            if (files.equals(List.of("index.html", "script.js", "style.css")) && read(liveDir, "index.html").contains("v1")) {
+                assertVersion(liveDir, "v1");
+                return;
+            }
+            Assertions.assertEquals("<link href=\"style.css\"><p>v2</p>", read(liveDir, "index.html"));
+            if (files.equals(List.of("index.html"))) {
+                sawPartialRound.set(true);
+            } else if (files.contains("style.css")) {
+                Assertions.assertEquals("p { content: 'v2'; }", read(liveDir, "style.css"));
+            }
+        }).finish();
+
+        Assertions.assertTrue(sawPartialRound.get());
+        Assertions.assertEquals(liveDir, publishedDir);
+        assertVersion(liveDir, "v2");
+        Assertions.assertEquals(List.of("index.html", "script.js", "style.css"), listFiles(liveDir));
+    }
+
+    @Test
+    void writesSameBytesAsWholeSave() throws IOException {
+        StreamingCodeFileSaver saver = new StreamingCodeFileSaver(rootDir, DIR_NAME, FILE_NAMES::get);
+        StreamingCodeParser parser = new StreamingCodeParser(saver);
+        // 首尾的控制字符按 CodeSlice.trim 的规则去掉，跨 chunk 的代理对完整编码
+        String html = "\u0001 <p>😀</p>\u0002 \n";
+        parser.feed("```html\n" + html.substring(0, 6));
+        parser.feed(html.substring(6));
+        parser.feed("```\n");
+        saver.finish();
+
+        Path indexFile = rootDir.resolve(DIR_NAME).resolve("index.html");
+        byte[] expected = html.trim().getBytes(StandardCharsets.UTF_8);
+        Assertions.assertArrayEquals(expected, Files.readAllBytes(indexFile));
+        // 发布的文件已经是 blob 的硬链接，版本快照不必重新计算哈希
+        Assertions.assertTrue(BlobStore.isLinkedTo(indexFile, DigestUtil.sha256Hex(expected)));
+    }
+
+    @Test
+    void abortDiscardsUnpublishedStaging() throws IOException {
+        stream(response("v1"), null).finish();
+        Path liveDir = rootDir.resolve(DIR_NAME);
+
+        String v2 = response("v2");
+        // 在 css 代码块中途结束
+        StreamingCodeFileSaver saver = stream(v2.substring(0, v2.indexOf("content")), null);
+        Path liveVersion = liveDir.toRealPath();
+        List<String> versionsBeforeAbort = listFiles(liveVersion.getParent());
+        saver.abort();
+
+        // 已经发布的代码块保留，未闭合的代码块连同暂存区一起删除
+        Assertions.assertEquals(liveVersion, liveDir.toRealPath());
+        Assertions.assertEquals(List.of("index.html"), listFiles(liveDir));
+        List<String> versions = listFiles(liveVersion.getParent());
+        Assertions.assertEquals(versionsBeforeAbort.size() - 1, versions.size());
+        Assertions.assertTrue(versions.contains(liveVersion.getFileName().toString()));
+        Assertions.assertThrows(IllegalStateException.class, saver::finish);
+    }
+
+    /**
+     * 按小块喂入响应，每喂入一块执行一次检查
+     */
+    private StreamingCodeFileSaver stream(String response, Runnable afterChunk) {
+        StreamingCodeFileSaver saver = new StreamingCodeFileSaver(rootDir, DIR_NAME, FILE_NAMES::get);
+        StreamingCodeParser parser = new StreamingCodeParser(saver);
+        for (int start = 0; start < response.length(); start += 7) {
+            parser.feed(response.substring(start, Math.min(response.length(), start + 7)));
+            if (afterChunk != null) {
+                afterChunk.run();
+            }
+        }
+        return saver;
+    }
+
+    private static String response(String version) {
+        return "说明\n```html\n<link href=\"style.css\"><p>" + version + "</p>\n```\n"
+                + "```css\np { content: '" + version + "'; }\n```\n"
+                + "```js\nconsole.log('" + version + "')\n```\n";
+    }
+
+    private static void assertVersion(Path liveDir, String version) {
+        Assertions.assertEquals("<link href=\"style.css\"><p>" + version + "</p>", read(liveDir, "index.html"));
+        Assertions.assertEquals("p { content: '" + version + "'; }", read(liveDir, "style.css"));
+        Assertions.assertEquals("console.log('" + version + "')", read(liveDir, "script.js"));
+    }
+
+    private static String read(Path dir, String fileName) {
+        try {
+            return Files.readString(dir.resolve(fileName));
+        } catch (IOException e) {
+            return Assertions.fail("预览目录不完整: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 目录中的文件名（包括隐藏的临时文件）
+     */
+    private static List<String> listFiles(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        } catch (IOException e) {
+            return Assertions.fail("读取目录失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.hex.ailowcode.core.saver;
+
+import com.hex.ailowcode.config.CodeGenProperties;
+import com.hex.ailowcode.exception.BusinessException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * 同一应用的轮次不重叠：进行中的轮次不会被后开始的轮次接管
+ */
+class VirtualProjectManagerTest {
+
+    @Test
+    void overlappingRoundIsRejected() {
+        VirtualProjectManager manager = new VirtualProjectManager();
+        ReflectionTestUtils.setField(manager, "codeGenProperties", new CodeGenProperties());
+
+        VirtualProject first = manager.begin(1L);
+        Assertions.assertThrows(BusinessException.class, () -> manager.begin(1L));
+        Assertions.assertSame(first, manager.getActive(1L));
+        // 其他应用不受影响
+        VirtualProject other = manager.begin(2L);
+        Assertions.assertNotSame(first, other);
+
+        manager.release(1L, first);
+        Assertions.assertNull(manager.getActive(1L));
+        Assertions.assertNotSame(first, manager.begin(1L));
+    }
+}
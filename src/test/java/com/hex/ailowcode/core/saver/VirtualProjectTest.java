@@ -0,0 +1,154 @@
+package com.hex.ailowcode.core.saver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * 内存项目树：一次性发布本轮写入、超过内存上限溢写到暂存区、发布等待同一项目上进行中的构建
+ */
+class VirtualProjectTest {
+
+    private static final String DIR_NAME = "vue_project_1";
+
+    @TempDir
+    Path rootDir;
+
+    @Test
+    void flushPublishesBufferedWrites() throws IOException {
+        Path oldVersion = publishInitialVersion();
+        Path liveDir = rootDir.resolve(DIR_NAME);
+
+        VirtualProject project = new VirtualProject(rootDir, DIR_NAME, 1024 * 1024);
+        project.write("src/App.vue", bytes("<template>v2</template>"));
+        project.write("src/App.vue", bytes("<template>v3</template>"));
+        // 发布前磁盘上的项目保持不变，读取本轮写入拿到最新内容
+        Assertions.assertEquals("<template>v1</template>", Files.readString(liveDir.resolve("src/App.vue")));
+        Assertions.assertEquals("<template>v3</template>", new String(project.read("src/App.vue"), StandardCharsets.UTF_8));
+
+        project.flush();
+
+        Assertions.assertNotEquals(oldVersion, liveDir.toRealPath());
+        Assertions.assertEquals("<template>v3</template>", Files.readString(liveDir.resolve("src/App.vue")));
+        Assertions.assertEquals("{\"name\":\"app\"}", Files.readString(liveDir.resolve("package.json")));
+        Assertions.assertTrue(Files.exists(liveDir.resolve("node_modules/vue/index.js")));
+        Assertions.assertFalse(Files.exists(liveDir.resolve("dist")));
+        // 旧版本目录中的构建产物保持完整，已经解析出旧版本的部署仍然可以读取
+        Assertions.assertEquals("<html>v1</html>", Files.readString(oldVersion.resolve("dist/index.html")));
+        Assertions.assertNull(project.read("src/App.vue"));
+        Assertions.assertThrows(IllegalStateException.class, project::flush);
+    }
+
+    @Test
+    void spillsToStagingWhenOverMemoryLimit() throws IOException {
+        Path oldVersion = publishInitialVersion();
+        Path liveDir = rootDir.resolve(DIR_NAME);
+
+        VirtualProject project = new VirtualProject(rootDir, DIR_NAME, 16);
+        project.write("src/a.js", bytes("export const a=1"));
+        Assertions.assertEquals(List.of(oldVersion), listVersions());
+        project.write("src/b.js", bytes("export const b=2"));
+        // 超过上限：创建暂存区，内容从暂存区读取
+        Assertions.assertEquals(2, listVersions().size());
+        Assertions.assertEquals("export const b=2", new String(project.read("src/b.js"), StandardCharsets.UTF_8));
+        Assertions.assertEquals(oldVersion, liveDir.toRealPath());
+
+        project.flush();
+
+        Assertions.assertEquals("export const a=1", Files.readString(liveDir.resolve("src/a.js")));
+        Assertions.assertEquals("export const b=2", Files.readString(liveDir.resolve("src/b.js")));
+        Assertions.assertEquals("<template>v1</template>", Files.readString(liveDir.resolve("src/App.vue")));
+    }
+
+    @Test
+    void discardRemovesSpilledStaging() throws IOException {
+        Path oldVersion = publishInitialVersion();
+
+        VirtualProject project = new VirtualProject(rootDir, DIR_NAME, 4);
+        project.write("src/a.js", bytes("export const a=1"));
+        Assertions.assertTrue(project.discard());
+
+        Assertions.assertEquals(List.of(oldVersion), listVersions());
+        Assertions.assertEquals(oldVersion, rootDir.resolve(DIR_NAME).toRealPath());
+        Assertions.assertFalse(project.write("src/a.js", bytes("late")));
+    }
+
+    @Test
+    void flushWaitsForBuildOnSameProject() throws Exception {
+        Path oldVersion = publishInitialVersion();
+        Path liveDir = rootDir.resolve(DIR_NAME);
+        VirtualProject project = new VirtualProject(rootDir, DIR_NAME, 1024 * 1024);
+        project.write("src/App.vue", bytes("<template>v2</template>"));
+
+        // 模拟进行中的构建：持有项目目录锁
+        Lock buildLock = ProjectDirLocks.lockFor(liveDir);
+        buildLock.lock();
+        CompletableFuture<Path> flush;
+        try {
+            flush = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return project.flush();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Assertions.assertThrows(TimeoutException.class, () -> flush.get(200, TimeUnit.MILLISECONDS));
+            // 构建期间依赖目录和构建产物都还在正在构建的版本中
+            Assertions.assertEquals(oldVersion, liveDir.toRealPath());
+            Assertions.assertTrue(Files.exists(oldVersion.resolve("node_modules/vue/index.js")));
+        } finally {
+            buildLock.unlock();
+        }
+
+        flush.get(5, TimeUnit.SECONDS);
+        Assertions.assertNotEquals(oldVersion, liveDir.toRealPath());
+        Assertions.assertEquals("<template>v2</template>", Files.readString(liveDir.resolve("src/App.vue")));
+        Assertions.assertTrue(Files.exists(liveDir.resolve("node_modules/vue/index.js")));
+    }
+
+    /**
+     * 发布第一个版本，并放入依赖目录和构建产物
+     *
+     * @return 版本目录
+     */
+    private Path publishInitialVersion() throws IOException {
+        VirtualProject project = new VirtualProject(rootDir, DIR_NAME, 1024 * 1024);
+        project.write("package.json", bytes("{\"name\":\"app\"}"));
+        project.write("src/App.vue", bytes("<template>v1</template>"));
+        Path liveDir = project.flush();
+        Files.createDirectories(liveDir.resolve("node_modules/vue"));
+        Files.writeString(liveDir.resolve("node_modules/vue/index.js"), "export default {}");
+        Files.createDirectories(liveDir.resolve("dist"));
+        Files.writeString(liveDir.resolve("dist/index.html"), "<html>v1</html>");
+        return liveDir.toRealPath();
+    }
+
+    private List<Path> listVersions() throws IOException {
+        try (Stream<Path> versions = Files.list(rootDir.resolve(DirectoryPublisher.VERSIONS_DIR).resolve(DIR_NAME))) {
+            return versions.map(this::realPath).sorted().toList();
+        }
+    }
+
+    private Path realPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
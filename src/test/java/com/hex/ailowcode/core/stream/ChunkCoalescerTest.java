@@ -0,0 +1,73 @@
+package com.hex.ailowcode.core.stream;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ChunkCoalescer 正确性 + 收益基准
+ * 每个 SSE 事件对应一次 Servlet 输出流的 write + flush（即至少一次 write 系统调用），
+ * 所以事件数的减少比例就是写入/flush 系统调用的减少比例
+ */
+class ChunkCoalescerTest {
+
+    @Test
+    void coalesceKeepsOrderAndContent() {
+        List<String> chunks = Flux.range(0, 5000).map(i -> "chunk-" + i + "\n").collectList().block();
+        Assertions.assertNotNull(chunks);
+        List<String> merged = ChunkCoalescer.coalesce(Flux.fromIterable(chunks), Duration.ofMillis(30), 1024)
+                .collectList().block();
+        Assertions.assertNotNull(merged);
+        Assertions.assertEquals(String.join("", chunks), String.join("", merged));
+        Assertions.assertTrue(merged.size() < chunks.size());
+        // 除最后一个外，每次输出都是因为达到大小上限
+        for (int i = 0; i < merged.size() - 1; i++) {
+            Assertions.assertTrue(merged.get(i).length() >= 1024);
+        }
+    }
+
+    @Test
+    void coalesceFlushesByTimeWhenUpstreamIsSlow() {
+        // 每 50ms 一个 chunk，大于 30ms 的窗口，合并后不应该丢失或延迟到流结束
+        Flux<String> slowSource = Flux.interval(Duration.ofMillis(50)).take(5).map(i -> "t" + i);
+        List<String> merged = ChunkCoalescer.coalesce(slowSource, Duration.ofMillis(30), 1024)
+                .collectList().block();
+        Assertions.assertNotNull(merged);
+        Assertions.assertEquals("t0t1t2t3t4", String.join("", merged));
+        Assertions.assertTrue(merged.size() >= 2);
+    }
+
+    @Test
+    void coalesceDisabled() {
+        List<String> merged = ChunkCoalescer.coalesce(Flux.just("a", "b", "c"), Duration.ZERO, 1024)
+                .collectList().block();
+        Assertions.assertEquals(List.of("a", "b", "c"), merged);
+    }
+
+    @Test
+    void coalesceReducesSseEvents() {
+        // 模拟模型输出：每 1ms 一个 4 字符左右的 token，共 1000 个
+        Flux<String> tokenStream = Flux.interval(Duration.ofMillis(1)).take(1000).map(i -> "tk" + (i % 100));
+
+        List<String> rawEvents = tokenStream.map(ChunkCoalescerTest::encodeEvent).collectList().block();
+        List<String> mergedEvents = ChunkCoalescer.coalesce(tokenStream, Duration.ofMillis(30), 1024)
+                .map(ChunkCoalescerTest::encodeEvent).collectList().block();
+
+        Assertions.assertNotNull(rawEvents);
+        Assertions.assertNotNull(mergedEvents);
+        // 30ms 窗口下 1000 个 token 至少应该减少一个数量级
+        Assertions.assertTrue(mergedEvents.size() * 10 <= rawEvents.size());
+    }
+
+    /**
+     * 与 AppController 中每个事件的编码方式一致
+     */
+    private static String encodeEvent(String chunk) {
+        return JSONUtil.toJsonStr(Map.of("d", chunk));
+    }
+}
@@ -0,0 +1,159 @@
+package com.hex.ailowcode.core.stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单飞生成：共享一次上游和一份计入预算的账本，中途加入的订阅者从账本重放，发起者断开不影响跟随者
+ */
+class GenerationFlightTest {
+
+    private final ChunkLedgerManager ledgerManager = new ChunkLedgerManager();
+
+    private final Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+    private final AtomicInteger upstreamSubscriptions = new AtomicInteger();
+
+    private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+
+    private final List<GenerationFlight> terminated = new CopyOnWriteArrayList<>();
+
+    @Test
+    void followerReplaysFromSharedLedger() {
+        GenerationFlight flight = newFlight();
+        Assertions.assertTrue(flight.retain());
+        List<String> leader = new CopyOnWriteArrayList<>();
+        flight.stream().subscribe(leader::add);
+        upstream.tryEmitNext("ab");
+        upstream.tryEmitNext("cd");
+
+        Assertions.assertTrue(flight.retain());
+        List<String> follower = new CopyOnWriteArrayList<>();
+        AtomicBoolean followerCompleted = new AtomicBoolean();
+        flight.stream().subscribe(follower::add, null, () -> followerCompleted.set(true));
+        upstream.tryEmitNext("ef");
+        upstream.tryEmitComplete();
+
+        Assertions.assertEquals(1, upstreamSubscriptions.get());
+        Assertions.assertEquals(List.of("ab", "cd", "ef"), leader);
+        Assertions.assertEquals(List.of("ab", "cd", "ef"), follower);
+        Assertions.assertTrue(followerCompleted.get());
+        Assertions.assertEquals("abcdef", flight.getResponse());
+        // 两个订阅者共用一份账本，只计一次预算
+        Assertions.assertEquals(ChunkLedgerManager.estimateBytes("abcdef"), ledgerManager.getBufferedBytes());
+        Assertions.assertEquals(List.of(flight), terminated);
+        // 结束后不再接受新的持有者
+        Assertions.assertFalse(flight.retain());
+
+        flight.release();
+        Assertions.assertEquals(ChunkLedgerManager.estimateBytes("abcdef"), ledgerManager.getBufferedBytes());
+        flight.release();
+        Assertions.assertEquals(0, ledgerManager.getBufferedBytes());
+    }
+
+    @Test
+    void leaderDisconnectKeepsFlightAccounted() {
+        GenerationFlight flight = newFlight();
+        flight.retain();
+        Disposable leader = flight.stream().subscribe();
+        flight.retain();
+        List<String> follower = new CopyOnWriteArrayList<>();
+        flight.stream().subscribe(follower::add);
+        upstream.tryEmitNext("ab");
+
+        leader.dispose();
+        flight.release();
+        upstream.tryEmitNext("cd");
+
+        Assertions.assertFalse(upstreamCancelled.get());
+        Assertions.assertEquals(List.of("ab", "cd"), follower);
+        // 发起者已经释放，跟随者仍在接收，账本继续计入预算
+        Assertions.assertEquals(ChunkLedgerManager.estimateBytes("abcd"), ledgerManager.getBufferedBytes());
+
+        upstream.tryEmitComplete();
+        flight.release();
+        Assertions.assertEquals(0, ledgerManager.getBufferedBytes());
+    }
+
+    @Test
+    void lastSubscriberCancelCancelsUpstream() {
+        GenerationFlight flight = newFlight();
+        flight.retain();
+        Disposable first = flight.stream().subscribe();
+        flight.retain();
+        Disposable second = flight.stream().subscribe();
+        upstream.tryEmitNext("ab");
+
+        first.dispose();
+        Assertions.assertFalse(upstreamCancelled.get());
+        second.dispose();
+
+        Assertions.assertTrue(upstreamCancelled.get());
+        Assertions.assertEquals(List.of(flight), terminated);
+        Assertions.assertFalse(flight.retain());
+        // 取消后仍然可以读取部分响应
+        Assertions.assertEquals("ab", flight.getResponse());
+        flight.release();
+        flight.release();
+        Assertions.assertEquals(0, ledgerManager.getBufferedBytes());
+    }
+
+    @Test
+    void upstreamErrorReachesEverySubscriber() {
+        GenerationFlight flight = newFlight();
+        flight.retain();
+        AtomicInteger errors = new AtomicInteger();
+        flight.stream().subscribe(null, error -> errors.incrementAndGet());
+        flight.retain();
+        flight.stream().subscribe(null, error -> errors.incrementAndGet());
+
+        upstream.tryEmitError(new IllegalStateException("model failed"));
+
+        Assertions.assertEquals(2, errors.get());
+        Assertions.assertEquals(List.of(flight), terminated);
+    }
+
+    @Test
+    void recordedChunkIsAppendedAndReplayedOnce() {
+        List<String> follower = new CopyOnWriteArrayList<>();
+        GenerationFlight[] self = new GenerationFlight[1];
+        // 上游处理链先把 chunk 记入账本，第二个 chunk 记入后、发给订阅者前有订阅者加入
+        GenerationFlight flight = new GenerationFlight(ledgerManager.create(), owner -> upstream.asFlux().doOnNext(chunk -> {
+            owner.record(chunk);
+            Assertions.assertEquals(chunk, owner.ledger().subSequence(owner.ledger().length() - chunk.length(),
+                    owner.ledger().length()).toString());
+            if (chunk.equals("cd")) {
+                self[0].retain();
+                self[0].stream().subscribe(follower::add);
+            }
+        }), terminated::add);
+        self[0] = flight;
+        flight.retain();
+        List<String> leader = new CopyOnWriteArrayList<>();
+        flight.stream().subscribe(leader::add);
+        upstream.tryEmitNext("ab");
+        upstream.tryEmitNext("cd");
+        upstream.tryEmitNext("ef");
+        upstream.tryEmitComplete();
+
+        Assertions.assertEquals("abcdef", flight.getResponse());
+        Assertions.assertEquals(List.of("ab", "cd", "ef"), leader);
+        Assertions.assertEquals(List.of("ab", "cd", "ef"), follower);
+        Assertions.assertEquals(ChunkLedgerManager.estimateBytes("abcdef"), ledgerManager.getBufferedBytes());
+    }
+
+    private GenerationFlight newFlight() {
+        Flux<String> source = upstream.asFlux()
+                .doOnSubscribe(subscription -> upstreamSubscriptions.incrementAndGet())
+                .doOnCancel(() -> upstreamCancelled.set(true));
+        return new GenerationFlight(ledgerManager.create(), flight -> source, terminated::add);
+    }
+}
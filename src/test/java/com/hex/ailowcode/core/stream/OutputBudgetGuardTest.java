@@ -0,0 +1,71 @@
+package com.hex.ailowcode.core.stream;
+
+import com.hex.ailowcode.config.CodeGenProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * OutputBudgetGuard 各项预算的触发条件，以及正常输出不会误判
+ */
+class OutputBudgetGuardTest {
+
+    @Test
+    void abortsWhenNoFenceWithinLimit() {
+        OutputBudgetGuard guard = new OutputBudgetGuard("html", new CodeGenProperties.OutputBudget(1, 0, 0));
+        Assertions.assertNull(guard.feed("a".repeat(1000), false));
+        Assertions.assertEquals(OutputBudgetGuard.Reason.NO_CODE_FENCE, guard.feed("a".repeat(100), false));
+        // 已经出现过围栏时不再检查
+        OutputBudgetGuard opened = new OutputBudgetGuard("html", new CodeGenProperties.OutputBudget(1, 0, 0));
+        Assertions.assertNull(opened.feed("a".repeat(4096), true));
+    }
+
+    @Test
+    void abortsWhenOutputTooLong() {
+        OutputBudgetGuard guard = new OutputBudgetGuard("html", new CodeGenProperties.OutputBudget(0, 2, 0));
+        Assertions.assertNull(guard.feed("a".repeat(2048), true));
+        Assertions.assertEquals(OutputBudgetGuard.Reason.OUTPUT_TOO_LONG, guard.feed("a", true));
+        Assertions.assertEquals(2049, guard.getOutputChars());
+    }
+
+    @Test
+    void detectsRepeatedLinesAcrossChunks() {
+        OutputBudgetGuard guard = new OutputBudgetGuard("html", new CodeGenProperties.OutputBudget(0, 0, 50));
+        String line = "<div class=\"item\">loop</div>\n";
+        OutputBudgetGuard.Reason reason = null;
+        int fed = 0;
+        // 逐字符输入，验证行哈希跨 chunk 保留
+        while (reason == null && fed < 200) {
+            for (int i = 0; i < line.length() && reason == null; i++) {
+                reason = guard.feed(String.valueOf(line.charAt(i)), true);
+            }
+            fed++;
+        }
+        Assertions.assertEquals(OutputBudgetGuard.Reason.REPEATED_LINES, reason);
+        Assertions.assertEquals(51, fed);
+    }
+
+    @Test
+    void detectsMultiLineLoops() {
+        OutputBudgetGuard guard = new OutputBudgetGuard("html", new CodeGenProperties.OutputBudget(0, 0, 50));
+        String cycle = "function a() {\n  return 1;\n}\n";
+        OutputBudgetGuard.Reason reason = null;
+        for (int i = 0; i < 100 && reason == null; i++) {
+            reason = guard.feed(cycle, true);
+        }
+        Assertions.assertEquals(OutputBudgetGuard.Reason.REPEATED_LINES, reason);
+    }
+
+    @Test
+    void normalCodeIsNotMistakenForLoop() {
+        OutputBudgetGuard guard = new OutputBudgetGuard("html", new CodeGenProperties.OutputBudget(4, 64, 50));
+        StringBuilder code = new StringBuilder("```html\n");
+        for (int i = 0; i < 500; i++) {
+            code.append("  <li class=\"item\">第 ").append(i).append(" 项</li>\n");
+            if (i % 10 == 0) {
+                code.append("\n  </ul>\n  <ul>\n");
+            }
+        }
+        code.append("```\n");
+        Assertions.assertNull(guard.feed(code, true));
+    }
+}
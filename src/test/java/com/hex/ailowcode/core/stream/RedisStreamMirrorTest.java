@@ -0,0 +1,190 @@
+package com.hex.ailowcode.core.stream;
+
+import com.hex.ailowcode.exception.BusinessException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Redis 镜像异步攒批写入：append 不等待 Redis，事件按顺序批量写入，积压超出上限时放弃镜像；
+ * 跨节点续传只有读到 done 才正常结束，生成失败或镜像被放弃时以错误结束
+ */
+class RedisStreamMirrorTest {
+
+    private final RecordingRedisTemplate redisTemplate = new RecordingRedisTemplate();
+
+    private final RedisStreamMirror mirror = new RedisStreamMirror(redisTemplate);
+
+    @Test
+    void appendDoesNotWaitForRedis() throws InterruptedException {
+        mirror.start("s1", 1L, 2L);
+        // Redis 阻塞期间 append 仍然立即返回
+        for (int i = 0; i < 1000; i++) {
+            mirror.append(new StreamEvent("s1", i, "c" + i));
+        }
+        mirror.end("s1", true);
+        redisTemplate.gate.countDown();
+        awaitCommand("set gen_stream:s1:end done");
+
+        List<String> pushed = new ArrayList<>();
+        int pushCount = 0;
+        int expireCount = 0;
+        for (String command : redisTemplate.commands) {
+            if (command.startsWith("rPush gen_stream:s1 ")) {
+                pushed.addAll(Arrays.asList(command.substring("rPush gen_stream:s1 ".length()).split(" ")));
+                pushCount++;
+            } else if (command.startsWith("expire gen_stream:s1 ")) {
+                expireCount++;
+            }
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add("c" + i);
+        }
+        Assertions.assertEquals(expected, pushed);
+        Assertions.assertEquals(pushCount, expireCount);
+        Assertions.assertTrue(redisTemplate.pipelines.get() < 100, "pipelines: " + redisTemplate.pipelines.get());
+        // 归属信息最先写入，结束标记最后写入
+        Assertions.assertTrue(redisTemplate.commands.getFirst().startsWith("set gen_stream:s1:owner 1:2"));
+        Assertions.assertTrue(redisTemplate.commands.getLast().startsWith("set gen_stream:s1:end done"));
+    }
+
+    @Test
+    void backlogOverflowAbandonsMirror() throws InterruptedException {
+        mirror.start("s2", 1L, 2L);
+        for (int i = 0; i < RedisStreamMirror.MAX_PENDING_EVENTS + 10; i++) {
+            mirror.append(new StreamEvent("s2", i, "c" + i));
+        }
+        mirror.end("s2", true);
+        redisTemplate.gate.countDown();
+        awaitCommand("set gen_stream:s2:end abandoned");
+
+        Assertions.assertTrue(redisTemplate.commands.contains("del gen_stream:s2:owner"));
+        Assertions.assertTrue(redisTemplate.commands.stream().noneMatch(command -> command.startsWith("set gen_stream:s2:end done")));
+    }
+
+    @Test
+    void followerFailsUnlessStreamCompleted() throws InterruptedException {
+        redisTemplate.values.put("gen_stream:s3:owner", "1:2");
+        redisTemplate.lists.put("gen_stream:s3", List.of("c0", "c1", "c2"));
+        redisTemplate.values.put("gen_stream:s3:end", "done");
+        Assertions.assertEquals(List.of("c1", "c2"), follow("s3", new CopyOnWriteArrayList<>()));
+
+        // 生成失败：先收到已经写入的事件，再以错误结束
+        redisTemplate.values.put("gen_stream:s3:end", "error");
+        List<String> received = new CopyOnWriteArrayList<>();
+        Assertions.assertThrows(BusinessException.class, () -> follow("s3", received));
+        Assertions.assertEquals(List.of("c1", "c2"), received);
+
+        // 跟随过程中镜像被放弃：立即以错误结束，不必轮询到 key 过期
+        redisTemplate.values.remove("gen_stream:s3:end");
+        List<String> abandoned = new CopyOnWriteArrayList<>();
+        Thread abandon = Thread.ofVirtual().start(() -> {
+            while (abandoned.size() < 2) {
+                Thread.onSpinWait();
+            }
+            redisTemplate.values.put("gen_stream:s3:end", "abandoned");
+        });
+        Assertions.assertThrows(BusinessException.class, () -> follow("s3", abandoned));
+        Assertions.assertEquals(List.of("c1", "c2"), abandoned);
+        abandon.join();
+    }
+
+    /**
+     * 从序号 0 之后跟随镜像，返回收到的事件内容
+     */
+    private List<String> follow(String streamId, List<String> received) {
+        mirror.replay(streamId, 0, 1L, 2L).doOnNext(event -> received.add(event.getData())).blockLast(Duration.ofSeconds(5));
+        return received;
+    }
+
+    private void awaitCommand(String prefix) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (redisTemplate.commands.stream().anyMatch(command -> command.startsWith(prefix))) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        Assertions.fail("没有等到命令: " + prefix + ", 已执行: " + redisTemplate.commands.size());
+    }
+
+    /**
+     * 记录 pipeline 中执行的命令，gate 打开前所有写入都阻塞（模拟 Redis 变慢）
+     */
+    private static class RecordingRedisTemplate extends StringRedisTemplate {
+
+        private final List<String> commands = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger pipelines = new AtomicInteger();
+
+        private final CountDownLatch gate = new CountDownLatch(1);
+
+        /**
+         * 续传读取的字符串和列表
+         */
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+
+        private final Map<String, List<String>> lists = new ConcurrentHashMap<>();
+
+        @Override
+        public List<Object> executePipelined(RedisCallback<?> action) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            pipelines.incrementAndGet();
+            StringRedisConnection connection = (StringRedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{StringRedisConnection.class}, (proxy, method, args) -> {
+                        StringBuilder command = new StringBuilder(method.getName());
+                        for (Object arg : args) {
+                            command.append(' ').append(arg instanceof Object[] values
+                                    ? String.join(" ", Arrays.stream(values).map(String::valueOf).toList()) : arg);
+                        }
+                        commands.add(command.toString());
+                        return null;
+                    });
+            action.doInRedis(connection);
+            return List.of();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            return (ValueOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ValueOperations.class}, (proxy, method, args) -> values.get((String) args[0]));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ListOperations<String, String> opsForList() {
+            return (ListOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ListOperations.class}, (proxy, method, args) -> {
+                        List<String> list = lists.getOrDefault((String) args[0], List.of());
+                        return list.subList((int) Math.min((long) args[1], list.size()), list.size());
+                    });
+        }
+
+        @Override
+        public Boolean delete(String key) {
+            commands.add("del " + key);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.hex.ailowcode.core.stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 重放缓冲区计入内存预算：挤出环形缓冲区的事件扣除，保留期结束释放时全部归还
+ */
+class ReplayableStreamTest {
+
+    @Test
+    void replayBufferIsAccountedAgainstBudget() {
+        ChunkLedgerManager ledgerManager = new ChunkLedgerManager();
+        List<ReplayableStream> terminated = new CopyOnWriteArrayList<>();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        ReplayableStream stream = new ReplayableStream("s1", 1L, 1L, upstream.asFlux(), 2,
+                Duration.ofSeconds(30), null, ledgerManager, terminated::add);
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        stream.subscribe(-1).map(StreamEvent::getData).subscribe(received::add);
+        upstream.tryEmitNext("aaaa");
+        Assertions.assertEquals(ChunkLedgerManager.estimateBytes("aaaa"), ledgerManager.getBufferedBytes());
+        upstream.tryEmitNext("bbb");
+        upstream.tryEmitNext("cc");
+        upstream.tryEmitComplete();
+
+        Assertions.assertEquals(List.of("aaaa", "bbb", "cc"), received);
+        Assertions.assertEquals(List.of(stream), terminated);
+        // 缓冲区只保留最后两个事件
+        Assertions.assertEquals(ChunkLedgerManager.estimateBytes("bbb") + ChunkLedgerManager.estimateBytes("cc"),
+                ledgerManager.getBufferedBytes());
+        Assertions.assertEquals(List.of("bbb", "cc"), stream.subscribe(0).map(StreamEvent::getData).collectList().block());
+
+        stream.release();
+        stream.release();
+        Assertions.assertEquals(0, ledgerManager.getBufferedBytes());
+    }
+}
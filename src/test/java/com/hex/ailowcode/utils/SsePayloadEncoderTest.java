@@ -0,0 +1,84 @@
+package com.hex.ailowcode.utils;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * SsePayloadEncoder 兼容性测试 + 与 Map.of + JSONUtil 旧路径的对比基准（基准测试打 benchmark 标签，默认不运行）
+ */
+class SsePayloadEncoderTest {
+
+    @Test
+    void everyCharMatchesHutool() {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            String chunk = "a" + (char) c + "b";
+            Assertions.assertEquals(legacyEncode(chunk), SsePayloadEncoder.encode(chunk), "char: " + c);
+        }
+    }
+
+    @Test
+    void typicalChunksMatchHutool() {
+        List<String> chunks = List.of("", " ", "\n", "```html\n", "<div class=\"app\">\n", "  color: #fff;\r\n",
+                "console.log('a\\\\b');\t", "</script>", "中文注释：留言板", "emoji 😀 ok", "  ",
+                "\\u0041", "{\"d\":\"nested\"}", "\u0000\u001f\u007f");
+        for (String chunk : chunks) {
+            Assertions.assertEquals(legacyEncode(chunk), SsePayloadEncoder.encode(chunk), chunk);
+        }
+    }
+
+    @Test
+    void randomChunksMatchHutool() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            char[] chars = new char[random.nextInt(200)];
+            for (int j = 0; j < chars.length; j++) {
+                // 一半概率取 ASCII，一半概率取任意 BMP 字符（包括单独的代理项）
+                chars[j] = random.nextBoolean() ? (char) random.nextInt(128) : (char) random.nextInt(Character.MAX_VALUE + 1);
+            }
+            String chunk = new String(chars);
+            Assertions.assertEquals(legacyEncode(chunk), SsePayloadEncoder.encode(chunk));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkAgainstLegacyPath() {
+        String[] chunks = {"<div class=\"card\">", "\n  ", "color: #333;", "function init() {", "中文标题", "\"quoted\"\n"};
+        double legacyBytesPerOp = measureAllocation(SsePayloadEncoderTest::legacyEncode, chunks);
+        double encoderBytesPerOp = measureAllocation(SsePayloadEncoder::encode, chunks);
+        Assertions.assertTrue(encoderBytesPerOp < legacyBytesPerOp);
+    }
+
+    private static String legacyEncode(String chunk) {
+        return JSONUtil.toJsonStr(Map.of("d", chunk));
+    }
+
+    /**
+     * 测量每次编码的平均分配字节数
+     */
+    private static double measureAllocation(Function<String, String> encoder, String[] chunks) {
+        int warmup = 200_000;
+        int iterations = 1_000_000;
+        long sink = 0;
+        for (int i = 0; i < warmup; i++) {
+            sink += encoder.apply(chunks[i % chunks.length]).length();
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            sink += encoder.apply(chunks[i % chunks.length]).length();
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        Assertions.assertTrue(sink > 0);
+        return (double) allocated / iterations;
+    }
+}